@@ -20,6 +20,11 @@ import com.diffplug.spotless.Formatter;
 public interface FormatterFactory extends AutoCloseable {
     Formatter createFormatter();
 
+    /**
+     * Called by the task which obtained the formatter from {@link #createFormatter()} once it is done with it.
+     */
+    default void release(Formatter formatter) {}
+
     @Override
     void close();
 }
@@ -0,0 +1,69 @@
+/*
+ * Copyright 2026 DiffPlug
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.diffplug.spotless.cli;
+
+import java.util.Objects;
+import java.util.concurrent.ExecutorService;
+
+import org.jetbrains.annotations.NotNull;
+
+/**
+ * A {@link FormatterFactory} together with the executor whose threads the created formatters are bound to.
+ * Keeping both alive keeps the formatters warm.
+ */
+public final class FormattingEngine implements AutoCloseable {
+
+    private final FormatterFactory formatterFactory;
+
+    private final ExecutorService executor;
+
+    private final boolean owned;
+
+    public FormattingEngine(@NotNull FormatterFactory formatterFactory, @NotNull ExecutorService executor) {
+        this(formatterFactory, executor, true);
+    }
+
+    private FormattingEngine(FormatterFactory formatterFactory, ExecutorService executor, boolean owned) {
+        this.formatterFactory = Objects.requireNonNull(formatterFactory);
+        this.executor = Objects.requireNonNull(executor);
+        this.owned = owned;
+    }
+
+    public FormatterFactory formatterFactory() {
+        return formatterFactory;
+    }
+
+    public ExecutorService executor() {
+        return executor;
+    }
+
+    /**
+     * @return a view on this engine which can be handed out to a single run, closing it leaves this engine intact.
+     */
+    public FormattingEngine borrow() {
+        return new FormattingEngine(formatterFactory, executor, false);
+    }
+
+    @Override
+    public void close() {
+        if (!owned) {
+            return;
+        }
+        try (formatterFactory) {
+            executor.close();
+        }
+    }
+}
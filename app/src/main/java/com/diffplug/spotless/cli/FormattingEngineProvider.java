@@ -0,0 +1,35 @@
+/*
+ * Copyright 2026 DiffPlug
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.diffplug.spotless.cli;
+
+import java.util.function.Supplier;
+
+import org.jetbrains.annotations.NotNull;
+
+public interface FormattingEngineProvider {
+
+    /**
+     * Creates a fresh engine for every run, it is closed at the end of the run.
+     */
+    FormattingEngineProvider NEW_PER_RUN = (configurationKey, engineFactory) -> engineFactory.get();
+
+    /**
+     * @param configurationKey identifies the formatter configuration, engines may only be reused for the same key
+     * @param engineFactory creates a new engine if none can be reused
+     * @return the engine to use for one run, the caller closes it when done
+     */
+    @NotNull FormattingEngine obtain(@NotNull String configurationKey, @NotNull Supplier<FormattingEngine> engineFactory);
+}
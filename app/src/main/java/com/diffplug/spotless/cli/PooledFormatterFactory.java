@@ -0,0 +1,76 @@
+/*
+ * Copyright 2026 DiffPlug
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.diffplug.spotless.cli;
+
+import java.nio.charset.Charset;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.diffplug.spotless.Formatter;
+import com.diffplug.spotless.LineEnding;
+import com.diffplug.spotless.cli.execution.FormatterStepsSupplier;
+
+/**
+ * Hands out formatters from a pool instead of binding them to threads, for executors which start a new (virtual)
+ * thread per task. A new formatter is only created if all created ones are in use, so there are never more
+ * formatters than tasks running at once.
+ */
+public class PooledFormatterFactory implements FormatterFactory {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(PooledFormatterFactory.class);
+
+    private final LineEnding.Policy policy;
+    private final Charset encoding;
+    private final FormatterStepsSupplier formatterSteps;
+
+    private final Queue<Formatter> idleFormatters = new ConcurrentLinkedQueue<>();
+    private final Queue<Formatter> createdFormatters = new ConcurrentLinkedQueue<>();
+
+    public PooledFormatterFactory(LineEnding.Policy policy, Charset encoding, FormatterStepsSupplier formatterSteps) {
+        this.policy = policy;
+        this.encoding = encoding;
+        this.formatterSteps = formatterSteps;
+    }
+
+    @Override
+    public Formatter createFormatter() {
+        Formatter formatter = idleFormatters.poll();
+        if (formatter != null) {
+            return formatter;
+        }
+        LOGGER.info("Creating Formatter #{}", createdFormatters.size() + 1);
+        formatter = Formatter.builder()
+                .lineEndingsPolicy(policy)
+                .encoding(encoding)
+                .steps(formatterSteps.getFormatterSteps())
+                .build();
+        createdFormatters.add(formatter);
+        return formatter;
+    }
+
+    @Override
+    public void release(Formatter formatter) {
+        idleFormatters.add(formatter);
+    }
+
+    @Override
+    public void close() {
+        createdFormatters.forEach(Formatter::close);
+    }
+}
@@ -15,9 +15,70 @@
  */
 package com.diffplug.spotless.cli;
 
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
 import java.nio.file.Path;
 
+import org.jetbrains.annotations.Nullable;
+
+import com.diffplug.spotless.DirtyState;
 import com.diffplug.spotless.Formatter;
 import com.diffplug.spotless.LintState;
+import com.diffplug.spotless.ThrowingEx;
+
+/**
+ * @param originalContent the content of the target as it was read for formatting, so it never needs to be read again
+ * @param formattedContent the formatted content of a dirty target which converged, either taken from the cache or
+ * written once from the dirty state (so it is not written again by every use)
+ */
+record Result(
+        Path target,
+        byte @Nullable [] originalContent,
+        @Nullable LintState lintState,
+        @Nullable Formatter formatter,
+        byte @Nullable [] formattedContent) {
+
+    static Result upToDate(Path target) {
+        return new Result(target, null, null, null, null);
+    }
+
+    static Result formatted(Path target, byte[] originalContent, LintState lintState, Formatter formatter) {
+        return new Result(target, originalContent, lintState, formatter, canonicalContent(lintState.getDirtyState()));
+    }
+
+    static Result cached(Path target, byte[] originalContent, Formatter formatter, byte[] formattedContent) {
+        return new Result(target, originalContent, null, formatter, formattedContent);
+    }
+
+    /**
+     * @return {@code true} if the file was skipped because the up-to-date index (or the cache) recorded it as clean.
+     */
+    boolean isUpToDate() {
+        return lintState == null && formattedContent == null;
+    }
+
+    boolean isClean() {
+        return lintState != null && lintState.isClean();
+    }
+
+    boolean hasLints() {
+        return lintState != null && lintState.isHasLints();
+    }
+
+    boolean didNotConverge() {
+        return lintState != null && lintState.getDirtyState().didNotConverge();
+    }
 
-record Result(Path target, LintState lintState, Formatter formatter) {}
+    private static byte @Nullable [] canonicalContent(DirtyState dirtyState) {
+        if (dirtyState.isClean() || dirtyState.didNotConverge()) {
+            return null;
+        }
+        ByteArrayOutputStream canonical = new ByteArrayOutputStream();
+        try {
+            dirtyState.writeCanonicalTo(canonical);
+        } catch (IOException e) {
+            throw ThrowingEx.asRuntime(e);
+        }
+        return canonical.toByteArray();
+    }
+}
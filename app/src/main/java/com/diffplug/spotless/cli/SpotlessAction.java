@@ -17,8 +17,10 @@ package com.diffplug.spotless.cli;
 
 import org.jetbrains.annotations.NotNull;
 
+import com.diffplug.spotless.cli.core.SpotlessActionContext;
 import com.diffplug.spotless.cli.execution.FormatterStepsSupplier;
 
 public interface SpotlessAction extends SpotlessCommand {
-    @NotNull Integer executeSpotlessAction(@NotNull FormatterStepsSupplier formatterSteps);
+    @NotNull Integer executeSpotlessAction(
+            @NotNull FormatterStepsSupplier formatterSteps, @NotNull SpotlessActionContext context);
 }
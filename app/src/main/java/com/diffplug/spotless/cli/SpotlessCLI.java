@@ -15,34 +15,82 @@
  */
 package com.diffplug.spotless.cli;
 
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
 import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.URI;
 import java.nio.charset.Charset;
+import java.nio.file.Files;
 import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
 import java.util.List;
+import java.util.Map;
 import java.util.Objects;
+import java.util.Set;
+import java.util.Spliterator;
+import java.util.Spliterators;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
-import java.util.concurrent.Future;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
 
 import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import com.diffplug.spotless.Formatter;
+import com.diffplug.spotless.FormatterStep;
 import com.diffplug.spotless.LineEnding;
 import com.diffplug.spotless.LintState;
 import com.diffplug.spotless.ThrowingEx;
+import com.diffplug.spotless.cli.batch.BatchProtocol;
+import com.diffplug.spotless.cli.core.AtomicFileWriter;
+import com.diffplug.spotless.cli.core.ChecksumCalculator;
+import com.diffplug.spotless.cli.core.FilePathUtil;
 import com.diffplug.spotless.cli.core.FileResolver;
+import com.diffplug.spotless.cli.core.FormattedContentCache;
+import com.diffplug.spotless.cli.core.RemoteFormattedContentCache;
+import com.diffplug.spotless.cli.core.Shard;
 import com.diffplug.spotless.cli.core.SpotlessActionContext;
 import com.diffplug.spotless.cli.core.SpotlessCommandLineStream;
 import com.diffplug.spotless.cli.core.SpotlessRunCleanup;
+import com.diffplug.spotless.cli.core.StepRoutes;
+import com.diffplug.spotless.cli.core.TargetExclusions;
 import com.diffplug.spotless.cli.core.TargetFileTypeInferer;
+import com.diffplug.spotless.cli.core.TargetFileTypeInferer.TargetFileType;
 import com.diffplug.spotless.cli.core.TargetResolver;
+import com.diffplug.spotless.cli.core.TargetWatcher;
+import com.diffplug.spotless.cli.core.UpToDateIndex;
+import com.diffplug.spotless.cli.daemon.DaemonClient;
+import com.diffplug.spotless.cli.daemon.SpotlessDaemon;
+import com.diffplug.spotless.cli.execution.AdaptiveThreadPool;
+import com.diffplug.spotless.cli.execution.BoundedCompletionService;
+import com.diffplug.spotless.cli.execution.ContainerResources;
+import com.diffplug.spotless.cli.execution.ExecutorType;
 import com.diffplug.spotless.cli.execution.FormatterStepsSupplier;
 import com.diffplug.spotless.cli.execution.SpotlessExecutionStrategy;
+import com.diffplug.spotless.cli.git.GitRatchet;
 import com.diffplug.spotless.cli.help.OptionConstants;
 import com.diffplug.spotless.cli.logging.output.LoggingConfigurer;
 import com.diffplug.spotless.cli.logging.output.Output;
+import com.diffplug.spotless.cli.profile.FileFormattedEvent;
+import com.diffplug.spotless.cli.profile.Profiler;
+import com.diffplug.spotless.cli.profile.Tracer;
+import com.diffplug.spotless.cli.report.MergeReports;
+import com.diffplug.spotless.cli.report.RunReport;
+import com.diffplug.spotless.cli.steps.BatchFormatterStep;
 import com.diffplug.spotless.cli.steps.ClangFormat;
 import com.diffplug.spotless.cli.steps.CleanThat;
 import com.diffplug.spotless.cli.steps.EclipseWtp;
@@ -52,6 +100,7 @@ import com.diffplug.spotless.cli.steps.LicenseHeader;
 import com.diffplug.spotless.cli.steps.PalantirJavaFormat;
 import com.diffplug.spotless.cli.steps.Prettier;
 import com.diffplug.spotless.cli.steps.RemoveUnusedImports;
+import com.diffplug.spotless.cli.steps.SpotlessCLIFormatterStep;
 import com.diffplug.spotless.cli.version.SpotlessCLIVersionProvider;
 
 import picocli.CommandLine;
@@ -117,6 +166,37 @@ public class SpotlessCLI implements SpotlessAction, SpotlessCommand, SpotlessAct
 
     private final SpotlessRunCleanup spotlessRunCleanup = SpotlessRunCleanup.INSTANCE; // just keep a reference here
 
+    private final FormattingEngineProvider formattingEngineProvider;
+
+    private TargetResolver targetResolver; // created lazily, so the targets are only walked once per run
+
+    private GitRatchet gitRatchet; // closed at the end of the run
+
+    private Profiler profiler = Profiler.disabled();
+
+    private Tracer tracer = Tracer.disabled();
+
+    private RunReport runReport = new RunReport(null);
+
+    private FormattedContentCache formattedContentCache = FormattedContentCache.none();
+
+    private final @Nullable Path workingDirectory; // null for the working directory of this process
+
+    private final InputStream stdin;
+
+    private final OutputStream stdout; // raw bytes, picocli's out is for text
+
+    private SpotlessCLI(
+            @NotNull FormattingEngineProvider formattingEngineProvider,
+            @Nullable Path workingDirectory,
+            @NotNull InputStream stdin,
+            @NotNull OutputStream stdout) {
+        this.formattingEngineProvider = Objects.requireNonNull(formattingEngineProvider);
+        this.workingDirectory = workingDirectory;
+        this.stdin = Objects.requireNonNull(stdin);
+        this.stdout = Objects.requireNonNull(stdout);
+    }
+
     @CommandLine.Option(
             names = {"--mode", "-m"},
             defaultValue = "APPLY",
@@ -128,6 +208,41 @@ public class SpotlessCLI implements SpotlessAction, SpotlessCommand, SpotlessAct
                     CHECK: Check if the files are formatted or show the diff of the formatting.""")
     SpotlessMode spotlessMode;
 
+    @CommandLine.Option(
+            names = {"--fsync"},
+            defaultValue = "NONE",
+            description = "When to flush files written in APPLY mode to the disk."
+                    + OptionConstants.VALID_AND_DEFAULT_VALUES_SUFFIX
+                    + OptionConstants.NEW_LINE
+                    + """
+                    NONE: Leave it to the operating system.
+                    ALWAYS: Flush every file right after it was written.
+                    BATCH: Flush all written files at once at the end of the run.""")
+    AtomicFileWriter.Fsync fsync;
+
+    @CommandLine.Option(
+            names = {"--profile"},
+            paramLabel = "FILE",
+            description = "Write a report of where the time of the run was spent to the given file: per phase, "
+                    + "per formatter step (totals and percentiles) and the slowest files.")
+    Path profile;
+
+    @CommandLine.Option(
+            names = {"--trace"},
+            paramLabel = "FILE",
+            description = "Write what each thread did over time to the given file, in the chrome trace event format "
+                    + "(open it with https://ui.perfetto.dev).")
+    Path trace;
+
+    @CommandLine.Option(
+            names = {"--report"},
+            paramLabel = "FILE",
+            description = "Write the exit code, the number of clean, dirty and up-to-date files and the paths of the "
+                    + "files which were not clean to the given file. Use @|yellow spotless "
+                    + MergeReports.COMMAND_NAME
+                    + " FILE...|@ to merge the reports of several runs, e.g. of all shards.")
+    Path report;
+
     @CommandLine.Option(
             names = {"--basedir"},
             hidden = true,
@@ -145,6 +260,88 @@ public class SpotlessCLI implements SpotlessAction, SpotlessCommand, SpotlessAct
         -t 'README.md'""")
     public List<String> targets;
 
+    @CommandLine.Option(
+            names = {"--stdin-filepath"},
+            paramLabel = "PATH",
+            description = "Instead of formatting the targets, read the content to format from stdin and write the "
+                    + "result to stdout, without touching the disk. The path is used (as if the content was read from "
+                    + "it) to select the routes and to look up configuration, the file does not need to exist.")
+    Path stdinFilepath;
+
+    @CommandLine.Option(
+            names = {"--batch-stdin"},
+            defaultValue = "false",
+            description = "Instead of formatting the targets, read a stream of length-prefixed (id, path, content) "
+                    + "requests from stdin and format them concurrently, writing a length-prefixed (id, status, "
+                    + "content, message) response to stdout for each of them as soon as it is formatted, without "
+                    + "touching the disk." + OptionConstants.DEFAULT_VALUE_SUFFIX)
+    boolean batchStdin;
+
+    @CommandLine.Option(
+            names = {"--exclude", "-x"},
+            description =
+                    """
+        Files to exclude from the targets, directories matching an exclude are not visited at all. Globs are supported.
+        Examples:
+        -x '**/node_modules/**'
+        -x 'src/generated/**'""")
+    public List<String> excludes;
+
+    @CommandLine.Option(
+            names = {"--respect-gitignore"},
+            defaultValue = "false",
+            description = "Exclude files ignored by git (using .gitignore files and .git/info/exclude)."
+                    + OptionConstants.DEFAULT_VALUE_SUFFIX)
+    boolean respectGitignore;
+
+    @CommandLine.Option(
+            names = {"--route"},
+            paramLabel = "GLOB=STEPS",
+            description =
+                    """
+        Only format the files matching the glob with the given (comma separated) steps, to format several languages \
+        in a single run. Steps named in no route apply to all files, files matching no route are skipped if all steps \
+        are routed. A routed step formats all files of its routes, even those with extensions it would skip \
+        otherwise. A glob without a path separator is matched against the file name.
+        Examples:
+        --route '*.java=google-java-format,license-header'
+        --route '*.xml=eclipse-wtp'
+        --route '*.fxml=eclipse-wtp' eclipse-wtp --type XML""")
+    List<String> routes;
+
+    private Shard shard;
+
+    @CommandLine.Option(
+            names = {"--shard"},
+            paramLabel = "INDEX/COUNT",
+            description = "Only format the files of the given shard, e.g. '2/4' for the second of four disjoint parts "
+                    + "of the targets, to split a large tree across several jobs. Files are assigned to shards by a "
+                    + "stable hash of their path relative to the base directory. See also --report.")
+    public void setShard(String shard) {
+        try {
+            this.shard = Shard.parse(shard);
+        } catch (IllegalArgumentException e) {
+            throw new CommandLine.ParameterException(spec.commandLine(), "Error: --shard: " + e.getMessage());
+        }
+    }
+
+    @CommandLine.Option(
+            names = {"--ratchet-from"},
+            paramLabel = "REF",
+            description =
+                    "Only format files whose content differs from the given git revision (e.g. 'origin/main' or 'HEAD~1'), "
+                            + "including files which do not exist in that revision. If the revision is not an ancestor "
+                            + "of HEAD, files are compared to the merge base of both.")
+    String ratchetFrom;
+
+    @CommandLine.Option(
+            names = {"--watch"},
+            defaultValue = "false",
+            description = "Keep running after formatting the targets and format the files of the targets again "
+                    + "whenever they are created or modified, until interrupted."
+                    + OptionConstants.DEFAULT_VALUE_SUFFIX)
+    boolean watch;
+
     @CommandLine.Option(
             names = {"--encoding", "-e"},
             defaultValue = "UTF-8",
@@ -159,19 +356,105 @@ public class SpotlessCLI implements SpotlessAction, SpotlessCommand, SpotlessAct
 
     private int parallelity;
 
+    private boolean adaptiveParallelity;
+
     @CommandLine.Option(
             names = {"--parallelity", "-p"},
-            paramLabel = "N",
-            description =
-                    "The number of parallel formatter threads to run. " + OptionConstants.DEFAULT_VALUE_SUFFIX_BEGIN
-                            + "#cores * 0.5" + OptionConstants.DEFAULT_VALUE_SUFFIX_END)
-    public void setParallelity(int parallelity) {
-        if (parallelity < 1) {
+            paramLabel = "N|auto",
+            description = "The number of parallel formatter threads to run, or 'auto' to start with the default and "
+                    + "add threads while they raise the throughput (bounded by the cores and the heap left for "
+                    + "their formatters). Cores are counted according to the CPU quota of the container, if any."
+                    + OptionConstants.DEFAULT_VALUE_SUFFIX_BEGIN
+                    + "#cores * 0.5" + OptionConstants.DEFAULT_VALUE_SUFFIX_END)
+    public void setParallelity(String parallelity) {
+        if ("auto".equalsIgnoreCase(parallelity)) {
+            this.adaptiveParallelity = true;
+            return;
+        }
+        int threads;
+        try {
+            threads = Integer.parseInt(parallelity);
+        } catch (NumberFormatException e) {
+            throw new CommandLine.ParameterException(
+                    spec.commandLine(), "Error: --parallelity must be a number or 'auto', was '" + parallelity + "'");
+        }
+        if (threads < 1) {
             throw new CommandLine.ParameterException(spec.commandLine(), "Error: --parallelity must be > 0");
         }
-        this.parallelity = parallelity;
+        this.adaptiveParallelity = false;
+        this.parallelity = threads;
     }
 
+    @CommandLine.Option(
+            names = {"--executor"},
+            defaultValue = "AUTO",
+            description = "The kind of threads to format the files on."
+                    + OptionConstants.VALID_AND_DEFAULT_VALUES_SUFFIX
+                    + OptionConstants.NEW_LINE
+                    + """
+                    PLATFORM: A pool of --parallelity threads.
+                    VIRTUAL: A virtual thread per file in flight (see --max-in-flight), for steps waiting on external \
+                    processes or servers. Steps running in the JVM are limited to one thread per core.
+                    AUTO: VIRTUAL if all steps wait on external processes or servers (e.g. prettier, clang-format), \
+                    PLATFORM otherwise.""")
+    ExecutorType executorType;
+
+    private int maxInFlight;
+
+    @CommandLine.Option(
+            names = {"--max-in-flight"},
+            paramLabel = "N",
+            description = "The maximum number of files being formatted or waiting for their result to be handled. "
+                    + "Limits the memory used on large code bases." + OptionConstants.DEFAULT_VALUE_SUFFIX_BEGIN
+                    + "#parallelity * 4" + OptionConstants.DEFAULT_VALUE_SUFFIX_END)
+    public void setMaxInFlight(int maxInFlight) {
+        if (maxInFlight < 1) {
+            throw new CommandLine.ParameterException(spec.commandLine(), "Error: --max-in-flight must be > 0");
+        }
+        this.maxInFlight = maxInFlight;
+    }
+
+    @CommandLine.Option(
+            names = {"--up-to-date-index"},
+            defaultValue = "false",
+            description =
+                    "Skip files that were clean in a previous run with the same configuration (including the "
+                            + "content of referenced config files) and did not change since. The index is kept in the "
+                            + "build directory of gradle or maven projects, otherwise in the temporary directory."
+                            + OptionConstants.DEFAULT_VALUE_SUFFIX)
+    boolean upToDateIndex;
+
+    @CommandLine.Option(
+            names = {"--cache-dir"},
+            paramLabel = "DIR",
+            description = "Cache the results of formatting in the given directory, by the configuration of the steps "
+                    + "and the content of the files. Content which was formatted before, by any run using the same "
+                    + "directory (e.g. in another checkout of the same repository), is not formatted again.")
+    Path cacheDir;
+
+    @CommandLine.Option(
+            names = {"--cache-max-size"},
+            paramLabel = "MB",
+            defaultValue = "512",
+            description = "The size of the --cache-dir, beyond it the least recently used entries are evicted."
+                    + OptionConstants.DEFAULT_VALUE_SUFFIX)
+    long cacheMaxSizeMb;
+
+    @CommandLine.Option(
+            names = {"--remote-cache"},
+            paramLabel = "URL",
+            description = "Share the results of formatting through an HTTP build cache (e.g. a gradle build cache "
+                    + "node), reading entries with GET <URL>/<key>. Credentials can be given as user info of the URL. "
+                    + "While the cache is unreachable, files are formatted as if there was none.")
+    URI remoteCache;
+
+    @CommandLine.Option(
+            names = {"--remote-cache-push"},
+            defaultValue = "false",
+            description = "Also store the results of this run in the --remote-cache, using PUT <URL>/<key>."
+                    + OptionConstants.DEFAULT_VALUE_SUFFIX)
+    boolean remoteCachePush;
+
     @CommandLine.ArgGroup(exclusive = true, multiplicity = "0..1")
     LoggingLevelOptions loggingLevelOptions;
 
@@ -259,49 +542,521 @@ public class SpotlessCLI implements SpotlessAction, SpotlessCommand, SpotlessAct
     }
 
     @Override
-    public @NotNull Integer executeSpotlessAction(@NotNull FormatterStepsSupplier formatterSteps) {
+    public @NotNull Integer executeSpotlessAction(
+            @NotNull FormatterStepsSupplier formatterSteps, @NotNull SpotlessActionContext context) {
         Objects.requireNonNull(output);
         Objects.requireNonNull(formatterSteps);
+        Objects.requireNonNull(context);
         LOGGER.info(
                 "Running spotless cli command line: {}",
                 spec.commandLine().getParseResult().originalArgs());
         validateTargets();
+        validateWatch();
+        if (stdinFilepath != null) {
+            return formatStdin(formatterSteps);
+        }
+        if (batchStdin) {
+            return formatBatchStdin(formatterSteps);
+        }
         TargetResolver targetResolver = targetResolver();
+        UpToDateIndex upToDateIndex = upToDateIndex(context);
+        formattedContentCache = formattedContentCache(context);
+        profiler = profile != null ? Profiler.start() : Profiler.disabled();
+        tracer = trace != null ? Tracer.start() : Tracer.disabled();
+        runReport = new RunReport(shard);
+        // reused engines would keep reporting their step timings to the profiler of the run which created them
+        FormattingEngineProvider engineProvider = profiler.isEnabled() || tracer.isEnabled()
+                ? FormattingEngineProvider.NEW_PER_RUN
+                : formattingEngineProvider;
+
+        boolean virtualThreads = useVirtualThreads();
+        // registered before the initial run, so files changed while it runs are formatted once watching starts
+        try (TargetWatcher watcher = watch ? TargetWatcher.start(targetResolver) : null;
+                FormattingEngine engine = engineProvider.obtain(
+                        formattingEngineKey(context, virtualThreads),
+                        () -> createFormattingEngine(
+                                tracer.traced(profiler.profiled(formatterSteps)), virtualThreads))) {
 
-        try (FormatterFactory formatterFactory =
-                        new ThreadLocalFormatterFactory(lineEnding.createPolicy(), encoding, formatterSteps);
-                ExecutorService executor = createExecutorServiceForFormatting()) {
-
-            List<Future<Result>> stepResults = targetResolver
-                    .resolveTargets()
-                    .map(path -> {
-                        return executor.submit(() -> {
-                            Formatter formatter = formatterFactory.createFormatter();
-                            // actual formatting
-                            LOGGER.debug("Formatting file: {}", path);
-                            LintState lintState = LintState.of(formatter, path.toFile());
-                            LOGGER.debug("LintState for file {}: {}", path, lintState);
-                            return new Result(path, lintState, formatter);
-                        });
-                    })
-                    .toList();
-            ResultType resultType = stepResults.stream()
-                    .map(future -> ThrowingEx.get(future::get))
-                    .map(this::handleResult)
-                    .reduce(ResultType.CLEAN, ResultType::combineWith);
+            FormatterFactory formatterFactory = engine.formatterFactory();
+            AtomicFileWriter writer = new AtomicFileWriter(fsync);
+            int batchSize = preferredBatchSize();
+            BoundedCompletionService<List<Result>> completionService = new BoundedCompletionService<>(
+                    engine.executor(), Math.max(maxNumberOfFilesInFlight() / batchSize, 1));
+            Function<Stream<Path>, ResultType> formatTargets = targets -> {
+                // results are handled in completion order, ResultType::combineWith keeps the exit code deterministic
+                ResultType resultType = completionService.reduce(
+                        batches(filterTargets(targets, context.stepRoutes()), batchSize)
+                                .map(batch -> () -> format(batch, formatterFactory, upToDateIndex, writer)),
+                        ResultType.CLEAN,
+                        this::handleResults);
+                writer.syncPending(engine.executor());
+                upToDateIndex.save();
+                return resultType;
+            };
+            ResultType resultType = formatTargets.apply(tracer.traceSlowPulls(
+                    "target discovery",
+                    profiler.time(Profiler.PHASE_TARGET_RESOLUTION, targetResolver.resolveTargets())));
+            int exitCode = spotlessMode.translateResultTypeToExitCode(resultType);
+            if (report != null) {
+                runReport.exitCode(exitCode);
+                ThrowingEx.run(() -> runReport.write(report));
+            }
+            if (watch) {
+                // the engine stays open, so the formatters of its threads are reused for every change
+                return watch(watcher, formatTargets, exitCode);
+            }
+            return exitCode;
+        } finally {
+            formattedContentCache.close();
+            if (gitRatchet != null) {
+                gitRatchet.close();
+            }
+            if (profile != null) {
+                profiler.writeReport(profile);
+            }
+            if (trace != null) {
+                tracer.write(trace);
+            }
+        }
+    }
+
+    /**
+     * Formats the content of stdin as if it was the content of the {@link #stdinFilepath}, writing the formatted
+     * content (or the unchanged content if it cannot be formatted) to stdout.
+     */
+    private int formatStdin(FormatterStepsSupplier formatterSteps) {
+        Path path = baseDir().resolve(stdinFilepath).toAbsolutePath().normalize();
+        byte[] content = ThrowingEx.get(stdin::readAllBytes);
+        runReport = new RunReport(null);
+        try (FormattingEngine engine = createFormattingEngine(formatterSteps, false)) {
+            FormatterFactory formatterFactory = engine.formatterFactory();
+            Formatter formatter = formatterFactory.createFormatter();
+            try {
+                byte[] formatted = content;
+                ResultType resultType = ResultType.CLEAN;
+                if (TargetExclusions.of(baseDir(), excludes, respectGitignore).excludesFile(path)) {
+                    LOGGER.debug("File is excluded, passing it through unchanged: {}", path);
+                } else {
+                    Result result = format(path, content, null, formatter, UpToDateIndex.none());
+                    resultType = handleResult(result);
+                    if (!result.isClean() && !result.hasLints() && !result.didNotConverge()) {
+                        formatted = result.formattedContent();
+                    }
+                }
+                // as is, in the encoding of the content
+                spec.commandLine().getOut().flush();
+                writeStdout(formatted);
+                return spotlessMode.translateResultTypeToExitCode(resultType);
+            } finally {
+                formatterFactory.release(formatter);
+            }
+        }
+    }
+
+    private void writeStdout(byte[] content) {
+        try {
+            stdout.write(content);
+            stdout.flush();
+        } catch (IOException e) {
+            throw ThrowingEx.asRuntime(e);
+        }
+    }
+
+    /**
+     * Formats the contents of the requests read from stdin on the formatting threads, each thread writes the
+     * responses of its requests to stdout right away.
+     */
+    private int formatBatchStdin(FormatterStepsSupplier formatterSteps) {
+        runReport = new RunReport(null);
+        TargetExclusions exclusions = TargetExclusions.of(baseDir(), excludes, respectGitignore);
+        boolean virtualThreads = useVirtualThreads();
+        // not closed, stdin and stdout stay open
+        DataInputStream in = new DataInputStream(new BufferedInputStream(stdin));
+        DataOutputStream out = new DataOutputStream(new BufferedOutputStream(stdout));
+        spec.commandLine().getOut().flush();
+        try (FormattingEngine engine = createFormattingEngine(formatterSteps, virtualThreads)) {
+            FormatterFactory formatterFactory = engine.formatterFactory();
+            BoundedCompletionService<Result> completionService =
+                    new BoundedCompletionService<>(engine.executor(), maxNumberOfFilesInFlight());
+            ResultType resultType = completionService.reduce(
+                    BatchProtocol.requests(in)
+                            .map(request -> () -> formatBatchRequest(request, exclusions, formatterFactory, out)),
+                    ResultType.CLEAN,
+                    (combined, result) -> result == null ? combined : combined.combineWith(handleResult(result)));
             return spotlessMode.translateResultTypeToExitCode(resultType);
         }
     }
 
+    private @Nullable Result formatBatchRequest(
+            BatchProtocol.Request request,
+            TargetExclusions exclusions,
+            FormatterFactory formatterFactory,
+            DataOutputStream out)
+            throws IOException {
+        Path path = baseDir().resolve(request.path()).toAbsolutePath().normalize();
+        if (exclusions.excludesFile(path)) {
+            LOGGER.debug("File is excluded, passing it through unchanged: {}", path);
+            BatchProtocol.writeResponse(
+                    out, new BatchProtocol.Response(request.id(), BatchProtocol.STATUS_SKIPPED, request.content(), ""));
+            return null;
+        }
+        Formatter formatter = formatterFactory.createFormatter();
+        try {
+            Result result;
+            try (Profiler.FileTimer timer = profiler.startFile(path);
+                    Tracer.Span span = tracer.span("format file", Tracer.CATEGORY_FORMAT, path)) {
+                result = format(path, request.content(), null, formatter, UpToDateIndex.none());
+            }
+            BatchProtocol.Response response;
+            if (result.isClean()) {
+                response = new BatchProtocol.Response(request.id(), BatchProtocol.STATUS_CLEAN, request.content(), "");
+            } else if (result.hasLints()) {
+                response = new BatchProtocol.Response(
+                        request.id(),
+                        BatchProtocol.STATUS_LINTS,
+                        request.content(),
+                        result.lintState().asStringOneLine(path.toFile(), formatter));
+            } else if (result.didNotConverge()) {
+                response = new BatchProtocol.Response(
+                        request.id(), BatchProtocol.STATUS_DID_NOT_CONVERGE, request.content(), "");
+            } else {
+                response = new BatchProtocol.Response(
+                        request.id(), BatchProtocol.STATUS_FORMATTED, result.formattedContent(), "");
+            }
+            BatchProtocol.writeResponse(out, response);
+            return result;
+        } finally {
+            formatterFactory.release(formatter);
+        }
+    }
+
+    private Stream<Path> filterTargets(Stream<Path> targets, StepRoutes stepRoutes) {
+        if (stepRoutes.routesAll(stepNames(SpotlessCommandLineStream.of(spec.commandLine().getParseResult())))) {
+            // no step would touch the other files
+            targets = targets.filter(stepRoutes::matchesAnyRoute);
+        }
+        if (shard != null) {
+            Path shardBaseDir = baseDir();
+            targets = targets.filter(target -> shard.contains(shardBaseDir, target));
+        }
+        return targets;
+    }
+
+    /**
+     * Formats the targets which are created or modified until the thread is interrupted.
+     *
+     * @return the exit code of the last run
+     */
+    private int watch(TargetWatcher watcher, Function<Stream<Path>, ResultType> formatTargets, int exitCode) {
+        try {
+            while (true) {
+                output.output("Watching for changes, press Ctrl+C to stop.");
+                Set<Path> changes = watcher.awaitChanges();
+                LOGGER.info("Formatting {} changed files", changes.size());
+                exitCode = spotlessMode.translateResultTypeToExitCode(formatTargets.apply(changes.stream()));
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return exitCode;
+        }
+    }
+
+    private FormattingEngine createFormattingEngine(FormatterStepsSupplier formatterSteps, boolean virtualThreads) {
+        if (virtualThreads) {
+            LOGGER.info("Formatting on virtual threads");
+            return new FormattingEngine(
+                    new PooledFormatterFactory(lineEnding.createPolicy(), encoding, formatterSteps),
+                    Executors.newVirtualThreadPerTaskExecutor());
+        }
+        if (adaptiveParallelity) {
+            AdaptiveThreadPool threadPool = new AdaptiveThreadPool(ContainerResources.availableCpus());
+            return new FormattingEngine(
+                    new ThreadLocalFormatterFactory(
+                            lineEnding.createPolicy(), encoding, threadPool.measured(formatterSteps)),
+                    threadPool);
+        }
+        return new FormattingEngine(
+                new ThreadLocalFormatterFactory(lineEnding.createPolicy(), encoding, formatterSteps),
+                createExecutorServiceForFormatting());
+    }
+
+    private boolean useVirtualThreads() {
+        return switch (executorType) {
+            case PLATFORM -> false;
+            case VIRTUAL -> true;
+            case AUTO -> {
+                List<SpotlessCLIFormatterStep> steps = SpotlessCommandLineStream.of(
+                                spec.commandLine().getParseResult())
+                        .formatterSteps()
+                        .toList();
+                yield !steps.isEmpty() && steps.stream().noneMatch(SpotlessCLIFormatterStep::isCpuBound);
+            }
+        };
+    }
+
+    /**
+     * Everything the formatters of an engine depend on: engines (and with them their warm formatters) are only
+     * reused for runs with the same key.
+     */
+    private String formattingEngineKey(SpotlessActionContext context, boolean virtualThreads) {
+        ChecksumCalculator checksumCalculator = context.executionLayout().checksumCalculator();
+        SpotlessCommandLineStream commandLineStream = context.executionLayout().commandLineStream();
+        return checksumCalculator.calculateChecksum(String.join(
+                "\n",
+                checksumCalculator.calculateFormatterStepsChecksum(commandLineStream),
+                // the steps read their config files when they are created, edited ones need a new engine
+                checksumCalculator.calculateReferencedFilesChecksum(commandLineStream, context::resolvePath),
+                lineEnding.name(),
+                encoding.name(),
+                baseDir().toAbsolutePath().toString(),
+                context.targetFileType().fileExtension(),
+                adaptiveParallelity ? "auto" : String.valueOf(numberOfParallelThreads()),
+                routes == null ? "" : String.join(" ", routes),
+                String.valueOf(virtualThreads)));
+    }
+
+    private List<Result> format(
+            List<Path> batch, FormatterFactory formatterFactory, UpToDateIndex upToDateIndex, AtomicFileWriter writer)
+            throws IOException {
+        List<Result> results = new ArrayList<>(batch.size());
+        Map<Path, byte[]> contents = new LinkedHashMap<>();
+        Map<Path, byte[]> cachedContents = new LinkedHashMap<>();
+        Map<Path, byte[]> cachedFormattedContents = new LinkedHashMap<>();
+        Map<Path, byte[]> readContents = new LinkedHashMap<>();
+        for (Path path : batch) {
+            byte[] content;
+            try (Tracer.Span span = tracer.span("read", Tracer.CATEGORY_IO, path)) {
+                content = profiler.time(Profiler.PHASE_READING_FILES, () -> Files.readAllBytes(path));
+            }
+            if (upToDateIndex.isUpToDate(path, content)) {
+                LOGGER.debug("File is up-to-date, skipping: {}", path);
+                results.add(Result.upToDate(path));
+            } else {
+                readContents.put(path, content);
+            }
+        }
+        // looked up for the whole batch at once, so the requests to a remote cache are sent together
+        Map<Path, String> cacheKeys = new LinkedHashMap<>();
+        Map<String, FormattedContentCache.Entry> cachedEntries = Map.of();
+        if (formattedContentCache.isEnabled() && !readContents.isEmpty()) {
+            readContents.forEach((path, content) -> cacheKeys.put(path, formattedContentCache.key(path, content)));
+            try (Tracer.Span span = tracer.span("cache lookup", Tracer.CATEGORY_IO)) {
+                cachedEntries = formattedContentCache.getAll(cacheKeys.values());
+            }
+        }
+        for (Map.Entry<Path, byte[]> read : readContents.entrySet()) {
+            Path path = read.getKey();
+            byte[] content = read.getValue();
+            String cacheKey = cacheKeys.get(path);
+            FormattedContentCache.Entry cached = cacheKey == null ? null : cachedEntries.get(cacheKey);
+            if (cached == null) {
+                contents.put(path, content);
+            } else if (cached.isClean()) {
+                LOGGER.debug("File is cached as clean, skipping: {}", path);
+                upToDateIndex.markClean(path, content);
+                results.add(Result.upToDate(path));
+            } else {
+                LOGGER.debug("File is cached as dirty, not formatting it again: {}", path);
+                upToDateIndex.invalidate(path);
+                cachedContents.put(path, content);
+                cachedFormattedContents.put(path, cached.formattedContent());
+            }
+        }
+        if (contents.isEmpty() && cachedContents.isEmpty()) {
+            return results;
+        }
+        // also needed for the encoding of the cached contents
+        Formatter formatter = formatterFactory.createFormatter();
+        try {
+            cachedContents.forEach((path, content) -> {
+                Result result = Result.cached(path, content, formatter, cachedFormattedContents.get(path));
+                spotlessMode.completeInWorker(result, writer, tracer);
+                results.add(result);
+            });
+            Formatter batchFormatter = contents.size() > 1 ? prepareBatch(formatter, contents) : formatter;
+            contents.forEach((path, content) -> {
+                try (Profiler.FileTimer timer = profiler.startFile(path);
+                        Tracer.Span span = tracer.span("format file", Tracer.CATEGORY_FORMAT, path)) {
+                    Result result = format(path, content, cacheKeys.get(path), batchFormatter, upToDateIndex);
+                    spotlessMode.completeInWorker(result, writer, tracer);
+                    results.add(result);
+                }
+            });
+        } finally {
+            formatterFactory.release(formatter);
+        }
+        return results;
+    }
+
+    /**
+     * @return a formatter for the files of the batch, which uses the batch steps prepared for them (not to be closed)
+     */
+    private static Formatter prepareBatch(Formatter formatter, Map<Path, byte[]> contents) {
+        if (formatter.getSteps().stream().noneMatch(BatchFormatterStep.class::isInstance)) {
+            return formatter;
+        }
+        // same decoding as LintState, so the steps get prepared for exactly the content they will see
+        Map<File, String> rawUnixByFile = new LinkedHashMap<>();
+        contents.forEach((path, content) -> rawUnixByFile.put(
+                path.toFile(), LineEnding.toUnix(new String(content, formatter.getEncoding()))));
+        List<FormatterStep> batchSteps = formatter.getSteps().stream()
+                .map(step ->
+                        step instanceof BatchFormatterStep batchStep ? batchStep.prepareBatch(rawUnixByFile) : step)
+                .toList();
+        return Formatter.builder()
+                .lineEndingsPolicy(formatter.getLineEndingsPolicy())
+                .encoding(formatter.getEncoding())
+                .steps(batchSteps)
+                .build();
+    }
+
+    private Result format(
+            Path path, byte[] content, @Nullable String cacheKey, Formatter formatter, UpToDateIndex upToDateIndex) {
+        // actual formatting
+        LOGGER.debug("Formatting file: {}", path);
+        FileFormattedEvent event = new FileFormattedEvent();
+        event.begin();
+        LintState lintState;
+        try (Tracer.Span span = tracer.span("LintState.of", Tracer.CATEGORY_FORMAT, path)) {
+            lintState = LintState.of(formatter, path.toFile(), content);
+        }
+        event.end();
+        if (event.shouldCommit()) {
+            event.path = path.toString();
+            event.size = content.length;
+            event.steps = formatter.getSteps().size();
+            event.outcome = outcome(lintState);
+            event.commit();
+        }
+        LOGGER.debug("LintState for file {}: {}", path, lintState);
+        if (lintState.isClean()) {
+            upToDateIndex.markClean(path, content);
+        } else {
+            upToDateIndex.invalidate(path);
+        }
+        Result result = Result.formatted(path, content, lintState, formatter);
+        if (cacheKey != null && !lintState.isHasLints()) {
+            if (lintState.isClean()) {
+                formattedContentCache.putClean(cacheKey);
+            } else if (!lintState.getDirtyState().didNotConverge()) {
+                formattedContentCache.putFormatted(cacheKey, result.formattedContent());
+            }
+        }
+        return result;
+    }
+
+    private static String outcome(LintState lintState) {
+        if (lintState.isClean()) {
+            return FileFormattedEvent.OUTCOME_CLEAN;
+        }
+        return lintState.getDirtyState().didNotConverge()
+                ? FileFormattedEvent.OUTCOME_DID_NOT_CONVERGE
+                : FileFormattedEvent.OUTCOME_DIRTY;
+    }
+
+    private int preferredBatchSize() {
+        return SpotlessCommandLineStream.of(spec.commandLine().getParseResult())
+                .formatterSteps()
+                .mapToInt(SpotlessCLIFormatterStep::preferredBatchSize)
+                .max()
+                .orElse(1);
+    }
+
+    private static Stream<List<Path>> batches(Stream<Path> targets, int batchSize) {
+        if (batchSize == 1) {
+            return targets.map(List::of);
+        }
+        Iterator<Path> iterator = targets.iterator();
+        Iterator<List<Path>> batchIterator = new Iterator<>() {
+            @Override
+            public boolean hasNext() {
+                return iterator.hasNext();
+            }
+
+            @Override
+            public List<Path> next() {
+                List<Path> batch = new ArrayList<>(batchSize);
+                while (batch.size() < batchSize && iterator.hasNext()) {
+                    batch.add(iterator.next());
+                }
+                return batch;
+            }
+        };
+        return StreamSupport.stream(Spliterators.spliteratorUnknownSize(batchIterator, Spliterator.ORDERED), false);
+    }
+
+    private UpToDateIndex upToDateIndex(SpotlessActionContext context) {
+        if (!upToDateIndex) {
+            return UpToDateIndex.none();
+        }
+        return UpToDateIndex.load(context.executionLayout().upToDateIndexFile());
+    }
+
+    private FormattedContentCache formattedContentCache(SpotlessActionContext context) {
+        if (cacheDir == null && remoteCache == null) {
+            return FormattedContentCache.none();
+        }
+        if (cacheMaxSizeMb < 1) {
+            throw new CommandLine.ParameterException(spec.commandLine(), "Error: --cache-max-size must be > 0");
+        }
+        RemoteFormattedContentCache remote;
+        try {
+            remote = remoteCache == null
+                    ? RemoteFormattedContentCache.none()
+                    : RemoteFormattedContentCache.create(remoteCache, remoteCachePush);
+        } catch (IllegalArgumentException e) {
+            throw new CommandLine.ParameterException(spec.commandLine(), "Error: --remote-cache: " + e.getMessage());
+        }
+        // everything the formatted content depends on besides the file itself, see FormattedContentCache#key
+        ChecksumCalculator checksumCalculator = context.executionLayout().checksumCalculator();
+        SpotlessCommandLineStream commandLineStream = context.executionLayout().commandLineStream();
+        String configChecksum = checksumCalculator.calculateChecksum(String.join(
+                "\n",
+                String.join("\n", ThrowingEx.get(() -> new SpotlessCLIVersionProvider().getVersion())),
+                checksumCalculator.calculateFormatterStepsChecksum(commandLineStream),
+                checksumCalculator.calculateReferencedFilesChecksum(commandLineStream, context::resolvePath),
+                resolvedLineEnding(),
+                encoding.name(),
+                context.targetFileType().fileExtension(),
+                routes == null ? "" : String.join(" ", routes)));
+        return FormattedContentCache.open(
+                cacheDir, baseDir(), configChecksum, context.stepRoutes(), cacheMaxSizeMb * 1024 * 1024, remote);
+    }
+
+    /**
+     * @return the line separator written to the files where it is fixed (PLATFORM_NATIVE differs between machines
+     * sharing a remote cache), the name of the line ending where it depends on the file
+     */
+    private String resolvedLineEnding() {
+        return switch (lineEnding) {
+            case GIT_ATTRIBUTES, GIT_ATTRIBUTES_FAST_ALLSAME, PRESERVE -> lineEnding.name();
+            default -> lineEnding.str();
+        };
+    }
+
     private @NotNull ExecutorService createExecutorServiceForFormatting() {
         return Executors.newFixedThreadPool(numberOfParallelThreads());
     }
 
+    /**
+     * @return the number of threads of a fixed pool, respectively the maximum one of an adaptive pool
+     */
     private int numberOfParallelThreads() {
-        return parallelity == 0 ? Math.max(Runtime.getRuntime().availableProcessors() / 2, 1) : parallelity;
+        if (adaptiveParallelity) {
+            return AdaptiveThreadPool.maxSize(ContainerResources.availableCpus());
+        }
+        return parallelity == 0 ? AdaptiveThreadPool.initialSize(ContainerResources.availableCpus()) : parallelity;
+    }
+
+    private int maxNumberOfFilesInFlight() {
+        return maxInFlight == 0 ? numberOfParallelThreads() * 4 : maxInFlight;
     }
 
     private void validateTargets() {
+        if (stdinFilepath != null || batchStdin) {
+            validateStdin();
+            return;
+        }
         if (targets == null || targets.isEmpty()) { // cannot use `required = true` because of the subcommands
             throw new CommandLine.ParameterException(
                     spec.commandLine(),
@@ -309,50 +1064,179 @@ public class SpotlessCLI implements SpotlessAction, SpotlessCommand, SpotlessAct
         }
     }
 
+    private void validateStdin() {
+        String option = stdinFilepath != null ? "--stdin-filepath" : "--batch-stdin";
+        if (stdinFilepath != null && batchStdin) {
+            throw new CommandLine.ParameterException(
+                    spec.commandLine(), "Error: --stdin-filepath cannot be combined with --batch-stdin");
+        }
+        if (targets != null && !targets.isEmpty()) {
+            throw new CommandLine.ParameterException(
+                    spec.commandLine(), "Error: " + option + " cannot be combined with --target");
+        }
+        if (watch) {
+            throw new CommandLine.ParameterException(
+                    spec.commandLine(), "Error: " + option + " cannot be combined with --watch");
+        }
+        if (formattingEngineProvider != FormattingEngineProvider.NEW_PER_RUN) {
+            // the stdin of the daemon is not the one of the client
+            throw new CommandLine.ParameterException(
+                    spec.commandLine(), "Error: " + option + " is not supported when running in the daemon");
+        }
+    }
+
+    private void validateWatch() {
+        if (watch && formattingEngineProvider != FormattingEngineProvider.NEW_PER_RUN) {
+            // a daemon must not be blocked by a single client
+            throw new CommandLine.ParameterException(
+                    spec.commandLine(), "Error: --watch is not supported when running in the daemon");
+        }
+    }
+
+    private ResultType handleResults(ResultType combined, List<Result> results) {
+        for (Result result : results) {
+            try (Tracer.Span span = tracer.span("handle result", Tracer.CATEGORY_RESULT, result.target())) {
+                combined = combined.combineWith(handleResult(result));
+            }
+        }
+        return combined;
+    }
+
     private ResultType handleResult(Result result) {
-        if (result.lintState().isClean()) {
+        if (result.isUpToDate()) {
+            runReport.recordUpToDate();
+            return ResultType.CLEAN;
+        }
+        if (result.isClean()) {
             LOGGER.debug("File is clean: {}", result.target().toFile());
+            runReport.recordClean();
             return ResultType.CLEAN;
         }
-        if (result.lintState().getDirtyState().didNotConverge()) {
+        if (result.didNotConverge()) {
             LOGGER.warn("File did not converge: {}", result.target().toFile());
+            runReport.recordDidNotConverge(FilePathUtil.relativeUnixPath(baseDir(), result.target()));
             return ResultType.DID_NOT_CONVERGE;
         }
-        return this.spotlessMode.handleResult(output, result);
+        runReport.recordDirty(FilePathUtil.relativeUnixPath(baseDir(), result.target()));
+        return this.spotlessMode.handleResult(output, result, tracer);
     }
 
     private TargetResolver targetResolver() {
-        return new TargetResolver(baseDir(), targets);
+        if (targetResolver == null) {
+            TargetExclusions exclusions = TargetExclusions.of(baseDir(), excludes, respectGitignore);
+            if (ratchetFrom != null) {
+                exclusions = exclusions.unchangedSince(gitRatchet());
+            }
+            targetResolver = new TargetResolver(baseDir(), targets, exclusions);
+        }
+        return targetResolver;
+    }
+
+    private GitRatchet gitRatchet() {
+        try {
+            gitRatchet = GitRatchet.from(baseDir(), ratchetFrom);
+            return gitRatchet;
+        } catch (IllegalArgumentException e) {
+            throw new CommandLine.ParameterException(spec.commandLine(), "Error: --ratchet-from: " + e.getMessage());
+        }
+    }
+
+    private StepRoutes stepRoutes(SpotlessCommandLineStream commandLineStream) {
+        if (routes == null || routes.isEmpty()) {
+            return StepRoutes.none();
+        }
+        try {
+            StepRoutes stepRoutes = StepRoutes.parse(baseDir(), routes);
+            stepRoutes.validateStepNames(stepNames(commandLineStream));
+            return stepRoutes;
+        } catch (IllegalArgumentException e) {
+            throw new CommandLine.ParameterException(spec.commandLine(), "Error: --route: " + e.getMessage());
+        }
+    }
+
+    private static Set<String> stepNames(SpotlessCommandLineStream commandLineStream) {
+        return commandLineStream
+                .formatterSteps()
+                .map(StepRoutes::stepName)
+                .collect(Collectors.toCollection(LinkedHashSet::new));
     }
 
     private Path baseDir() {
-        return baseDir == null ? Path.of(System.getProperty("user.dir")) : baseDir;
+        if (baseDir != null) {
+            return baseDir;
+        }
+        return workingDirectory == null ? Path.of(System.getProperty("user.dir")) : workingDirectory;
     }
 
     @Override
     public SpotlessActionContext spotlessActionContext(SpotlessCommandLineStream commandLineStream) {
         validateTargets();
-        TargetResolver targetResolver = targetResolver();
-        TargetFileTypeInferer targetFileTypeInferer = new TargetFileTypeInferer(targetResolver);
         return SpotlessActionContext.builder()
-                .targetFileType(targetFileTypeInferer.inferTargetFileType())
+                .targetFileType(targetFileType())
                 .fileResolver(new FileResolver(baseDir()))
                 .commandLineStream(commandLineStream)
+                .stepRoutes(stepRoutes(commandLineStream))
                 .build();
     }
 
+    private TargetFileType targetFileType() {
+        if (stdinFilepath != null) {
+            return TargetFileTypeInferer.inferTargetFileType(stdinFilepath);
+        }
+        if (batchStdin) {
+            // the paths are only known once the requests are read
+            return TargetFileType.unknown();
+        }
+        return new TargetFileTypeInferer(targetResolver()).inferTargetFileType();
+    }
+
     public static void main(String... args) {
-        int exitCode = createCommandLine(createInstance()).execute(args);
+        String[] remainingArgs = args.length == 0 ? args : Arrays.copyOfRange(args, 1, args.length);
+        int exitCode =
+                switch (args.length == 0 ? "" : args[0]) {
+                    case SpotlessDaemon.COMMAND_NAME -> SpotlessDaemon.run(remainingArgs);
+                    case DaemonClient.COMMAND_NAME -> DaemonClient.run(remainingArgs);
+                    case MergeReports.COMMAND_NAME -> MergeReports.run(remainingArgs);
+                    default -> createCommandLine(createInstance()).execute(args);
+                };
         System.exit(exitCode);
     }
 
     static SpotlessCLI createInstance() {
-        return new SpotlessCLI();
+        return createInstance(FormattingEngineProvider.NEW_PER_RUN);
+    }
+
+    public static SpotlessCLI createInstance(@NotNull FormattingEngineProvider formattingEngineProvider) {
+        return new SpotlessCLI(formattingEngineProvider, null, System.in, System.out);
+    }
+
+    /**
+     * Creates an instance which reads stdin and writes stdout (for {@code --stdin-filepath} and
+     * {@code --batch-stdin}) through the given streams, e.g. when running in the same thread as a test.
+     */
+    static SpotlessCLI createInstance(@NotNull InputStream stdin, @NotNull OutputStream stdout) {
+        return new SpotlessCLI(FormattingEngineProvider.NEW_PER_RUN, null, stdin, stdout);
     }
 
-    static CommandLine createCommandLine(SpotlessCLI spotlessCLI) {
-        return new CommandLine(spotlessCLI)
+    /**
+     * Creates an instance running on behalf of a process with another working directory (e.g. a client of the
+     * daemon): the targets and all relative paths given on the command line are resolved against it.
+     */
+    public static SpotlessCLI createInstance(
+            @NotNull FormattingEngineProvider formattingEngineProvider, @NotNull Path workingDirectory) {
+        return new SpotlessCLI(formattingEngineProvider, workingDirectory.toAbsolutePath(), System.in, System.out);
+    }
+
+    public static CommandLine createCommandLine(SpotlessCLI spotlessCLI) {
+        CommandLine commandLine = new CommandLine(spotlessCLI)
                 .setExecutionStrategy(new SpotlessExecutionStrategy())
                 .setCaseInsensitiveEnumValuesAllowed(true);
+        if (spotlessCLI.workingDirectory != null) {
+            // registered after the subcommands were added, so the options of the steps are resolved as well
+            Path workingDirectory = spotlessCLI.workingDirectory;
+            commandLine.registerConverter(Path.class, value -> workingDirectory.resolve(value));
+            commandLine.registerConverter(File.class, value -> workingDirectory.resolve(value).toFile());
+        }
+        return commandLine;
     }
 }
@@ -15,25 +15,23 @@
  */
 package com.diffplug.spotless.cli;
 
-import java.io.ByteArrayOutputStream;
-import java.io.IOException;
-import java.nio.charset.StandardCharsets;
-import java.nio.file.Files;
+import java.nio.charset.Charset;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
-import com.diffplug.spotless.ThrowingEx;
+import com.diffplug.spotless.cli.core.AtomicFileWriter;
 import com.diffplug.spotless.cli.core.Diff;
 import com.diffplug.spotless.cli.logging.output.Output;
+import com.diffplug.spotless.cli.profile.Tracer;
 
 enum SpotlessMode {
     CHECK {
         private static final Logger LOGGER = LoggerFactory.getLogger(SpotlessMode.class);
 
         @Override
-        ResultType handleResult(Output output, Result result) {
-            if (result.lintState().isHasLints()) {
+        ResultType handleResult(Output output, Result result, Tracer tracer) {
+            if (result.hasLints()) {
                 output.eitherDefault(() -> new Output.MessageWithArgs(
                                 "File has lints: {} -- {}",
                                 result.target().toFile().getPath(),
@@ -47,35 +45,38 @@ enum SpotlessMode {
                 return ResultType.DIRTY;
             }
 
-            try (ByteArrayOutputStream cleanedOutputStream = new ByteArrayOutputStream()) {
-                result.lintState().getDirtyState().writeCanonicalTo(cleanedOutputStream);
-                String cleaned = cleanedOutputStream.toString(StandardCharsets.UTF_8);
-                String original = Files.readString(result.target(), StandardCharsets.UTF_8);
+            // decode both sides the same way the formatter did, instead of reading the file again
+            Charset encoding = result.formatter().getEncoding();
+            String cleaned = new String(result.formattedContent(), encoding);
+            String original = new String(result.originalContent(), encoding);
 
-                final int diffs = Diff.countLineDifferences(original, cleaned);
-                output.eitherDefault(() -> {
-                            if (diffs > 0) {
-                                return new Output.MessageWithArgs(
-                                        "File needs reformatting: {} -- {} differences", result.target(), diffs);
-                            }
-                            return new Output.MessageWithArgs("File is clean: {}", result.target());
-                        })
-                        .orDetail(() -> {
-                            String diffString = Diff.createDiffString(original, cleaned, result.target());
-                            String delim = "*".repeat(80);
-                            if (diffs > 0) {
-                                return new Output.MessageWithArgs(
-                                        "File needs reformatting: {}\n{}\n{}\n{}",
-                                        result.target(),
-                                        delim,
-                                        diffString,
-                                        delim);
-                            }
-                            return new Output.MessageWithArgs("File is clean: {}", result.target());
-                        });
-            } catch (IOException e) {
-                throw ThrowingEx.asRuntime(e);
+            final int diffs;
+            try (Tracer.Span span = tracer.span("diff", Tracer.CATEGORY_RESULT, result.target())) {
+                diffs = Diff.countLineDifferences(original, cleaned);
             }
+            output.eitherDefault(() -> {
+                        if (diffs > 0) {
+                            return new Output.MessageWithArgs(
+                                    "File needs reformatting: {} -- {} differences", result.target(), diffs);
+                        }
+                        return new Output.MessageWithArgs("File is clean: {}", result.target());
+                    })
+                    .orDetail(() -> {
+                        String diffString;
+                        try (Tracer.Span span = tracer.span("diff", Tracer.CATEGORY_RESULT, result.target())) {
+                            diffString = Diff.createDiffString(original, cleaned, result.target());
+                        }
+                        String delim = "*".repeat(80);
+                        if (diffs > 0) {
+                            return new Output.MessageWithArgs(
+                                    "File needs reformatting: {}\n{}\n{}\n{}",
+                                    result.target(),
+                                    delim,
+                                    diffString,
+                                    delim);
+                        }
+                        return new Output.MessageWithArgs("File is clean: {}", result.target());
+                    });
             return ResultType.DIRTY;
         }
 
@@ -92,8 +93,8 @@ enum SpotlessMode {
         private static final Logger LOGGER = LoggerFactory.getLogger(SpotlessMode.class);
 
         @Override
-        ResultType handleResult(Output output, Result result) {
-            if (result.lintState().isHasLints()) {
+        ResultType handleResult(Output output, Result result, Tracer tracer) {
+            if (result.hasLints()) {
                 // something went wrong, we should not apply the changes
                 output.eitherDefault(() -> new Output.MessageWithArgs(
                                 "File has lints: {} -- {}",
@@ -111,12 +112,20 @@ enum SpotlessMode {
                         "Apply-Result - File is clean: {}",
                         result.target().toFile().getPath());
             }
-            ThrowingEx.run(() -> result.lintState()
-                    .getDirtyState()
-                    .writeCanonicalTo(result.target().toFile()));
+            // the formatted content was already written by completeInWorker
             return ResultType.CLEAN;
         }
 
+        @Override
+        void completeInWorker(Result result, AtomicFileWriter writer, Tracer tracer) {
+            if (result.isUpToDate() || result.isClean() || result.hasLints() || result.didNotConverge()) {
+                return;
+            }
+            try (Tracer.Span span = tracer.span("write", Tracer.CATEGORY_IO, result.target())) {
+                writer.writeIfChanged(result.target(), result.originalContent(), result.formattedContent());
+            }
+        }
+
         @Override
         Integer translateResultTypeToExitCode(ResultType resultType) {
             return switch (resultType) {
@@ -127,7 +136,15 @@ enum SpotlessMode {
         }
     };
 
-    abstract ResultType handleResult(Output output, Result result);
+    abstract ResultType handleResult(Output output, Result result, Tracer tracer);
+
+    /**
+     * Called in the formatting thread right after a file was formatted, before its result is handed to
+     * {@link #handleResult(Output, Result, Tracer)}. Doing the I/O here lets it scale with the number of threads.
+     */
+    void completeInWorker(Result result, AtomicFileWriter writer, Tracer tracer) {
+        // nothing to do by default
+    }
 
     abstract Integer translateResultTypeToExitCode(ResultType resultType);
 }
@@ -0,0 +1,159 @@
+/*
+ * Copyright 2026 DiffPlug
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.diffplug.spotless.cli.batch;
+
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
+
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import com.diffplug.spotless.ThrowingEx;
+
+/**
+ * The wire format of {@code --batch-stdin}: a stream of requests on stdin, answered by a stream of responses on
+ * stdout. All numbers are big-endian 32-bit integers, strings are UTF-8 and prefixed by their length in bytes.
+ * <p>
+ * A request consists of an id chosen by the caller, the path of the content (used for routing and configuration
+ * lookup, the file does not need to exist) and the length-prefixed content in the configured encoding. The requests
+ * end with the end of stdin.
+ * <p>
+ * A response consists of the id of its request, a status byte, the length-prefixed content to use (the formatted
+ * content if the status is {@link #STATUS_FORMATTED}, the unchanged content otherwise) and a message (e.g. the lints,
+ * empty if there is none). Responses are written in completion order, so the ids are needed to match them.
+ */
+public final class BatchProtocol {
+
+    public static final byte STATUS_CLEAN = 'C';
+    public static final byte STATUS_FORMATTED = 'F';
+    public static final byte STATUS_LINTS = 'L';
+    public static final byte STATUS_DID_NOT_CONVERGE = 'N';
+    public static final byte STATUS_SKIPPED = 'S';
+
+    private BatchProtocol() {
+        // no instances
+    }
+
+    public record Request(int id, @NotNull String path, byte @NotNull [] content) {}
+
+    public record Response(int id, byte status, byte @NotNull [] content, @NotNull String message) {}
+
+    /**
+     * @return the request read from the stream or {@code null} if the stream ended before the next request
+     */
+    public static @Nullable Request readRequest(@NotNull DataInputStream in) throws IOException {
+        Integer id = readIdOrEnd(in);
+        if (id == null) {
+            return null;
+        }
+        String path = new String(readBytes(in), StandardCharsets.UTF_8);
+        return new Request(id, path, readBytes(in));
+    }
+
+    /**
+     * @return the requests of the stream, read lazily as they are consumed
+     */
+    public static Stream<Request> requests(@NotNull DataInputStream in) {
+        Iterator<Request> iterator = new Iterator<>() {
+            private @Nullable Request next;
+
+            private boolean ended;
+
+            @Override
+            public boolean hasNext() {
+                if (next == null && !ended) {
+                    next = ThrowingEx.get(() -> readRequest(in));
+                    ended = next == null;
+                }
+                return next != null;
+            }
+
+            @Override
+            public Request next() {
+                if (!hasNext()) {
+                    throw new NoSuchElementException();
+                }
+                Request request = next;
+                next = null;
+                return request;
+            }
+        };
+        return StreamSupport.stream(Spliterators.spliteratorUnknownSize(iterator, Spliterator.ORDERED), false);
+    }
+
+    public static void writeRequest(@NotNull DataOutputStream out, @NotNull Request request) throws IOException {
+        out.writeInt(request.id());
+        writeBytes(out, request.path().getBytes(StandardCharsets.UTF_8));
+        writeBytes(out, request.content());
+    }
+
+    public static @Nullable Response readResponse(@NotNull DataInputStream in) throws IOException {
+        Integer id = readIdOrEnd(in);
+        if (id == null) {
+            return null;
+        }
+        byte status = in.readByte();
+        byte[] content = readBytes(in);
+        return new Response(id, status, content, new String(readBytes(in), StandardCharsets.UTF_8));
+    }
+
+    /**
+     * Writes the response and flushes the stream, responses can be written concurrently.
+     */
+    public static void writeResponse(@NotNull DataOutputStream out, @NotNull Response response) throws IOException {
+        synchronized (out) {
+            out.writeInt(response.id());
+            out.writeByte(response.status());
+            writeBytes(out, response.content());
+            writeBytes(out, response.message().getBytes(StandardCharsets.UTF_8));
+            out.flush();
+        }
+    }
+
+    /**
+     * @return the id starting the next frame or {@code null} if the stream ended before it (but not within it)
+     */
+    private static @Nullable Integer readIdOrEnd(DataInputStream in) throws IOException {
+        int first = in.read();
+        if (first == -1) {
+            return null;
+        }
+        return (first << 24) | (in.readUnsignedByte() << 16) | (in.readUnsignedByte() << 8) | in.readUnsignedByte();
+    }
+
+    private static byte[] readBytes(DataInputStream in) throws IOException {
+        int length = in.readInt();
+        if (length < 0) {
+            throw new IOException("Invalid length " + length + " in batch request");
+        }
+        byte[] bytes = new byte[length];
+        in.readFully(bytes);
+        return bytes;
+    }
+
+    private static void writeBytes(DataOutputStream out, byte[] bytes) throws IOException {
+        out.writeInt(bytes.length);
+        out.write(bytes);
+    }
+}
@@ -0,0 +1,249 @@
+/*
+ * Copyright 2026 DiffPlug
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.diffplug.spotless.cli.core;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.FileSystemException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.nio.file.attribute.AclFileAttributeView;
+import java.nio.file.attribute.PosixFileAttributeView;
+import java.nio.file.attribute.PosixFileAttributes;
+import java.nio.file.attribute.UserDefinedFileAttributeView;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+
+import org.jetbrains.annotations.NotNull;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.diffplug.spotless.ThrowingEx;
+
+/**
+ * Replaces the content of files so that they are never left half-written: the new content is written to a
+ * temporary file next to the target, which is then atomically renamed onto the target.
+ * <p>
+ * The temporary file gets the permissions, owner, group, ACL and extended attributes of the target. Symlinks are
+ * followed, so the file they point to is replaced. Files which cannot be replaced without losing something (hard
+ * linked files, or files whose owner or attributes cannot be transferred) are overwritten in place instead.
+ * <p>
+ * Safe to be used from many threads at once. Depending on the {@link Fsync} policy the written files are flushed to
+ * the disk before the rename, at the end of the run ({@link #syncPending(ExecutorService)}) or not at all.
+ */
+public final class AtomicFileWriter {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(AtomicFileWriter.class);
+
+    public enum Fsync {
+        /** leave flushing to the operating system */
+        NONE,
+        /** flush every file (and its directory) right when it is written */
+        ALWAYS,
+        /** flush all written files (and their directories) at once at the end of the run */
+        BATCH
+    }
+
+    private final Fsync fsync;
+
+    private final Set<Path> pendingSync = ConcurrentHashMap.newKeySet();
+
+    public AtomicFileWriter(@NotNull Fsync fsync) {
+        this.fsync = Objects.requireNonNull(fsync);
+    }
+
+    /**
+     * Writes the content to the file, unless the file already has exactly this content.
+     *
+     * @param currentContent the content of the file as it is known to the caller
+     * @return {@code true} if the file was written
+     */
+    public boolean writeIfChanged(@NotNull Path file, byte[] currentContent, byte[] newContent) {
+        if (Arrays.equals(currentContent, newContent)) {
+            LOGGER.debug("Content did not change, not writing {}", file);
+            return false;
+        }
+        ThrowingEx.run(() -> write(file, newContent));
+        return true;
+    }
+
+    private void write(Path file, byte[] content) throws IOException {
+        Path target = file.toRealPath(); // replace the content of symlinked files, not the links
+        Path dir = target.getParent();
+        if (linkCount(target) > 1) {
+            LOGGER.debug("File has hard links, writing it in place: {}", target);
+            writeInPlace(target, content);
+            return;
+        }
+        Path tempFile = Files.createTempFile(dir, "." + target.getFileName() + ".", ".spotless-tmp");
+        try {
+            if (!copyAttributes(target, tempFile)) {
+                Files.delete(tempFile);
+                writeInPlace(target, content);
+                return;
+            }
+            try (FileChannel channel = FileChannel.open(tempFile, StandardOpenOption.WRITE)) {
+                writeFully(channel, content);
+            }
+            move(tempFile, target);
+        } catch (IOException | RuntimeException e) {
+            Files.deleteIfExists(tempFile);
+            throw e;
+        }
+        switch (fsync) {
+            case ALWAYS -> syncDirectory(dir);
+            case BATCH -> pendingSync.add(target);
+            case NONE -> {}
+        }
+    }
+
+    /** not atomic, but keeps the identity (inode) of the file */
+    private void writeInPlace(Path target, byte[] content) throws IOException {
+        try (FileChannel channel =
+                FileChannel.open(target, StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+            writeFully(channel, content);
+        }
+        if (fsync == Fsync.BATCH) {
+            pendingSync.add(target);
+        }
+    }
+
+    private void writeFully(FileChannel channel, byte[] content) throws IOException {
+        ByteBuffer buffer = ByteBuffer.wrap(content);
+        while (buffer.hasRemaining()) {
+            channel.write(buffer);
+        }
+        if (fsync == Fsync.ALWAYS) {
+            channel.force(true);
+        }
+    }
+
+    /**
+     * Flushes the files written so far (in parallel, using the given executor) in case of {@link Fsync#BATCH}.
+     */
+    public void syncPending(@NotNull ExecutorService executor) {
+        if (pendingSync.isEmpty()) {
+            return;
+        }
+        Set<Path> dirs = new LinkedHashSet<>();
+        List<Callable<Void>> syncs = new ArrayList<>();
+        for (Path file : pendingSync) {
+            dirs.add(file.getParent());
+            syncs.add(() -> {
+                try (FileChannel channel = FileChannel.open(file, StandardOpenOption.WRITE)) {
+                    channel.force(true);
+                }
+                return null;
+            });
+        }
+        ThrowingEx.run(() -> {
+            for (Future<Void> sync : executor.invokeAll(syncs)) {
+                sync.get();
+            }
+        });
+        // directories last, so the renames are persisted after the contents
+        dirs.forEach(AtomicFileWriter::syncDirectory);
+        LOGGER.debug("Synced {} written files in {} directories", pendingSync.size(), dirs.size());
+        pendingSync.clear();
+    }
+
+    private static int linkCount(Path file) throws IOException {
+        try {
+            return (Integer) Files.getAttribute(file, "unix:nlink");
+        } catch (UnsupportedOperationException | IllegalArgumentException e) {
+            return 1; // no unix file system, where hard links are rare
+        }
+    }
+
+    /**
+     * @return {@code false} if not all attributes could be copied, e.g. because the owner of the target is another
+     * user
+     */
+    private static boolean copyAttributes(Path from, Path to) throws IOException {
+        try {
+            PosixFileAttributeView fromPosix = Files.getFileAttributeView(from, PosixFileAttributeView.class);
+            PosixFileAttributeView toPosix = Files.getFileAttributeView(to, PosixFileAttributeView.class);
+            if (fromPosix != null && toPosix != null) {
+                PosixFileAttributes fromAttributes = fromPosix.readAttributes();
+                PosixFileAttributes toAttributes = toPosix.readAttributes();
+                if (!fromAttributes.owner().equals(toAttributes.owner())) {
+                    toPosix.setOwner(fromAttributes.owner());
+                }
+                if (!fromAttributes.group().equals(toAttributes.group())) {
+                    toPosix.setGroup(fromAttributes.group());
+                }
+                toPosix.setPermissions(fromAttributes.permissions());
+            }
+            AclFileAttributeView fromAcl = Files.getFileAttributeView(from, AclFileAttributeView.class);
+            AclFileAttributeView toAcl = Files.getFileAttributeView(to, AclFileAttributeView.class);
+            if (fromAcl != null && toAcl != null) {
+                toAcl.setAcl(fromAcl.getAcl());
+            }
+            UserDefinedFileAttributeView fromUser =
+                    Files.getFileAttributeView(from, UserDefinedFileAttributeView.class);
+            UserDefinedFileAttributeView toUser = Files.getFileAttributeView(to, UserDefinedFileAttributeView.class);
+            for (String name : userAttributeNames(fromUser)) {
+                ByteBuffer value = ByteBuffer.allocate(fromUser.size(name));
+                fromUser.read(name, value);
+                toUser.write(name, value.flip());
+            }
+            return true;
+        } catch (FileSystemException e) {
+            LOGGER.debug("Could not copy the attributes of {}, writing it in place", from, e);
+            return false;
+        }
+    }
+
+    private static List<String> userAttributeNames(UserDefinedFileAttributeView view) {
+        if (view == null) {
+            return List.of();
+        }
+        try {
+            return view.list();
+        } catch (IOException e) {
+            return List.of(); // the file system does not support them
+        }
+    }
+
+    private static void move(Path from, Path to) throws IOException {
+        try {
+            Files.move(from, to, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+        } catch (AtomicMoveNotSupportedException e) {
+            Files.move(from, to, StandardCopyOption.REPLACE_EXISTING);
+        }
+    }
+
+    private static void syncDirectory(Path dir) {
+        try (FileChannel channel = FileChannel.open(dir, StandardOpenOption.READ)) {
+            channel.force(true);
+        } catch (IOException e) {
+            // directories cannot be opened (or synced) on all platforms, e.g. on windows
+            LOGGER.debug("Could not sync directory {}", dir, e);
+        }
+    }
+}
@@ -16,14 +16,30 @@
 package com.diffplug.spotless.cli.core;
 
 import java.io.ByteArrayOutputStream;
+import java.io.File;
 import java.io.OutputStream;
 import java.lang.annotation.Annotation;
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
 import java.lang.reflect.Field;
+import java.lang.reflect.Modifier;
 import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
 import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.IdentityHashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.Objects;
+import java.util.Set;
+import java.util.function.Function;
+import java.util.function.Supplier;
+import java.util.stream.Collectors;
 import java.util.stream.Stream;
 
 import org.jetbrains.annotations.Nullable;
@@ -35,20 +51,53 @@ import com.diffplug.spotless.cli.steps.SpotlessCLIFormatterStep;
 
 import picocli.CommandLine;
 
+/**
+ * Calculates checksums of contents and of the (option values of the) commands of a command line.
+ * <p>
+ * Checksums of commands and command lines are memoized per instance, as the options do not change once a command
+ * line is parsed. Which fields hold options is looked up only once per class.
+ */
 public class ChecksumCalculator {
 
+    private static final ClassValue<List<OptionAccessor>> OPTIONS_IN_CLASS_HIERARCHY = new ClassValue<>() {
+        @Override
+        protected List<OptionAccessor> computeValue(Class<?> type) {
+            return optionAccessors(classHierarchy(type), type);
+        }
+    };
+
+    /** fields of arg groups are only looked up in the class of the group itself */
+    private static final ClassValue<List<OptionAccessor>> OPTIONS_IN_ARG_GROUP = new ClassValue<>() {
+        @Override
+        protected List<OptionAccessor> computeValue(Class<?> type) {
+            return optionAccessors(List.of(type), type);
+        }
+    };
+
+    private final Map<Object, String> stepChecksums = Collections.synchronizedMap(new IdentityHashMap<>());
+
+    private final Map<Object, String> commandLineChecksums = Collections.synchronizedMap(new IdentityHashMap<>());
+
+    private final Map<Object, String> formatterStepsChecksums = Collections.synchronizedMap(new IdentityHashMap<>());
+
     public String calculateChecksum(String text) {
         byte[] bytes = text.getBytes(StandardCharsets.UTF_8);
         return toHashedHexBytes(bytes);
     }
 
+    public String calculateChecksum(byte[] bytes) {
+        return toHashedHexBytes(bytes);
+    }
+
     public String calculateChecksum(SpotlessCLIFormatterStep step) {
-        try (ByteArrayOutputStream out = new ByteArrayOutputStream()) {
-            writeObjectDataTo(step, out);
-            return toHashedHexBytes(out.toByteArray());
-        } catch (Exception e) {
-            throw ThrowingEx.asRuntime(e);
-        }
+        return memoized(stepChecksums, step, () -> {
+            try (ByteArrayOutputStream out = new ByteArrayOutputStream()) {
+                writeObjectDataTo(step, out);
+                return toHashedHexBytes(out.toByteArray());
+            } catch (Exception e) {
+                throw ThrowingEx.asRuntime(e);
+            }
+        });
     }
 
     private void writeObjectDataTo(Object object, OutputStream outputStream) {
@@ -60,17 +109,66 @@ public class ChecksumCalculator {
     }
 
     public String calculateChecksum(SpotlessCommandLineStream commandLineStream) {
-        try (ByteArrayOutputStream out = new ByteArrayOutputStream()) {
+        return memoized(commandLineChecksums, commandLineStream, () -> {
+            try (ByteArrayOutputStream out = new ByteArrayOutputStream()) {
 
-            calculateChecksumOfActions(commandLineStream.actions(), out);
+                calculateChecksumOfActions(commandLineStream.actions(), out);
 
-            calculateChecksumOfSteps(commandLineStream.formatterSteps(), out);
+                calculateChecksumOfSteps(commandLineStream.formatterSteps(), out);
+                return toHashedHexBytes(out.toByteArray());
+            } catch (Exception e) {
+                throw ThrowingEx.asRuntime(e);
+            }
+        });
+    }
+
+    public String calculateFormatterStepsChecksum(SpotlessCommandLineStream commandLineStream) {
+        return memoized(formatterStepsChecksums, commandLineStream, () -> {
+            try (ByteArrayOutputStream out = new ByteArrayOutputStream()) {
+                calculateChecksumOfSteps(commandLineStream.formatterSteps(), out);
+                return toHashedHexBytes(out.toByteArray());
+            } catch (Exception e) {
+                throw ThrowingEx.asRuntime(e);
+            }
+        });
+    }
+
+    /**
+     * The checksums of the options only cover the paths of the files the steps are configured with (e.g. config
+     * files), this one covers their contents.
+     *
+     * @param resolver resolves the (relative) paths given on the command line
+     */
+    public String calculateReferencedFilesChecksum(
+            SpotlessCommandLineStream commandLineStream, Function<Path, Path> resolver) {
+        try (ByteArrayOutputStream out = new ByteArrayOutputStream()) {
+            commandLineStream
+                    .formatterSteps()
+                    .flatMap(ChecksumCalculator::options)
+                    .flatMap(option -> option instanceof Collection<?> values ? values.stream() : Stream.of(option))
+                    .map(option -> option instanceof File file ? file.toPath() : option)
+                    .filter(Path.class::isInstance)
+                    .map(path -> resolver.apply((Path) path))
+                    .forEachOrdered(path -> ThrowingEx.run(() -> {
+                        out.write(Files.isRegularFile(path) ? Files.readAllBytes(path) : new byte[0]);
+                        out.write('\n');
+                    }));
             return toHashedHexBytes(out.toByteArray());
         } catch (Exception e) {
             throw ThrowingEx.asRuntime(e);
         }
     }
 
+    private static String memoized(Map<Object, String> checksums, Object key, Supplier<String> checksum) {
+        String memoized = checksums.get(key);
+        if (memoized == null) {
+            // calculated outside the lock, concurrent callers calculate the same value at worst
+            memoized = checksum.get();
+            checksums.put(key, memoized);
+        }
+        return memoized;
+    }
+
     private void calculateChecksumOfSteps(
             Stream<SpotlessCLIFormatterStep> spotlessCLIFormatterStepStream, ByteArrayOutputStream out) {
         spotlessCLIFormatterStepStream.forEachOrdered(step -> writeObjectDataTo(step, out));
@@ -81,17 +179,26 @@ public class ChecksumCalculator {
     }
 
     private static Stream<Object> options(Object step) {
-        List<Class<?>> classHierarchy = classHierarchy(step);
-        return classHierarchy.stream()
-                .flatMap(clazz -> Arrays.stream(clazz.getDeclaredFields()))
-                .flatMap(field -> expandOptionField(field, step))
-                .map(FieldOnObject::getValue)
+        return OPTIONS_IN_CLASS_HIERARCHY.get(step.getClass()).stream()
+                .flatMap(accessor -> expandOption(accessor, step))
                 .filter(Objects::nonNull);
     }
 
-    private static List<Class<?>> classHierarchy(Object obj) {
+    private static Stream<Object> expandOption(OptionAccessor accessor, Object obj) {
+        Object value = accessor.getValue(obj);
+        if (!accessor.argGroup()) {
+            return Stream.ofNullable(value);
+        }
+        if (value == null) {
+            return Stream.empty();
+        }
+        return OPTIONS_IN_ARG_GROUP.get(value.getClass()).stream()
+                .flatMap(subAccessor -> expandOption(subAccessor, value));
+    }
+
+    private static List<Class<?>> classHierarchy(Class<?> type) {
         List<Class<?>> hierarchy = new ArrayList<>();
-        Class<?> clazz = obj.getClass();
+        Class<?> clazz = type;
         while (clazz != null) {
             hierarchy.add(clazz);
             clazz = clazz.getSuperclass();
@@ -99,32 +206,41 @@ public class ChecksumCalculator {
         return hierarchy;
     }
 
-    private static Stream<FieldOnObject> expandOptionField(Field field, Object obj) {
-        if (field.isAnnotationPresent(CommandLine.Option.class)
-                || field.isAnnotationPresent(CommandLine.Parameters.class)
-                || isAnnotatedSetterPresent(CommandLine.Option.class, field, obj)
-                || isAnnotatedSetterPresent(CommandLine.Parameters.class, field, obj)) {
-            return Stream.of(new FieldOnObject(field, obj));
-        }
-        if (field.isAnnotationPresent(CommandLine.ArgGroup.class)
-                || isAnnotatedSetterPresent(CommandLine.ArgGroup.class, field, obj)) {
-            Object fieldValue = new FieldOnObject(field, obj).getValue();
-            if (fieldValue == null) {
-                return Stream.empty();
+    /**
+     * @param classes the classes whose declared fields are candidates
+     * @param type the class of the objects, annotated setters are only looked up in it
+     */
+    private static List<OptionAccessor> optionAccessors(List<Class<?>> classes, Class<?> type) {
+        Set<Class<?>> optionSetterTypes = annotatedSetterTypes(type, CommandLine.Option.class);
+        optionSetterTypes.addAll(annotatedSetterTypes(type, CommandLine.Parameters.class));
+        Set<Class<?>> argGroupSetterTypes = annotatedSetterTypes(type, CommandLine.ArgGroup.class);
+        List<OptionAccessor> accessors = new ArrayList<>();
+        for (Class<?> clazz : classes) {
+            for (Field field : clazz.getDeclaredFields()) {
+                if (field.isAnnotationPresent(CommandLine.Option.class)
+                        || field.isAnnotationPresent(CommandLine.Parameters.class)
+                        || optionSetterTypes.contains(field.getType())) {
+                    accessors.add(OptionAccessor.of(field, false));
+                } else if (field.isAnnotationPresent(CommandLine.ArgGroup.class)
+                        || argGroupSetterTypes.contains(field.getType())) {
+                    accessors.add(OptionAccessor.of(field, true));
+                }
             }
-            return Arrays.stream(fieldValue.getClass().getDeclaredFields())
-                    .flatMap(subField -> expandOptionField(subField, fieldValue));
         }
-        return Stream.empty(); // nothing to expand
+        return List.copyOf(accessors);
     }
 
-    private static <T extends Annotation> boolean isAnnotatedSetterPresent(
-            Class<T> annotation, Field field, Object obj) {
-        return Arrays.stream(obj.getClass().getDeclaredMethods())
+    /**
+     * @return the parameter types of the setters annotated with the given annotation (fields of these types are
+     * considered to be set by them)
+     */
+    private static Set<Class<?>> annotatedSetterTypes(Class<?> type, Class<? extends Annotation> annotation) {
+        return Arrays.stream(type.getDeclaredMethods())
                 .filter(method -> method.getName().startsWith("set"))
                 .filter(method -> method.getParameterCount() == 1)
-                .filter(method -> method.getParameterTypes()[0].equals(field.getType()))
-                .anyMatch(method -> method.isAnnotationPresent(annotation));
+                .filter(method -> method.isAnnotationPresent(annotation))
+                .map(method -> method.getParameterTypes()[0])
+                .collect(Collectors.toCollection(HashSet::new));
     }
 
     private static String toHashedHexBytes(byte[] bytes) {
@@ -136,18 +252,25 @@ public class ChecksumCalculator {
         return builder.toString();
     }
 
-    private static class FieldOnObject {
-        private final Field field;
-        private final Object obj;
+    private record OptionAccessor(MethodHandle getter, boolean argGroup) {
 
-        FieldOnObject(Field field, Object obj) {
-            this.field = field;
-            this.obj = obj;
+        static OptionAccessor of(Field field, boolean argGroup) {
+            MethodHandle getter = ThrowingEx.get(() -> {
+                field.setAccessible(true);
+                return MethodHandles.lookup().unreflectGetter(field);
+            });
+            if (Modifier.isStatic(field.getModifiers())) {
+                getter = MethodHandles.dropArguments(getter, 0, Object.class);
+            }
+            return new OptionAccessor(getter.asType(MethodType.methodType(Object.class, Object.class)), argGroup);
         }
 
-        @Nullable Object getValue() {
-            ThrowingEx.run(() -> field.setAccessible(true));
-            return ThrowingEx.get(() -> field.get(obj));
+        @Nullable Object getValue(Object obj) {
+            try {
+                return getter.invokeExact(obj);
+            } catch (Throwable e) {
+                throw ThrowingEx.asRuntime(e instanceof Exception exception ? exception : new RuntimeException(e));
+            }
         }
     }
 }
@@ -77,19 +77,40 @@ public class ExecutionLayout {
     }
 
     public Path buildDir() {
+        return buildDir(String.valueOf(deriveId));
+    }
+
+    /**
+     * @return the build dir shared by all derived layouts
+     */
+    private Path sharedBuildDir() {
+        return buildDir("shared");
+    }
+
+    private Path buildDir(String subDir) {
+        return buildDir(subDir, true);
+    }
+
+    /**
+     * @param temporary whether a directory in the temp dir (i.e. outside gradle and maven projects) is deleted at the
+     *     end of the run
+     */
+    private Path buildDir(String subDir, boolean temporary) {
         if (isGradleDirectory()) {
-            Path gradleBuildDir = gradleBuildDir();
+            Path gradleBuildDir = gradleBuildDir(subDir);
             LOGGER.info("Using Gradle build directory as buildDir: {}", gradleBuildDir);
             return gradleBuildDir;
         }
         if (isMavenDirectory()) {
-            Path mavenBuildDir = mavenBuildDir();
+            Path mavenBuildDir = mavenBuildDir(subDir);
             LOGGER.info("Using Maven build directory as buildDir: {}", mavenBuildDir);
             return mavenBuildDir;
         }
-        Path tempBuildDir = tempBuildDir();
+        Path tempBuildDir = tempBuildDir(subDir);
         LOGGER.info("Using temporary build directory as buildDir: {}", tempBuildDir);
-        SpotlessRunCleanup.INSTANCE.deleteDirOnCleanup(commandLineStream, tempBuildDir);
+        if (temporary) {
+            SpotlessRunCleanup.INSTANCE.deleteDirOnCleanup(commandLineStream, tempBuildDir);
+        }
         return tempBuildDir;
     }
 
@@ -100,34 +121,64 @@ public class ExecutionLayout {
                 .anyMatch(Optional::isPresent);
     }
 
-    private Path gradleBuildDir() {
-        return fileResolver.resolvePath(Paths.get("build", "spotless-cli", String.valueOf(deriveId)));
+    private Path gradleBuildDir(String subDir) {
+        return fileResolver.resolvePath(Paths.get("build", "spotless-cli", subDir));
     }
 
     private boolean isMavenDirectory() {
         return Stream.of("pom.xml").map(Paths::get).map(this::find).anyMatch(Optional::isPresent);
     }
 
-    private Path mavenBuildDir() {
-        return fileResolver.resolvePath(Paths.get("target", "spotless-cli", String.valueOf(deriveId)));
+    private Path mavenBuildDir(String subDir) {
+        return fileResolver.resolvePath(Paths.get("target", "spotless-cli", subDir));
     }
 
-    private Path tempBuildDir() {
+    private Path tempBuildDir(String subDir) {
         String tmpDir = System.getProperty("java.io.tmpdir");
         String baseDirHash =
                 checksumCalculator.calculateChecksum(baseDir().toAbsolutePath().toString());
-        return Path.of(tmpDir, "spotless-cli", baseDirHash, String.valueOf(deriveId));
+        return Path.of(tmpDir, "spotless-cli", baseDirHash, subDir);
     }
 
+    /**
+     * Steps marked as {@link BuildDirGloballyReusable} get the same directory in all derived layouts (i.e. in all
+     * formatter threads) and in all runs with the same step configuration.
+     */
     public Path buildDirFor(@NotNull SpotlessCLIFormatterStep step) {
         Objects.requireNonNull(step);
-        Path buildDir = buildDir();
         String checksum = checksumCalculator.calculateChecksum(step);
         if (step instanceof BuildDirGloballyReusable) {
-            return buildDir.resolve(checksum);
+            return sharedBuildDir().resolve(checksum);
         }
         String commandLineChecksum = checksumCalculator.calculateChecksum(commandLineStream);
-        return buildDir.resolve(checksum + "-" + commandLineChecksum);
+        return buildDir().resolve(checksum + "-" + commandLineChecksum);
+    }
+
+    /**
+     * The index is only valid for the same configuration, including the contents of the config files the steps
+     * reference. Unlike the build dir, it is kept after the run outside of gradle and maven projects as well.
+     */
+    public Path upToDateIndexFile() {
+        String configurationChecksum = checksumCalculator.calculateChecksum(String.join(
+                "\n",
+                checksumCalculator.calculateChecksum(commandLineStream),
+                checksumCalculator.calculateReferencedFilesChecksum(commandLineStream, fileResolver::resolvePath)));
+        return buildDir("up-to-date-index", false).resolve(configurationChecksum);
+    }
+
+    /**
+     * @return the command line of the run, the same instance for all derived layouts
+     */
+    public SpotlessCommandLineStream commandLineStream() {
+        return commandLineStream;
+    }
+
+    /**
+     * @return the calculator shared by all derived layouts, so the checksums it memoizes for the command line (and
+     * its steps) are calculated once per run
+     */
+    public ChecksumCalculator checksumCalculator() {
+        return checksumCalculator;
     }
 
     public @NotNull ExecutionLayout deriveLayout(Integer deriveId) {
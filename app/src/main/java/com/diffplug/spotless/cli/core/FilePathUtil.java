@@ -42,4 +42,16 @@ public final class FilePathUtil {
     public static List<Boolean> assertDirectoryExists(List<File> files) {
         return files.stream().map(f -> f != null && f.mkdirs()).collect(Collectors.toList());
     }
+
+    /**
+     * @return the path of the file relative to the base directory (or the absolute path of files outside of it), with
+     * '/' as separator on all platforms
+     */
+    public static String relativeUnixPath(Path baseDir, Path file) {
+        Path absoluteBaseDir = baseDir.toAbsolutePath().normalize();
+        Path absoluteFile = file.toAbsolutePath().normalize();
+        Path relativeFile =
+                absoluteFile.startsWith(absoluteBaseDir) ? absoluteBaseDir.relativize(absoluteFile) : absoluteFile;
+        return relativeFile.toString().replace(File.separatorChar, '/');
+    }
 }
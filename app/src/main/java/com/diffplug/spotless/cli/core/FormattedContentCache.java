@@ -0,0 +1,469 @@
+/*
+ * Copyright 2026 DiffPlug
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.diffplug.spotless.cli.core;
+
+import java.io.IOException;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileLock;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.FileAlreadyExistsException;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.nio.file.attribute.FileTime;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.Stream;
+
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.diffplug.spotless.ThrowingEx;
+
+/**
+ * Content-addressed cache of formatting results, shared by all runs (and checkouts) on a machine which use the same
+ * cache directory, and optionally backed by a {@link RemoteFormattedContentCache remote cache} shared between
+ * machines.
+ * <p>
+ * An entry is addressed by the checksum of the step configuration and the hash of the content of a file, and records
+ * that the content is clean or what it is formatted to. Entries are written to a temporary file and moved into place,
+ * so readers never see partial entries. Runs hold a shared lock on the cache while they use it, the least recently
+ * used entries are only evicted while holding the exclusive lock, i.e. while no other run is using the cache.
+ */
+public final class FormattedContentCache implements AutoCloseable {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(FormattedContentCache.class);
+
+    private static final String LAYOUT_VERSION = "v1";
+
+    private static final byte CLEAN = 'C';
+
+    private static final byte FORMATTED = 'F';
+
+    /** entries are evicted down to this share of the maximum size, so not every run has to evict */
+    private static final double EVICTION_TARGET = 0.9;
+
+    /** the access time of entries is only updated this often, to not write on every hit */
+    private static final Duration ACCESS_TIME_RESOLUTION = Duration.ofMinutes(10);
+
+    /** file locks are held per JVM, so all users of a cache directory in this JVM share one lock */
+    private static final Map<Path, SharedLock> SHARED_LOCKS = new HashMap<>();
+
+    private static final FormattedContentCache NONE =
+            new FormattedContentCache(
+            null, null, Path.of(""), "", StepRoutes.none(), 0, RemoteFormattedContentCache.none());
+
+    private final @Nullable Path cacheRoot;
+
+    private final @Nullable Path entriesDir;
+
+    private final Path baseDir;
+
+    private final String configChecksum;
+
+    private final StepRoutes stepRoutes;
+
+    private final long maxSizeBytes;
+
+    private final RemoteFormattedContentCache remote;
+
+    private final ChecksumCalculator checksumCalculator = new ChecksumCalculator();
+
+    private final AtomicLong writtenBytes = new AtomicLong();
+
+    private FormattedContentCache(
+            @Nullable Path cacheRoot,
+            @Nullable Path entriesDir,
+            @NotNull Path baseDir,
+            @NotNull String configChecksum,
+            @NotNull StepRoutes stepRoutes,
+            long maxSizeBytes,
+            @NotNull RemoteFormattedContentCache remote) {
+        this.cacheRoot = cacheRoot;
+        this.entriesDir = entriesDir;
+        this.baseDir = Objects.requireNonNull(baseDir);
+        this.configChecksum = Objects.requireNonNull(configChecksum);
+        this.stepRoutes = Objects.requireNonNull(stepRoutes);
+        this.maxSizeBytes = maxSizeBytes;
+        this.remote = Objects.requireNonNull(remote);
+    }
+
+    public static FormattedContentCache none() {
+        return NONE;
+    }
+
+    /**
+     * Opens the cache and takes a shared lock on it, which is held until the cache is {@link #close() closed}.
+     *
+     * @param baseDir the directory the paths of files in keys are relative to
+     * @param configChecksum the checksum of everything the formatted content depends on besides the file itself
+     * @param stepRoutes the routes deciding which steps a file goes through
+     */
+    public static FormattedContentCache open(
+            @NotNull Path cacheDir,
+            @NotNull Path baseDir,
+            @NotNull String configChecksum,
+            @NotNull StepRoutes stepRoutes,
+            long maxSizeBytes) {
+        return open(cacheDir, baseDir, configChecksum, stepRoutes, maxSizeBytes, RemoteFormattedContentCache.none());
+    }
+
+    /**
+     * Opens the cache with a remote cache behind the local one, the local cache is optional then.
+     *
+     * @see #open(Path, Path, String, StepRoutes, long)
+     */
+    public static FormattedContentCache open(
+            @Nullable Path cacheDir,
+            @NotNull Path baseDir,
+            @NotNull String configChecksum,
+            @NotNull StepRoutes stepRoutes,
+            long maxSizeBytes,
+            @NotNull RemoteFormattedContentCache remote) {
+        Objects.requireNonNull(configChecksum);
+        if (cacheDir == null) {
+            return new FormattedContentCache(null, null, baseDir, configChecksum, stepRoutes, 0, remote);
+        }
+        if (maxSizeBytes < 1) {
+            throw new IllegalArgumentException("The maximum size of the cache must be > 0, was " + maxSizeBytes);
+        }
+        Path cacheRoot = cacheDir.toAbsolutePath().normalize().resolve(LAYOUT_VERSION);
+        ThrowingEx.run(() -> Files.createDirectories(cacheRoot));
+        acquireSharedLock(cacheRoot);
+        LOGGER.debug("Using formatted content cache in {}", cacheRoot);
+        return new FormattedContentCache(
+                cacheRoot,
+                cacheRoot.resolve("entries").resolve(configChecksum),
+                baseDir,
+                configChecksum,
+                stepRoutes,
+                maxSizeBytes,
+                remote);
+    }
+
+    public boolean isEnabled() {
+        return entriesDir != null || remote.isEnabled();
+    }
+
+    /**
+     * Besides the content, the key covers what the steps see of the file itself: its path relative to the base
+     * directory (steps may only apply to some files or derive their output from the path, e.g. a license header
+     * mentioning the file name) and the routes it matches. The path uses '/' as separator, so machines sharing a
+     * remote cache agree on the keys.
+     *
+     * @return the key of the entry for the given content of the file
+     */
+    public String key(@NotNull Path file, byte[] content) {
+        return checksumCalculator.calculateChecksum(String.join(
+                "\n",
+                FilePathUtil.relativeUnixPath(baseDir, file),
+                stepRoutes.matchingRoutes(file),
+                checksumCalculator.calculateChecksum(content)));
+    }
+
+    /**
+     * @return the cached result for the key, or {@code null} if there is none
+     */
+    public @Nullable Entry get(@NotNull String key) {
+        return getAll(List.of(key)).get(key);
+    }
+
+    /**
+     * Looks up the keys in the local cache and the ones missing there with a single batch of requests in the remote
+     * cache. Entries found remotely are added to the local cache.
+     *
+     * @return the cached results, by key
+     */
+    public Map<String, Entry> getAll(@NotNull Collection<String> keys) {
+        Map<String, Entry> entries = new HashMap<>();
+        if (!isEnabled()) {
+            return entries;
+        }
+        Map<String, String> remoteKeys = new LinkedHashMap<>();
+        for (String key : keys) {
+            Entry entry = entriesDir == null ? null : getLocal(key);
+            if (entry != null) {
+                entries.put(key, entry);
+            } else if (remote.isEnabled()) {
+                remoteKeys.put(remoteKey(key), key);
+            }
+        }
+        remote.getAll(remoteKeys.keySet()).forEach((remoteKey, bytes) -> {
+            String key = remoteKeys.get(remoteKey);
+            Entry entry = decode(bytes);
+            if (entry == null) {
+                LOGGER.debug("Ignoring malformed remote cache entry {}", remoteKey);
+                return;
+            }
+            entries.put(key, entry);
+            putLocal(key, bytes);
+        });
+        return entries;
+    }
+
+    private @Nullable Entry getLocal(String key) {
+        Path entryFile = entryFile(key);
+        byte[] bytes;
+        try {
+            bytes = Files.readAllBytes(entryFile);
+        } catch (NoSuchFileException e) {
+            return null;
+        } catch (IOException e) {
+            LOGGER.debug("Could not read cache entry {}", entryFile, e);
+            return null;
+        }
+        Entry entry = decode(bytes);
+        if (entry == null) {
+            LOGGER.debug("Ignoring malformed cache entry {}", entryFile);
+            return null;
+        }
+        touch(entryFile);
+        return entry;
+    }
+
+    public void putClean(@NotNull String key) {
+        put(key, Entry.CLEAN);
+    }
+
+    public void putFormatted(@NotNull String key, byte[] formattedContent) {
+        put(key, new Entry(formattedContent));
+    }
+
+    private void put(String key, Entry entry) {
+        if (!isEnabled()) {
+            return;
+        }
+        byte[] bytes = encode(entry);
+        putLocal(key, bytes);
+        remote.put(remoteKey(key), bytes);
+    }
+
+    /**
+     * The remote cache is shared by all configurations, so its keys cover the configuration as well.
+     */
+    private String remoteKey(String key) {
+        return checksumCalculator.calculateChecksum(configChecksum + "\n" + key);
+    }
+
+    private static byte[] encode(Entry entry) {
+        if (entry.isClean()) {
+            return new byte[] {CLEAN};
+        }
+        byte[] bytes = new byte[entry.formattedContent().length + 1];
+        bytes[0] = FORMATTED;
+        System.arraycopy(entry.formattedContent(), 0, bytes, 1, entry.formattedContent().length);
+        return bytes;
+    }
+
+    private static @Nullable Entry decode(byte[] bytes) {
+        if (bytes.length == 0 || (bytes[0] != CLEAN && bytes[0] != FORMATTED)) {
+            return null;
+        }
+        return bytes[0] == CLEAN ? Entry.CLEAN : new Entry(Arrays.copyOfRange(bytes, 1, bytes.length));
+    }
+
+    private void putLocal(String key, byte[] bytes) {
+        if (entriesDir == null) {
+            return;
+        }
+        Path entryFile = entryFile(key);
+        if (Files.exists(entryFile)) {
+            return;
+        }
+        try {
+            Files.createDirectories(entryFile.getParent());
+            Path tempFile = Files.createTempFile(entryFile.getParent(), key + "-", ".tmp");
+            try {
+                Files.write(tempFile, bytes);
+                moveIntoPlace(tempFile, entryFile);
+            } finally {
+                Files.deleteIfExists(tempFile);
+            }
+            writtenBytes.addAndGet(bytes.length);
+        } catch (FileAlreadyExistsException e) {
+            // written by a concurrent run, entries for the same key are equal
+        } catch (IOException e) {
+            LOGGER.debug("Could not write cache entry {}", entryFile, e);
+        }
+    }
+
+    private static void moveIntoPlace(Path tempFile, Path entryFile) throws IOException {
+        try {
+            Files.move(tempFile, entryFile, StandardCopyOption.ATOMIC_MOVE);
+        } catch (AtomicMoveNotSupportedException e) {
+            Files.move(tempFile, entryFile);
+        }
+    }
+
+    private Path entryFile(String key) {
+        return entriesDir.resolve(key.substring(0, 2)).resolve(key);
+    }
+
+    private static void touch(Path entryFile) {
+        try {
+            FileTime now = FileTime.fromMillis(System.currentTimeMillis());
+            FileTime lastModified = Files.getLastModifiedTime(entryFile);
+            if (now.toMillis() - lastModified.toMillis() >= ACCESS_TIME_RESOLUTION.toMillis()) {
+                Files.setLastModifiedTime(entryFile, now);
+            }
+        } catch (IOException e) {
+            LOGGER.debug("Could not update the access time of cache entry {}", entryFile, e);
+        }
+    }
+
+    /**
+     * Waits for the entries still being stored remotely and releases the shared lock. If entries were added, the
+     * least recently used entries (of all configurations) are evicted once the cache is larger than its maximum size,
+     * by the last run using the cache.
+     */
+    @Override
+    public void close() {
+        remote.close();
+        if (entriesDir == null) {
+            return;
+        }
+        releaseSharedLock(cacheRoot, writtenBytes.get() > 0 ? this::evictIfTooLarge : null);
+    }
+
+    private void evictIfTooLarge() {
+        List<CachedFile> files = new ArrayList<>();
+        try (Stream<Path> paths = Files.walk(cacheRoot.resolve("entries"))) {
+            paths.forEach(path -> {
+                try {
+                    BasicFileAttributes attributes = Files.readAttributes(path, BasicFileAttributes.class);
+                    if (attributes.isRegularFile()) {
+                        files.add(new CachedFile(path, attributes.size(), attributes.lastModifiedTime()));
+                    }
+                } catch (IOException e) {
+                    // deleted concurrently
+                }
+            });
+        } catch (IOException e) {
+            LOGGER.debug("Could not list the entries of cache {}", cacheRoot, e);
+            return;
+        }
+        long size = files.stream().mapToLong(CachedFile::size).sum();
+        if (size <= maxSizeBytes) {
+            return;
+        }
+        long targetSize = (long) (maxSizeBytes * EVICTION_TARGET);
+        files.sort(Comparator.comparing(CachedFile::lastModified));
+        int evicted = 0;
+        for (CachedFile file : files) {
+            if (size <= targetSize) {
+                break;
+            }
+            try {
+                Files.deleteIfExists(file.path());
+                size -= file.size();
+                evicted++;
+            } catch (IOException e) {
+                LOGGER.debug("Could not evict cache entry {}", file.path(), e);
+            }
+        }
+        LOGGER.info("Evicted {} entries from cache {}, {} bytes left", evicted, cacheRoot, size);
+    }
+
+    private static void acquireSharedLock(Path cacheRoot) {
+        synchronized (SHARED_LOCKS) {
+            SharedLock sharedLock = SHARED_LOCKS.get(cacheRoot);
+            if (sharedLock == null) {
+                FileChannel channel = ThrowingEx.get(() -> FileChannel.open(
+                        cacheRoot.resolve("lock"),
+                        StandardOpenOption.CREATE,
+                        StandardOpenOption.READ,
+                        StandardOpenOption.WRITE));
+                // blocks while another run evicts entries
+                FileLock lock = ThrowingEx.get(() -> channel.lock(0, Long.MAX_VALUE, true));
+                sharedLock = new SharedLock(channel, lock);
+                SHARED_LOCKS.put(cacheRoot, sharedLock);
+            }
+            sharedLock.users++;
+        }
+    }
+
+    private static void releaseSharedLock(Path cacheRoot, @Nullable Runnable whenExclusive) {
+        synchronized (SHARED_LOCKS) {
+            SharedLock sharedLock = SHARED_LOCKS.get(cacheRoot);
+            if (whenExclusive != null) {
+                sharedLock.pendingEviction = whenExclusive;
+            }
+            if (--sharedLock.users > 0) {
+                return; // still used in this JVM, leave the eviction to the last user
+            }
+            SHARED_LOCKS.remove(cacheRoot);
+            try (FileChannel channel = sharedLock.channel) {
+                sharedLock.lock.release();
+                if (sharedLock.pendingEviction == null) {
+                    return;
+                }
+                try (FileLock exclusiveLock = channel.tryLock()) {
+                    if (exclusiveLock != null) {
+                        sharedLock.pendingEviction.run();
+                    } else {
+                        LOGGER.debug("Cache {} is used by another run, not evicting entries", cacheRoot);
+                    }
+                }
+            } catch (IOException e) {
+                LOGGER.debug("Could not release the lock of cache {}", cacheRoot, e);
+            }
+        }
+    }
+
+    /**
+     * A cached result: either clean, or the formatted content.
+     */
+    public record Entry(byte @Nullable [] formattedContent) {
+
+        static final Entry CLEAN = new Entry(null);
+
+        public boolean isClean() {
+            return formattedContent == null;
+        }
+    }
+
+    private static final class SharedLock {
+
+        private final FileChannel channel;
+
+        private final FileLock lock;
+
+        private int users;
+
+        private @Nullable Runnable pendingEviction;
+
+        private SharedLock(FileChannel channel, FileLock lock) {
+            this.channel = channel;
+            this.lock = lock;
+        }
+    }
+
+    private record CachedFile(Path path, long size, FileTime lastModified) {}
+}
@@ -0,0 +1,231 @@
+/*
+ * Copyright 2026 DiffPlug
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.diffplug.spotless.cli.core;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.regex.Pattern;
+
+import org.jetbrains.annotations.NotNull;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * The ignore rules of a git working tree: {@code .git/info/exclude} and the {@code .gitignore} files of all
+ * directories.
+ * <p>
+ * Every {@code .gitignore} file is parsed once, when a path below its directory is checked for the first time.
+ * Rules of deeper directories take precedence, within one file the last matching rule wins. As in git, a path
+ * within an ignored directory is ignored regardless of any rules re-including it.
+ */
+final class GitIgnore {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(GitIgnore.class);
+
+    private final Path root;
+
+    private final List<Rule> infoExcludeRules;
+
+    private final Map<Path, List<Rule>> rulesPerDirectory = new ConcurrentHashMap<>();
+
+    private final Map<Path, Boolean> ignoredDirectories = new ConcurrentHashMap<>();
+
+    private GitIgnore(@NotNull Path root) {
+        this.root = Objects.requireNonNull(root);
+        this.infoExcludeRules = parse(root.resolve(".git").resolve("info").resolve("exclude"));
+    }
+
+    /**
+     * @param dir a directory within the working tree, if it is not within a git working tree, it is used as root
+     */
+    static GitIgnore forWorkingTreeOf(@NotNull Path dir) {
+        Path absoluteDir = dir.toAbsolutePath().normalize();
+        for (Path candidate = absoluteDir; candidate != null; candidate = candidate.getParent()) {
+            if (Files.exists(candidate.resolve(".git"))) {
+                LOGGER.debug("Using git working tree root {}", candidate);
+                return new GitIgnore(candidate);
+            }
+        }
+        LOGGER.debug("{} is not within a git working tree, only using .gitignore files below it", absoluteDir);
+        return new GitIgnore(absoluteDir);
+    }
+
+    boolean isIgnored(@NotNull Path path, boolean isDirectory) {
+        Path absolutePath = path.toAbsolutePath().normalize();
+        if (!absolutePath.startsWith(root) || absolutePath.equals(root)) {
+            return false;
+        }
+        if (absolutePath.getFileName().toString().equals(".git")) {
+            return true;
+        }
+        Path parent = absolutePath.getParent();
+        if (!parent.equals(root) && isIgnoredDirectory(parent)) {
+            return true;
+        }
+        return matches(absolutePath, isDirectory);
+    }
+
+    private boolean isIgnoredDirectory(Path dir) {
+        Boolean ignored = ignoredDirectories.get(dir);
+        if (ignored == null) {
+            ignored = isIgnored(dir, true);
+            ignoredDirectories.put(dir, ignored);
+        }
+        return ignored;
+    }
+
+    private boolean matches(Path absolutePath, boolean isDirectory) {
+        boolean ignored = matches(infoExcludeRules, root, absolutePath, isDirectory, false);
+        List<Path> dirs = new ArrayList<>();
+        for (Path dir = absolutePath.getParent(); dir.startsWith(root); dir = dir.getParent()) {
+            dirs.add(dir);
+            if (dir.equals(root)) {
+                break;
+            }
+        }
+        for (int i = dirs.size() - 1; i >= 0; i--) {
+            Path dir = dirs.get(i);
+            List<Rule> rules = rulesPerDirectory.computeIfAbsent(dir, d -> parse(d.resolve(".gitignore")));
+            ignored = matches(rules, dir, absolutePath, isDirectory, ignored);
+        }
+        return ignored;
+    }
+
+    private static boolean matches(
+            List<Rule> rules, Path dir, Path absolutePath, boolean isDirectory, boolean ignoredSoFar) {
+        if (rules.isEmpty()) {
+            return ignoredSoFar;
+        }
+        String relativePath = dir.relativize(absolutePath).toString().replace(File.separatorChar, '/');
+        boolean ignored = ignoredSoFar;
+        for (Rule rule : rules) {
+            if (rule.matches(relativePath, isDirectory)) {
+                ignored = !rule.negated();
+            }
+        }
+        return ignored;
+    }
+
+    private static List<Rule> parse(Path ignoreFile) {
+        if (!Files.isRegularFile(ignoreFile)) {
+            return List.of();
+        }
+        try {
+            List<Rule> rules = new ArrayList<>();
+            for (String line : Files.readAllLines(ignoreFile, StandardCharsets.UTF_8)) {
+                Rule rule = Rule.parse(line);
+                if (rule != null) {
+                    rules.add(rule);
+                }
+            }
+            LOGGER.debug("Parsed {} rules from {}", rules.size(), ignoreFile);
+            return List.copyOf(rules);
+        } catch (IOException e) {
+            LOGGER.warn("Could not read {}, ignoring it", ignoreFile, e);
+            return List.of();
+        }
+    }
+
+    record Rule(@NotNull Pattern pattern, boolean negated, boolean directoryOnly) {
+
+        boolean matches(String relativePath, boolean isDirectory) {
+            return (isDirectory || !directoryOnly) && pattern.matcher(relativePath).matches();
+        }
+
+        /**
+         * @return the rule for the given line of a {@code .gitignore} file, {@code null} for blank lines and comments
+         */
+        static Rule parse(@NotNull String line) {
+            String pattern = stripTrailingSpaces(line);
+            if (pattern.isEmpty() || pattern.startsWith("#")) {
+                return null;
+            }
+            boolean negated = pattern.startsWith("!");
+            if (negated) {
+                pattern = pattern.substring(1);
+            }
+            boolean directoryOnly = pattern.endsWith("/") && !pattern.endsWith("\\/");
+            if (directoryOnly) {
+                pattern = pattern.substring(0, pattern.length() - 1);
+            }
+            // a pattern containing a slash (other than a trailing one) is relative to the directory of the file
+            boolean anchored = pattern.contains("/");
+            if (pattern.startsWith("/")) {
+                pattern = pattern.substring(1);
+            }
+            if (pattern.isEmpty()) {
+                return null;
+            }
+            String regex = (anchored ? "" : "(?:.*/)?") + toRegex(pattern);
+            return new Rule(Pattern.compile(regex), negated, directoryOnly);
+        }
+
+        private static String stripTrailingSpaces(String line) {
+            int end = line.length();
+            while (end > 0 && line.charAt(end - 1) == ' ' && (end < 2 || line.charAt(end - 2) != '\\')) {
+                end--;
+            }
+            return line.substring(0, end);
+        }
+
+        private static String toRegex(String pattern) {
+            StringBuilder regex = new StringBuilder();
+            int i = 0;
+            while (i < pattern.length()) {
+                char c = pattern.charAt(i);
+                if (pattern.startsWith("**/", i) && i == 0) {
+                    regex.append("(?:.*/)?");
+                    i += 3;
+                } else if (pattern.startsWith("/**/", i)) {
+                    regex.append("(?:/.*)?/");
+                    i += 4;
+                } else if (pattern.startsWith("/**", i) && i + 3 == pattern.length()) {
+                    regex.append("/.*");
+                    i += 3;
+                } else if (c == '*') {
+                    regex.append("[^/]*");
+                    i++;
+                } else if (c == '?') {
+                    regex.append("[^/]");
+                    i++;
+                } else if (c == '[' && pattern.indexOf(']', i + 2) > 0) {
+                    int end = pattern.indexOf(']', i + 2);
+                    String characterClass = pattern.substring(i + 1, end);
+                    if (characterClass.startsWith("!")) {
+                        characterClass = "^" + characterClass.substring(1);
+                    }
+                    regex.append('[').append(characterClass.replace("\\", "\\\\")).append(']');
+                    i = end + 1;
+                } else if (c == '\\' && i + 1 < pattern.length()) {
+                    regex.append(Pattern.quote(String.valueOf(pattern.charAt(i + 1))));
+                    i += 2;
+                } else {
+                    regex.append(Pattern.quote(String.valueOf(c)));
+                    i++;
+                }
+            }
+            return regex.toString();
+        }
+    }
+}
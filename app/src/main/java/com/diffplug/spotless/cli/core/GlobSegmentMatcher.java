@@ -0,0 +1,133 @@
+/*
+ * Copyright 2026 DiffPlug
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.diffplug.spotless.cli.core;
+
+import java.nio.file.FileSystems;
+import java.nio.file.Path;
+import java.nio.file.PathMatcher;
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.List;
+import java.util.Objects;
+import java.util.regex.Pattern;
+
+import org.jetbrains.annotations.NotNull;
+
+/**
+ * Decides for a directory (relative to the start directory of a glob) whether any file below it can match the glob.
+ * <p>
+ * The glob is split into its path segments, each segment is matched against one directory name. Segments containing
+ * {@code **} may span any number of directories. The decision is conservative: directories are only pruned if they
+ * can definitely not contain a match, the files found are still matched against the complete glob.
+ */
+final class GlobSegmentMatcher {
+
+    private static final GlobSegmentMatcher MATCH_ALL = new GlobSegmentMatcher(List.of());
+
+    private final List<Segment> segments;
+
+    private GlobSegmentMatcher(@NotNull List<Segment> segments) {
+        this.segments = Objects.requireNonNull(segments);
+    }
+
+    static GlobSegmentMatcher compile(@NotNull String glob, @NotNull String separator) {
+        if (glob.contains("\\") && !separator.equals("\\")) {
+            return MATCH_ALL; // escaped characters, do not try to be smart
+        }
+        String[] parts = glob.split(Pattern.quote(separator), -1);
+        List<Segment> segments = new ArrayList<>(parts.length);
+        for (String part : parts) {
+            if (!hasBalancedBraces(part)) {
+                return MATCH_ALL; // a group spanning several segments, e.g. {src/main,test}
+            }
+            if (part.contains("**")) {
+                segments.add(Segment.ANY_DEPTH);
+            } else {
+                segments.add(new Segment(FileSystems.getDefault().getPathMatcher("glob:" + part)));
+            }
+        }
+        return new GlobSegmentMatcher(segments);
+    }
+
+    /**
+     * @param relativeDir the directory relative to the start directory of the glob
+     * @return {@code false} if no file below the directory can match the glob
+     */
+    boolean mayContainMatches(@NotNull Path relativeDir) {
+        if (segments.isEmpty()) {
+            return true;
+        }
+        BitSet states = closure(singleState(0));
+        for (Path name : relativeDir) {
+            if (name.toString().isEmpty()) {
+                continue; // the start directory itself
+            }
+            BitSet next = new BitSet(segments.size() + 1);
+            for (int i = states.nextSetBit(0); i >= 0 && i < segments.size(); i = states.nextSetBit(i + 1)) {
+                Segment segment = segments.get(i);
+                if (segment.spansDirectories()) {
+                    next.set(i);
+                } else if (segment.matcher().matches(name)) {
+                    next.set(i + 1);
+                }
+            }
+            states = closure(next);
+            if (states.nextSetBit(0) < 0 || states.nextSetBit(0) >= segments.size()) {
+                return false; // all of the glob is used up, a file below the directory would need another segment
+            }
+        }
+        return true;
+    }
+
+    private BitSet closure(BitSet states) {
+        for (int i = states.nextSetBit(0); i >= 0 && i < segments.size(); i = states.nextSetBit(i + 1)) {
+            if (segments.get(i).spansDirectories()) {
+                states.set(i + 1); // ** may also match no directory at all
+            }
+        }
+        return states;
+    }
+
+    private BitSet singleState(int state) {
+        BitSet bitSet = new BitSet(segments.size() + 1);
+        bitSet.set(state);
+        return bitSet;
+    }
+
+    private static boolean hasBalancedBraces(String part) {
+        int depth = 0;
+        for (char c : part.toCharArray()) {
+            if (c == '{') {
+                depth++;
+            } else if (c == '}') {
+                depth--;
+            }
+            if (depth < 0) {
+                return false;
+            }
+        }
+        return depth == 0;
+    }
+
+    private record Segment(PathMatcher matcher) {
+
+        private static final Segment ANY_DEPTH = new Segment(null);
+
+        boolean spansDirectories() {
+            return matcher == null;
+        }
+    }
+}
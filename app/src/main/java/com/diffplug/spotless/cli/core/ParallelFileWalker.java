@@ -0,0 +1,379 @@
+/*
+ * Copyright 2026 DiffPlug
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.diffplug.spotless.cli.core;
+
+import java.io.IOException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.LinkOption;
+import java.nio.file.Path;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.Deque;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.Objects;
+import java.util.Queue;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Predicate;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
+
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import com.diffplug.spotless.ThrowingEx;
+
+/**
+ * Walks a directory tree on a {@link ForkJoinPool}, every directory is listed in its own task.
+ * <p>
+ * Like {@link Files#walk(Path, java.nio.file.FileVisitOption...)} symbolic links to directories are not followed,
+ * symbolic links to files are reported. Unlike it, subtrees rejected by the directory filter are never visited.
+ * <p>
+ * The files are streamed while the walk is in progress, so the first of them can be processed long before a large
+ * tree is listed completely. Only the listing runs in parallel (ahead of the consumer), the files are streamed
+ * depth-first with the entries of every directory sorted by name, which keeps their order independent of the
+ * scheduling of the tasks. At most {@code readAhead} directories are listed ahead of the consumer, the remaining
+ * ones are listed as the consumer catches up, so a walk which is not (or only partly) consumed does not list (and
+ * hold) the whole tree.
+ */
+final class ParallelFileWalker {
+
+    private static final Comparator<Entry> BY_NAME = Comparator.comparing(entry -> entry.path().getFileName());
+
+    private final ForkJoinPool pool;
+
+    private final int readAhead;
+
+    private final Predicate<Path> directoryFilter;
+
+    private final Predicate<Path> fileFilter;
+
+    /**
+     * @param readAhead how many directories may be listed before the consumer of the walk reaches them
+     * @param directoryFilter decides whether a directory (other than the start directory) is descended into
+     * @param fileFilter decides whether a regular file is part of the result
+     */
+    ParallelFileWalker(
+            @NotNull ForkJoinPool pool,
+            int readAhead,
+            @NotNull Predicate<Path> directoryFilter,
+            @NotNull Predicate<Path> fileFilter) {
+        if (readAhead < 1) {
+            throw new IllegalArgumentException("readAhead must be positive, but was " + readAhead);
+        }
+        this.pool = Objects.requireNonNull(pool);
+        this.readAhead = readAhead;
+        this.directoryFilter = Objects.requireNonNull(directoryFilter);
+        this.fileFilter = Objects.requireNonNull(fileFilter);
+    }
+
+    /**
+     * Starts walking the tree in the background.
+     */
+    Walk walk(@NotNull Path startDir) {
+        Walk walk = new Walk(this);
+        if (Files.isDirectory(startDir)) {
+            walk.root = walk.list(startDir);
+        } else {
+            walk.root = Listing.completed(new ArrayList<>());
+            walk.done.complete(0);
+        }
+        return walk;
+    }
+
+    /**
+     * @return a walk which already completed with the given files
+     */
+    static Walk completed(@NotNull List<Path> files) {
+        Walk walk = new Walk(null);
+        walk.root = Listing.completed(files.stream()
+                .map(file -> new Entry(file, null))
+                .collect(Collectors.toCollection(ArrayList::new)));
+        walk.done.complete(files.size());
+        return walk;
+    }
+
+    static final class Walk {
+
+        private final @Nullable ParallelFileWalker walker; // null if the walk is completed from the start
+
+        private final AtomicInteger pendingDirectories = new AtomicInteger();
+
+        private final AtomicInteger fileCount = new AtomicInteger();
+
+        private final CompletableFuture<Integer> done = new CompletableFuture<>();
+
+        private final AtomicInteger listedAhead = new AtomicInteger();
+
+        private final Queue<Listing> deferred = new ConcurrentLinkedQueue<>();
+
+        private final AtomicBoolean consumed = new AtomicBoolean();
+
+        private Listing root;
+
+        private Walk(@Nullable ParallelFileWalker walker) {
+            this.walker = walker;
+        }
+
+        /**
+         * @return the files found by the walk, waiting for the directories they are in to be listed. Each call
+         * streams all of them again, without listing any directory twice.
+         */
+        Stream<Path> files() {
+            if (consumed.get()) {
+                throw new IllegalStateException("The walk was already consumed");
+            }
+            return stream(false);
+        }
+
+        /**
+         * @return the files found by the walk like {@link #files()}, but every directory listing is released as soon
+         * as it was streamed. The walk cannot be streamed again afterwards.
+         */
+        Stream<Path> consumeFiles() {
+            if (!consumed.compareAndSet(false, true)) {
+                throw new IllegalStateException("The walk was already consumed");
+            }
+            return stream(true);
+        }
+
+        /**
+         * @return completes with the number of files found, as soon as all directories are listed
+         */
+        CompletableFuture<Integer> done() {
+            return done;
+        }
+
+        private Stream<Path> stream(boolean release) {
+            Iterator<Path> iterator = new Iterator<>() {
+                private final Deque<Cursor> directories = new ArrayDeque<>();
+
+                private boolean started;
+
+                private @Nullable Path next;
+
+                @Override
+                public boolean hasNext() {
+                    if (!started) {
+                        directories.push(new Cursor(await(root), release));
+                        started = true;
+                    }
+                    while (next == null && !directories.isEmpty()) {
+                        Entry entry = directories.peek().next();
+                        if (entry == null) {
+                            directories.pop();
+                        } else if (entry.subdirectory() == null) {
+                            next = entry.path();
+                        } else {
+                            directories.push(new Cursor(await(entry.subdirectory()), release));
+                        }
+                    }
+                    return next != null;
+                }
+
+                @Override
+                public Path next() {
+                    if (!hasNext()) {
+                        throw new NoSuchElementException();
+                    }
+                    Path file = next;
+                    next = null;
+                    return file;
+                }
+            };
+            return StreamSupport.stream(Spliterators.spliteratorUnknownSize(iterator, Spliterator.ORDERED), false);
+        }
+
+        /**
+         * @return the entries of the listing, listing the directory right away if it was not listed ahead
+         */
+        private List<Entry> await(Listing listing) {
+            listing.start(false);
+            List<Entry> entries = join(listing.entries);
+            if (listing.ahead.compareAndSet(true, false)) {
+                listedAhead.decrementAndGet();
+                startDeferred();
+            }
+            return entries;
+        }
+
+        private Listing list(Path dir) {
+            pendingDirectories.incrementAndGet();
+            Listing listing = new Listing(this, dir);
+            if (tryListAhead()) {
+                listing.start(true);
+            } else {
+                deferred.add(listing);
+            }
+            return listing;
+        }
+
+        private boolean tryListAhead() {
+            if (listedAhead.incrementAndGet() <= Objects.requireNonNull(walker).readAhead) {
+                return true;
+            }
+            listedAhead.decrementAndGet();
+            return false;
+        }
+
+        private void startDeferred() {
+            while (!deferred.isEmpty() && tryListAhead()) {
+                Listing next = deferred.poll();
+                if (next == null || !next.start(true)) {
+                    listedAhead.decrementAndGet(); // already started by the consumer
+                }
+            }
+        }
+
+        private void listInBackground(Listing listing) {
+            Objects.requireNonNull(walker).pool.execute(() -> {
+                try {
+                    List<Entry> entries = listEntries(listing.dir);
+                    // completed before the listing, so it is done by the time the last file was streamed
+                    if (pendingDirectories.decrementAndGet() == 0) {
+                        done.complete(fileCount.get());
+                    }
+                    listing.entries.complete(entries);
+                } catch (RuntimeException e) {
+                    done.completeExceptionally(e);
+                    listing.entries.completeExceptionally(e);
+                }
+            });
+        }
+
+        private List<Entry> listEntries(Path dir) {
+            Objects.requireNonNull(walker);
+            List<Entry> entries = new ArrayList<>();
+            try (DirectoryStream<Path> directoryEntries = Files.newDirectoryStream(dir)) {
+                for (Path entry : directoryEntries) {
+                    BasicFileAttributes attributes =
+                            Files.readAttributes(entry, BasicFileAttributes.class, LinkOption.NOFOLLOW_LINKS);
+                    if (attributes.isDirectory()) {
+                        if (walker.directoryFilter.test(entry)) {
+                            entries.add(new Entry(entry, list(entry)));
+                        }
+                    } else if ((attributes.isRegularFile() || Files.isRegularFile(entry))
+                            && walker.fileFilter.test(entry)) {
+                        entries.add(new Entry(entry, null));
+                        fileCount.incrementAndGet();
+                    }
+                }
+            } catch (IOException e) {
+                throw ThrowingEx.asRuntime(e);
+            }
+            entries.sort(BY_NAME);
+            return entries;
+        }
+    }
+
+    /**
+     * The listing of a directory, which is started either ahead of the consumer or once the consumer reaches it.
+     */
+    private static final class Listing {
+
+        private final @Nullable Walk walk;
+
+        private final @Nullable Path dir;
+
+        private final CompletableFuture<List<Entry>> entries = new CompletableFuture<>();
+
+        private final AtomicBoolean started = new AtomicBoolean();
+
+        /** whether the listing was started ahead of the consumer and still counts towards the read-ahead */
+        private final AtomicBoolean ahead = new AtomicBoolean();
+
+        private Listing(@Nullable Walk walk, @Nullable Path dir) {
+            this.walk = walk;
+            this.dir = dir;
+        }
+
+        static Listing completed(@NotNull List<Entry> entries) {
+            Listing listing = new Listing(null, null);
+            listing.started.set(true);
+            listing.entries.complete(entries);
+            return listing;
+        }
+
+        /**
+         * @return {@code true} if the listing was started by this call
+         */
+        boolean start(boolean listAhead) {
+            if (!started.compareAndSet(false, true)) {
+                return false;
+            }
+            ahead.set(listAhead);
+            Objects.requireNonNull(walk).listInBackground(this);
+            return true;
+        }
+    }
+
+    /**
+     * The entries of a directory listing in the order they are streamed.
+     *
+     * @param release whether every entry is dropped from the listing once it was streamed
+     */
+    private static final class Cursor {
+
+        private final List<Entry> entries;
+
+        private final boolean release;
+
+        private int index;
+
+        Cursor(List<Entry> entries, boolean release) {
+            this.entries = entries;
+            this.release = release;
+        }
+
+        @Nullable
+        Entry next() {
+            if (index == entries.size()) {
+                return null;
+            }
+            Entry entry = entries.get(index);
+            if (release) {
+                entries.set(index, null);
+            }
+            index++;
+            return entry;
+        }
+    }
+
+    private static List<Entry> join(CompletableFuture<List<Entry>> listing) {
+        try {
+            return listing.join();
+        } catch (CompletionException e) {
+            throw e.getCause() instanceof RuntimeException cause ? cause : e;
+        }
+    }
+
+    /**
+     * @param subdirectory the listing of the directory, {@code null} for a file
+     */
+    private record Entry(Path path, @Nullable Listing subdirectory) {}
+}
@@ -0,0 +1,227 @@
+/*
+ * Copyright 2026 DiffPlug
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.diffplug.spotless.cli.core;
+
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.Base64;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Client of an HTTP build cache (e.g. a Gradle build cache node) to share formatting results between machines: an
+ * entry is read with {@code GET <url>/<key>} (a 404 is a miss) and stored with {@code PUT <url>/<key>}.
+ * <p>
+ * The cache is optional in every respect: once a request fails to reach it, it is not used for the rest of the run
+ * and the files are formatted as if there was no remote cache.
+ */
+public final class RemoteFormattedContentCache implements AutoCloseable {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(RemoteFormattedContentCache.class);
+
+    private static final Duration CONNECT_TIMEOUT = Duration.ofSeconds(5);
+
+    private static final Duration REQUEST_TIMEOUT = Duration.ofSeconds(10);
+
+    /** the requests in flight at once, lookups beyond wait for a free slot before they are sent */
+    static final int MAX_CONCURRENT_REQUESTS = 16;
+
+    private static final RemoteFormattedContentCache NONE = new RemoteFormattedContentCache(null, null, false, null);
+
+    private final @Nullable URI baseUri;
+
+    private final @Nullable HttpClient httpClient;
+
+    private final boolean push;
+
+    private final @Nullable String authorization;
+
+    private final Semaphore requestSlots = new Semaphore(MAX_CONCURRENT_REQUESTS);
+
+    private final Queue<CompletableFuture<?>> pendingPuts = new ConcurrentLinkedQueue<>();
+
+    private volatile boolean unreachable;
+
+    private RemoteFormattedContentCache(
+            @Nullable URI baseUri, @Nullable HttpClient httpClient, boolean push, @Nullable String authorization) {
+        this.baseUri = baseUri;
+        this.httpClient = httpClient;
+        this.push = push;
+        this.authorization = authorization;
+    }
+
+    public static RemoteFormattedContentCache none() {
+        return NONE;
+    }
+
+    /**
+     * @param uri the base url of the cache, credentials for basic authentication can be given as its user info
+     * @param push whether to store entries, or only read them
+     */
+    public static RemoteFormattedContentCache create(@NotNull URI uri, boolean push) {
+        if (!"http".equalsIgnoreCase(uri.getScheme()) && !"https".equalsIgnoreCase(uri.getScheme())) {
+            throw new IllegalArgumentException("Expected an http or https url, but was '" + uri + "'");
+        }
+        String authorization = null;
+        URI baseUri = uri;
+        if (uri.getRawUserInfo() != null) {
+            authorization = "Basic "
+                    + Base64.getEncoder().encodeToString(uri.getUserInfo().getBytes(StandardCharsets.UTF_8));
+            baseUri = URI.create(uri.toString().replace(uri.getRawUserInfo() + "@", ""));
+        }
+        if (!baseUri.toString().endsWith("/")) {
+            baseUri = URI.create(baseUri + "/"); // keys are resolved against it
+        }
+        HttpClient httpClient = HttpClient.newBuilder()
+                .connectTimeout(CONNECT_TIMEOUT)
+                .followRedirects(HttpClient.Redirect.NORMAL)
+                .build();
+        return new RemoteFormattedContentCache(baseUri, httpClient, push, authorization);
+    }
+
+    public boolean isEnabled() {
+        return baseUri != null && !unreachable;
+    }
+
+    /**
+     * Looks up all the keys at once, with up to {@link #MAX_CONCURRENT_REQUESTS} requests in flight.
+     *
+     * @return the entries found, by key
+     */
+    public Map<String, byte[]> getAll(@NotNull Collection<String> keys) {
+        Map<String, byte[]> entries = new LinkedHashMap<>();
+        if (!isEnabled() || keys.isEmpty()) {
+            return entries;
+        }
+        Map<String, CompletableFuture<HttpResponse<byte[]>>> responses = new LinkedHashMap<>();
+        for (String key : keys) {
+            if (!isEnabled()) {
+                break;
+            }
+            HttpRequest request = request(key).GET().build();
+            responses.put(key, send(request, HttpResponse.BodyHandlers.ofByteArray()));
+        }
+        responses.forEach((key, response) -> {
+            HttpResponse<byte[]> completed = await(response);
+            if (completed == null) {
+                return;
+            }
+            if (completed.statusCode() == 200) {
+                entries.put(key, completed.body());
+            } else if (completed.statusCode() != 404) {
+                LOGGER.debug("Remote cache answered {} for {}", completed.statusCode(), completed.uri());
+            }
+        });
+        LOGGER.debug("Found {} of {} entries in the remote cache", entries.size(), keys.size());
+        return entries;
+    }
+
+    /**
+     * Stores the entry in the background if pushing is enabled, {@link #close()} waits for it.
+     */
+    public void put(@NotNull String key, byte[] entry) {
+        if (!push || !isEnabled()) {
+            return;
+        }
+        HttpRequest request = request(key)
+                .header("Content-Type", "application/octet-stream")
+                .PUT(HttpRequest.BodyPublishers.ofByteArray(entry))
+                .build();
+        CompletableFuture<HttpResponse<Void>> response = send(request, HttpResponse.BodyHandlers.discarding());
+        pendingPuts.add(response.whenComplete((completed, e) -> {
+            if (completed != null && completed.statusCode() / 100 != 2) {
+                LOGGER.debug("Remote cache answered {} to storing {}", completed.statusCode(), completed.uri());
+            }
+        }));
+    }
+
+    private HttpRequest.Builder request(String key) {
+        HttpRequest.Builder request = HttpRequest.newBuilder(baseUri.resolve(key)).timeout(REQUEST_TIMEOUT);
+        if (authorization != null) {
+            request.header("Authorization", authorization);
+        }
+        return request;
+    }
+
+    private <T> CompletableFuture<HttpResponse<T>> send(HttpRequest request, HttpResponse.BodyHandler<T> bodyHandler) {
+        try {
+            requestSlots.acquire();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return CompletableFuture.failedFuture(e);
+        }
+        return httpClient.sendAsync(request, bodyHandler).whenComplete((response, e) -> {
+            requestSlots.release();
+            if (e != null) {
+                markUnreachable(e);
+            }
+        });
+    }
+
+    private <T> @Nullable HttpResponse<T> await(CompletableFuture<HttpResponse<T>> response) {
+        try {
+            return response.get(REQUEST_TIMEOUT.toMillis(), TimeUnit.MILLISECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return null;
+        } catch (ExecutionException | TimeoutException e) {
+            markUnreachable(e instanceof ExecutionException ? e.getCause() : e);
+            return null;
+        }
+    }
+
+    private void markUnreachable(Throwable e) {
+        if (!unreachable) {
+            unreachable = true;
+            LOGGER.warn("Remote cache {} is unreachable, formatting without it: {}", baseUri, e.toString());
+        }
+    }
+
+    /**
+     * Waits for the entries which are still being stored.
+     */
+    @Override
+    public void close() {
+        CompletableFuture<?> pendingPut;
+        while ((pendingPut = pendingPuts.poll()) != null) {
+            try {
+                pendingPut.get(REQUEST_TIMEOUT.toMillis(), TimeUnit.MILLISECONDS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            } catch (ExecutionException | TimeoutException e) {
+                // already logged, the entry is just not shared
+            }
+        }
+    }
+}
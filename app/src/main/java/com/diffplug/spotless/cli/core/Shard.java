@@ -0,0 +1,88 @@
+/*
+ * Copyright 2026 DiffPlug
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.diffplug.spotless.cli.core;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.util.Objects;
+
+import org.jetbrains.annotations.NotNull;
+
+import com.diffplug.common.hash.Hashing;
+
+/**
+ * One of {@code count} disjoint parts of the targets, so that a large tree can be formatted by several jobs (e.g. on
+ * CI) at once.
+ * <p>
+ * A file belongs to the shard given by a stable hash of its path relative to the base directory, so every job
+ * assigns every file to the same shard without coordination, independent of the order in which files are found.
+ *
+ * @param index the 1-based index of the shard
+ * @param count the number of shards
+ */
+public record Shard(int index, int count) {
+
+    public Shard {
+        if (count < 1) {
+            throw new IllegalArgumentException("The number of shards must be > 0, was " + count);
+        }
+        if (index < 1 || index > count) {
+            throw new IllegalArgumentException("The shard index must be between 1 and " + count + ", was " + index);
+        }
+    }
+
+    /**
+     * @param shard in the form {@code <index>/<count>}, e.g. {@code 2/4}
+     * @throws IllegalArgumentException if the shard is malformed
+     */
+    public static Shard parse(@NotNull String shard) {
+        Objects.requireNonNull(shard);
+        int separator = shard.indexOf('/');
+        if (separator < 0) {
+            throw new IllegalArgumentException("Expected <index>/<count>, e.g. '2/4', but was '" + shard + "'");
+        }
+        try {
+            return new Shard(
+                    Integer.parseInt(shard.substring(0, separator).trim()),
+                    Integer.parseInt(shard.substring(separator + 1).trim()));
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException("Expected <index>/<count>, e.g. '2/4', but was '" + shard + "'", e);
+        }
+    }
+
+    /**
+     * @return {@code true} if the file belongs to this shard
+     */
+    public boolean contains(@NotNull Path baseDir, @NotNull Path file) {
+        return shardOf(FilePathUtil.relativeUnixPath(baseDir, file)) == index;
+    }
+
+    /**
+     * @return the (1-based) shard of the given relative path, using '/' as separator on all platforms
+     */
+    int shardOf(@NotNull String relativePath) {
+        byte[] hash = Hashing.murmur3_128()
+                .hashBytes(relativePath.getBytes(StandardCharsets.UTF_8))
+                .asBytes();
+        return (int) Math.floorMod(ByteBuffer.wrap(hash).getLong(), (long) count) + 1;
+    }
+
+    @Override
+    public String toString() {
+        return index + "/" + count;
+    }
+}
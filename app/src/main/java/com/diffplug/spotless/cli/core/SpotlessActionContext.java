@@ -28,23 +28,35 @@ public class SpotlessActionContext {
     private final TargetFileTypeInferer.TargetFileType targetFileType;
     private final FileResolver fileResolver;
     private final ExecutionLayout executionLayout;
+    private final StepRoutes stepRoutes;
 
     private SpotlessActionContext(
             @NotNull TargetFileTypeInferer.TargetFileType targetFileType,
             @NotNull FileResolver fileResolver,
-            @NotNull SpotlessCommandLineStream commandLineStream) {
+            @NotNull SpotlessCommandLineStream commandLineStream,
+            @NotNull StepRoutes stepRoutes) {
         this.targetFileType = Objects.requireNonNull(targetFileType);
         this.fileResolver = Objects.requireNonNull(fileResolver);
         this.executionLayout = ExecutionLayout.create(fileResolver, Objects.requireNonNull(commandLineStream));
+        this.stepRoutes = Objects.requireNonNull(stepRoutes);
     }
 
     public SpotlessActionContext(
             @NotNull TargetFileTypeInferer.TargetFileType targetFileType,
             @NotNull FileResolver fileResolver,
             @NotNull ExecutionLayout executionLayout) {
+        this(targetFileType, fileResolver, executionLayout, StepRoutes.none());
+    }
+
+    private SpotlessActionContext(
+            @NotNull TargetFileTypeInferer.TargetFileType targetFileType,
+            @NotNull FileResolver fileResolver,
+            @NotNull ExecutionLayout executionLayout,
+            @NotNull StepRoutes stepRoutes) {
         this.targetFileType = targetFileType;
         this.fileResolver = fileResolver;
         this.executionLayout = executionLayout;
+        this.stepRoutes = stepRoutes;
     }
 
     @NotNull public TargetFileTypeInferer.TargetFileType targetFileType() {
@@ -67,18 +79,36 @@ public class SpotlessActionContext {
         return executionLayout;
     }
 
+    public StepRoutes stepRoutes() {
+        return stepRoutes;
+    }
+
     public static Builder builder() {
         return new Builder();
     }
 
     public SpotlessActionContext deriveContext(Integer deriveId) {
-        return new SpotlessActionContext(targetFileType, fileResolver, executionLayout.deriveLayout(deriveId));
+        return new SpotlessActionContext(
+                targetFileType, fileResolver, executionLayout.deriveLayout(deriveId), stepRoutes);
+    }
+
+    /**
+     * @return the context for preparing the given step, its target file type is the one of the files it is routed to
+     * (if they share an extension)
+     */
+    public SpotlessActionContext forStep(String stepName) {
+        return stepRoutes
+                .targetFileTypeFor(stepName)
+                .map(routedFileType ->
+                        new SpotlessActionContext(routedFileType, fileResolver, executionLayout, stepRoutes))
+                .orElse(this);
     }
 
     public static class Builder {
         private TargetFileTypeInferer.TargetFileType targetFileType;
         private FileResolver fileResolver;
         private SpotlessCommandLineStream commandLineStream;
+        private StepRoutes stepRoutes = StepRoutes.none();
 
         public Builder targetFileType(TargetFileTypeInferer.TargetFileType targetFileType) {
             this.targetFileType = targetFileType;
@@ -95,8 +125,13 @@ public class SpotlessActionContext {
             return this;
         }
 
+        public Builder stepRoutes(StepRoutes stepRoutes) {
+            this.stepRoutes = stepRoutes;
+            return this;
+        }
+
         public SpotlessActionContext build() {
-            return new SpotlessActionContext(targetFileType, fileResolver, commandLineStream);
+            return new SpotlessActionContext(targetFileType, fileResolver, commandLineStream, stepRoutes);
         }
     }
 }
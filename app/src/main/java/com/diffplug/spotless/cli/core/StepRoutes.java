@@ -0,0 +1,187 @@
+/*
+ * Copyright 2026 DiffPlug
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.diffplug.spotless.cli.core;
+
+import java.io.File;
+import java.nio.file.FileSystems;
+import java.nio.file.Path;
+import java.nio.file.PathMatcher;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Locale;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.Set;
+import java.util.function.Predicate;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+import org.jetbrains.annotations.NotNull;
+
+import com.diffplug.spotless.cli.steps.SpotlessCLIFormatterStep;
+
+import picocli.CommandLine;
+
+/**
+ * Routes files to the steps given for them, so that a single run can format several languages: a route
+ * {@code *.java=google-java-format,license-header} sends all java files through these two steps.
+ * <p>
+ * Steps named in a route only apply to the files matched by (one of) their routes, steps named in no route apply to
+ * all files. A glob without a separator is matched against the file name, otherwise against the path relative to the
+ * base directory.
+ */
+public final class StepRoutes {
+
+    private static final StepRoutes NONE = new StepRoutes(List.of());
+
+    private final List<Route> routes;
+
+    private StepRoutes(@NotNull List<Route> routes) {
+        this.routes = List.copyOf(routes);
+    }
+
+    public static StepRoutes none() {
+        return NONE;
+    }
+
+    /**
+     * @param routes in the form {@code <glob>=<step>[,<step>...]}
+     * @throws IllegalArgumentException if a route is malformed
+     */
+    public static StepRoutes parse(@NotNull Path baseDir, @NotNull List<String> routes) {
+        Objects.requireNonNull(baseDir);
+        return new StepRoutes(routes.stream().map(route -> Route.parse(baseDir, route)).toList());
+    }
+
+    public boolean isEmpty() {
+        return routes.isEmpty();
+    }
+
+    /**
+     * @throws IllegalArgumentException if a route names a step which is not part of the command line
+     */
+    public void validateStepNames(@NotNull Set<String> stepNames) {
+        for (Route route : routes) {
+            for (String stepName : route.stepNames()) {
+                if (!stepNames.contains(stepName)) {
+                    throw new IllegalArgumentException("Route '" + route.glob() + "' names step '" + stepName
+                            + "' which is not part of the command line, known steps: " + stepNames);
+                }
+            }
+        }
+    }
+
+    public boolean isRouted(@NotNull String stepName) {
+        return routes.stream().anyMatch(route -> route.stepNames().contains(stepName));
+    }
+
+    /**
+     * @return {@code true} if every one of the given steps is named in a route, so files matching no route are not
+     * formatted at all
+     */
+    public boolean routesAll(@NotNull Set<String> stepNames) {
+        return !routes.isEmpty() && stepNames.stream().allMatch(this::isRouted);
+    }
+
+    public boolean matchesAnyRoute(@NotNull Path file) {
+        return routes.stream().anyMatch(route -> route.matches(file));
+    }
+
+    /**
+     * @return the indices of the routes matching the file, files matching the same routes go through the same steps
+     */
+    public String matchingRoutes(@NotNull Path file) {
+        return IntStream.range(0, routes.size())
+                .filter(index -> routes.get(index).matches(file))
+                .mapToObj(Integer::toString)
+                .collect(Collectors.joining(","));
+    }
+
+    /**
+     * @return the files the given (routed) step applies to
+     */
+    public Predicate<File> filesFor(@NotNull String stepName) {
+        List<Route> stepRoutes = routes.stream()
+                .filter(route -> route.stepNames().contains(stepName))
+                .toList();
+        return file -> stepRoutes.stream().anyMatch(route -> route.matches(file.toPath()));
+    }
+
+    /**
+     * @return the file type of the files the given step is routed to, if all of its routes end with the same
+     * extension (e.g. {@code src/**}{@code /*.xml} and {@code *.xml})
+     */
+    public Optional<TargetFileTypeInferer.TargetFileType> targetFileTypeFor(@NotNull String stepName) {
+        Set<Optional<String>> extensions = routes.stream()
+                .filter(route -> route.stepNames().contains(stepName))
+                .map(Route::fileExtension)
+                .collect(Collectors.toSet());
+        if (extensions.size() != 1) {
+            return Optional.empty();
+        }
+        return extensions.iterator().next().map(TargetFileTypeInferer.TargetFileType::fromExtension);
+    }
+
+    /**
+     * @return the name the step is given on the command line (its subcommand name)
+     */
+    public static String stepName(@NotNull SpotlessCLIFormatterStep step) {
+        CommandLine.Command command = step.getClass().getAnnotation(CommandLine.Command.class);
+        return command != null && !command.name().isEmpty()
+                ? command.name()
+                : step.getClass().getSimpleName();
+    }
+
+    private record Route(String glob, Path baseDir, PathMatcher matcher, boolean matchFileName, Set<String> stepNames) {
+
+        static Route parse(Path baseDir, String route) {
+            int separator = route.lastIndexOf('=');
+            if (separator <= 0 || separator == route.length() - 1) {
+                throw new IllegalArgumentException(
+                        "Route '" + route + "' must have the form <glob>=<step>[,<step>...]");
+            }
+            String glob = route.substring(0, separator).trim();
+            Set<String> stepNames = Arrays.stream(route.substring(separator + 1).split(","))
+                    .map(String::trim)
+                    .filter(stepName -> !stepName.isEmpty())
+                    .collect(Collectors.toUnmodifiableSet());
+            boolean matchFileName = !glob.contains(File.separator);
+            PathMatcher matcher = FileSystems.getDefault().getPathMatcher("glob:" + glob);
+            return new Route(glob, baseDir, matcher, matchFileName, stepNames);
+        }
+
+        boolean matches(Path file) {
+            if (matchFileName) {
+                Path fileName = file.getFileName();
+                return fileName != null && matcher.matches(fileName);
+            }
+            return matcher.matches(file.isAbsolute() ? baseDir.toAbsolutePath().relativize(file) : file);
+        }
+
+        Optional<String> fileExtension() {
+            String lastSegment = glob.substring(glob.lastIndexOf(File.separator) + 1);
+            int lastDot = lastSegment.lastIndexOf('.');
+            if (lastDot == -1) {
+                return Optional.empty();
+            }
+            String extension = lastSegment.substring(lastDot + 1);
+            if (extension.isEmpty() || extension.chars().anyMatch(c -> "*?[]{}".indexOf(c) != -1)) {
+                return Optional.empty();
+            }
+            return Optional.of(extension.toLowerCase(Locale.ROOT));
+        }
+    }
+}
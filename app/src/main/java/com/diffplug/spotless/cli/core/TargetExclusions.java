@@ -0,0 +1,139 @@
+/*
+ * Copyright 2026 DiffPlug
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.diffplug.spotless.cli.core;
+
+import java.nio.file.FileSystems;
+import java.nio.file.Path;
+import java.nio.file.PathMatcher;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Objects;
+
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import com.diffplug.spotless.cli.git.GitRatchet;
+
+/**
+ * Files and directories which must not be formatted, even if they are matched by a target.
+ * <p>
+ * Exclusions are checked while walking the targets, so the content of an excluded directory is never visited.
+ */
+public final class TargetExclusions {
+
+    private static final TargetExclusions NONE = new TargetExclusions(Path.of(""), List.of(), List.of(), null, null);
+
+    private final Path baseDir;
+
+    private final List<PathMatcher> matchers;
+
+    private final List<PathMatcher> directoryMatchers;
+
+    private final @Nullable GitIgnore gitIgnore;
+
+    private final @Nullable GitRatchet ratchet;
+
+    private TargetExclusions(
+            @NotNull Path baseDir,
+            @NotNull List<PathMatcher> matchers,
+            @NotNull List<PathMatcher> directoryMatchers,
+            @Nullable GitIgnore gitIgnore,
+            @Nullable GitRatchet ratchet) {
+        this.baseDir = Objects.requireNonNull(baseDir);
+        this.matchers = Objects.requireNonNull(matchers);
+        this.directoryMatchers = Objects.requireNonNull(directoryMatchers);
+        this.gitIgnore = gitIgnore;
+        this.ratchet = ratchet;
+    }
+
+    public static TargetExclusions none() {
+        return NONE;
+    }
+
+    /**
+     * @param baseDir the directory the exclude globs are relative to
+     * @param excludes globs of files to exclude, a glob ending in {@code /**} also excludes the directory itself and
+     * a glob starting with {@code **}{@code /} also matches directly within the base directory
+     * @param respectGitignore whether files ignored by git are excluded as well
+     */
+    public static TargetExclusions of(@NotNull Path baseDir, @Nullable List<String> excludes, boolean respectGitignore) {
+        List<PathMatcher> matchers = new ArrayList<>();
+        List<PathMatcher> directoryMatchers = new ArrayList<>();
+        for (String exclude : excludes == null ? List.<String>of() : excludes) {
+            List<String> globs = exclude.startsWith("**/") ? List.of(exclude, exclude.substring(3)) : List.of(exclude);
+            for (String glob : globs) {
+                matchers.add(globMatcher(glob));
+                if (glob.endsWith("/**")) {
+                    directoryMatchers.add(globMatcher(glob.substring(0, glob.length() - 3)));
+                }
+            }
+        }
+        if (matchers.isEmpty() && !respectGitignore) {
+            return NONE;
+        }
+        return new TargetExclusions(
+                baseDir.toAbsolutePath().normalize(),
+                List.copyOf(matchers),
+                List.copyOf(directoryMatchers),
+                respectGitignore ? GitIgnore.forWorkingTreeOf(baseDir) : null,
+                null);
+    }
+
+    /**
+     * @return these exclusions, additionally excluding all files whose content did not change since the revision of
+     * the ratchet
+     */
+    public TargetExclusions unchangedSince(@NotNull GitRatchet ratchet) {
+        return new TargetExclusions(baseDir, matchers, directoryMatchers, gitIgnore, Objects.requireNonNull(ratchet));
+    }
+
+    public boolean excludesFile(@NotNull Path file) {
+        if (this == NONE) {
+            return false;
+        }
+        Path relativePath = relativize(file);
+        if (relativePath != null && matchers.stream().anyMatch(matcher -> matcher.matches(relativePath))) {
+            return true;
+        }
+        if (gitIgnore != null && gitIgnore.isIgnored(file, false)) {
+            return true;
+        }
+        // checked last, as it might need to read the file
+        return ratchet != null && !ratchet.isChanged(file);
+    }
+
+    public boolean excludesDirectory(@NotNull Path dir) {
+        if (this == NONE) {
+            return false;
+        }
+        Path relativePath = relativize(dir);
+        if (relativePath != null
+                && (matchers.stream().anyMatch(matcher -> matcher.matches(relativePath))
+                        || directoryMatchers.stream().anyMatch(matcher -> matcher.matches(relativePath)))) {
+            return true;
+        }
+        return gitIgnore != null && gitIgnore.isIgnored(dir, true);
+    }
+
+    private @Nullable Path relativize(Path path) {
+        Path absolutePath = path.toAbsolutePath().normalize();
+        return absolutePath.startsWith(baseDir) ? baseDir.relativize(absolutePath) : null;
+    }
+
+    private static PathMatcher globMatcher(String glob) {
+        return FileSystems.getDefault().getPathMatcher("glob:" + glob);
+    }
+}
@@ -30,9 +30,9 @@ public class TargetFileTypeInferer {
 
     public TargetFileType inferTargetFileType() {
         return targetResolver
-                .resolveTargets()
+                .peekTargets()
                 .limit(5) // only check the first n files
-                .map(this::inferFileType)
+                .map(TargetFileTypeInferer::inferTargetFileType)
                 .reduce(this::reduceFileType)
                 .orElseGet(TargetFileType::unknown);
     }
@@ -44,7 +44,7 @@ public class TargetFileTypeInferer {
         return TargetFileType.unknown();
     }
 
-    private TargetFileType inferFileType(@NotNull java.nio.file.Path path) {
+    public static TargetFileType inferTargetFileType(@NotNull java.nio.file.Path path) {
         String fileName = path.getFileName().toString();
         int lastDotIndex = fileName.lastIndexOf('.');
         if (lastDotIndex == -1) {
@@ -82,7 +82,7 @@ public class TargetFileTypeInferer {
             return Objects.hashCode(fileExtension);
         }
 
-        static TargetFileType unknown() {
+        public static TargetFileType unknown() {
             return new TargetFileType(null);
         }
 
@@ -16,12 +16,20 @@
 package com.diffplug.spotless.cli.core;
 
 import java.io.File;
+import java.io.IOException;
 import java.nio.file.FileSystems;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.PathMatcher;
+import java.util.LinkedHashSet;
 import java.util.List;
+import java.util.Map;
 import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinWorkerThread;
+import java.util.function.Predicate;
 import java.util.regex.Pattern;
 import java.util.stream.Collectors;
 import java.util.stream.Stream;
@@ -30,7 +38,7 @@ import org.jetbrains.annotations.NotNull;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
-import com.diffplug.spotless.ThrowingEx;
+import com.diffplug.spotless.cli.profile.TargetResolvedEvent;
 
 public class TargetResolver {
 
@@ -38,17 +46,62 @@ public class TargetResolver {
 
     private final List<String> targets;
     private final FileResolver fileResolver;
+    private final TargetExclusions exclusions;
+
+    /** How many directories are listed ahead of the consumer of the resolved targets. */
+    private static final int READ_AHEAD_DIRECTORIES = 256;
+
+    // the walks of peeked targets, replayed (and released) by the next resolution of the targets
+    private final Map<String, ParallelFileWalker.Walk> peekedTargets = new ConcurrentHashMap<>();
 
     public TargetResolver(@NotNull Path baseDir, @NotNull List<String> targets) {
+        this(baseDir, targets, TargetExclusions.none());
+    }
+
+    public TargetResolver(
+            @NotNull Path baseDir, @NotNull List<String> targets, @NotNull TargetExclusions exclusions) {
         this.fileResolver = new FileResolver(baseDir);
         this.targets = Objects.requireNonNull(targets);
+        this.exclusions = Objects.requireNonNull(exclusions);
     }
 
+    /**
+     * @return the files of the targets, streamed while the targets are still being walked
+     */
     public Stream<Path> resolveTargets() {
         return targets.stream().flatMap(this::resolveTarget);
     }
 
+    /**
+     * Like {@link #resolveTargets()}, but the walks are kept, so the next call of {@link #resolveTargets()} replays
+     * them instead of walking the targets again (e.g. to infer the file type from the first files).
+     */
+    public Stream<Path> peekTargets() {
+        return targets.stream()
+                .flatMap(target -> peekedTargets.computeIfAbsent(target, this::walkTarget).files());
+    }
+
     private Stream<Path> resolveTarget(String target) {
+        ParallelFileWalker.Walk peeked = peekedTargets.remove(target);
+        return (peeked != null ? peeked : walkTarget(target)).consumeFiles();
+    }
+
+    private ParallelFileWalker.Walk walkTarget(String target) {
+        TargetResolvedEvent event = new TargetResolvedEvent();
+        event.begin();
+        ParallelFileWalker.Walk walk = resolveTargetFiles(target);
+        walk.done().thenAccept(count -> {
+            event.end();
+            if (event.shouldCommit()) {
+                event.target = target;
+                event.count = count;
+                event.commit();
+            }
+        });
+        return walk;
+    }
+
+    private ParallelFileWalker.Walk resolveTargetFiles(String target) {
         boolean isGlob = target.contains("*") || target.contains("?");
         if (isGlob) {
             LOGGER.debug("Resolving target as glob: {}", target);
@@ -57,41 +110,181 @@ public class TargetResolver {
         Path targetPath = fileResolver.resolvePath(Path.of(target));
         if (Files.isRegularFile(targetPath) && Files.isReadable(targetPath)) {
             LOGGER.debug("Resolving target as file: {}", target);
-            return Stream.of(targetPath);
+            if (exclusions.excludesFile(targetPath)) {
+                LOGGER.info("Target is excluded: {}", target);
+                return ParallelFileWalker.completed(List.of());
+            }
+            return ParallelFileWalker.completed(List.of(targetPath));
         }
         if (Files.isDirectory(targetPath)) {
             LOGGER.debug("Resolving target as directory: {}", target);
             return resolveDir(targetPath);
         }
         LOGGER.info("Target not found: {}", target);
-        return Stream.empty();
+        return ParallelFileWalker.completed(List.of());
     }
 
-    private Stream<Path> resolveDir(Path startDir) {
-        return ThrowingEx.get(() -> Files.walk(startDir)).filter(Files::isRegularFile);
+    private ParallelFileWalker.Walk resolveDir(Path startDir) {
+        return walk(startDir, dir -> true, file -> true);
     }
 
-    private Stream<Path> resolveGlob(String glob) {
+    private ParallelFileWalker.Walk resolveGlob(String glob) {
+        TargetScope scope = globScope(glob);
+        return walk(scope.startDir(), scope.directoryFilter(), scope.fileFilter());
+    }
+
+    private TargetScope globScope(String glob) {
         // Split the glob into directory parts and the glob pattern.
         String[] parts = glob.split(Pattern.quote(File.separator));
         List<String> startDirParts =
                 Stream.of(parts).takeWhile(part -> !isGlobPathPart(part)).toList();
 
         Path startDir = Path.of(
-                glob.startsWith(File.separator)
-                        ? File.separator
-                        : fileResolver.baseDir().toString(),
-                startDirParts.toArray(String[]::new));
+                        glob.startsWith(File.separator)
+                                ? File.separator
+                                : fileResolver.baseDir().toString(),
+                        startDirParts.toArray(String[]::new))
+                .normalize(); // so are the files below it
         String globPart = Stream.of(parts).skip(startDirParts.size()).collect(Collectors.joining(File.separator));
 
         final PathMatcher matcher = FileSystems.getDefault().getPathMatcher("glob:" + globPart);
-        return ThrowingEx.get(() -> Files.walk(startDir))
-                .filter(Files::isRegularFile)
-                .filter(path -> matcher.matches(startDir.relativize(path)))
-                .map(Path::normalize);
+        final GlobSegmentMatcher segmentMatcher = GlobSegmentMatcher.compile(globPart, File.separator);
+        return new TargetScope(
+                startDir,
+                dir -> segmentMatcher.mayContainMatches(startDir.relativize(dir)),
+                file -> matcher.matches(startDir.relativize(file)));
+    }
+
+    /**
+     * @return where the files of the target are (or would be) located, even if none of them exists yet
+     */
+    private TargetScope scopeOf(String target) {
+        if (target.contains("*") || target.contains("?")) {
+            return globScope(target);
+        }
+        Path targetPath = fileResolver.resolvePath(Path.of(target)).normalize();
+        if (Files.isDirectory(targetPath)) {
+            return new TargetScope(targetPath, dir -> true, file -> true);
+        }
+        Path parent = targetPath.toAbsolutePath().getParent();
+        return new TargetScope(parent, parent::equals, targetPath::equals);
+    }
+
+    /**
+     * @return the existing directories which contain (or may contain) files of the targets, e.g. to watch them
+     */
+    public Set<Path> targetDirectories() {
+        Set<Path> directories = new LinkedHashSet<>();
+        for (String target : targets) {
+            TargetScope scope = scopeOf(target);
+            if (Files.isDirectory(scope.startDir()) && !exclusions.excludesDirectory(scope.startDir())) {
+                collectDirectories(scope, scope.startDir(), directories);
+            }
+        }
+        return directories;
+    }
+
+    /**
+     * @return the given directory and its subdirectories which may contain files of the targets
+     */
+    public Set<Path> targetDirectoriesIn(@NotNull Path dir) {
+        Set<Path> directories = new LinkedHashSet<>();
+        for (String target : targets) {
+            TargetScope scope = scopeOf(target);
+            if (isInScope(scope, dir)) {
+                collectDirectories(scope, dir, directories);
+            }
+        }
+        return directories;
+    }
+
+    private void collectDirectories(TargetScope scope, Path dir, Set<Path> directories) {
+        if (!directories.add(dir.normalize())) {
+            return;
+        }
+        try (Stream<Path> children = Files.list(dir)) {
+            children.filter(Files::isDirectory)
+                    .filter(child -> scope.directoryFilter().test(child) && !exclusions.excludesDirectory(child))
+                    .forEach(child -> collectDirectories(scope, child, directories));
+        } catch (IOException e) {
+            LOGGER.debug("Could not list directory {}", dir, e);
+        }
+    }
+
+    /**
+     * @return {@code true} if the file would be resolved as one of the targets (regardless of whether it exists)
+     */
+    public boolean isTarget(@NotNull Path file) {
+        Path normalized = file.toAbsolutePath().normalize();
+        Path parent = normalized.getParent();
+        return parent != null
+                && !exclusions.excludesFile(normalized)
+                && targets.stream()
+                        .map(this::scopeOf)
+                        .anyMatch(scope -> isInScope(scope, parent) && scope.fileFilter().test(normalized));
+    }
+
+    /**
+     * @return {@code true} if the walk of the scope would descend into the directory
+     */
+    private boolean isInScope(TargetScope scope, Path dir) {
+        Path startDir = scope.startDir().toAbsolutePath().normalize();
+        Path normalized = dir.toAbsolutePath().normalize();
+        if (!normalized.startsWith(startDir)) {
+            return false;
+        }
+        for (Path current = normalized; current.startsWith(startDir); current = current.getParent()) {
+            if (exclusions.excludesDirectory(current)
+                    || (!current.equals(startDir) && !scope.directoryFilter().test(current))) {
+                return false;
+            }
+            if (current.equals(startDir)) {
+                break;
+            }
+        }
+        return true;
+    }
+
+    private ParallelFileWalker.Walk walk(Path startDir, Predicate<Path> directoryFilter, Predicate<Path> fileFilter) {
+        if (exclusions.excludesDirectory(startDir)) {
+            LOGGER.info("Target directory is excluded: {}", startDir);
+            return ParallelFileWalker.completed(List.of());
+        }
+        return new ParallelFileWalker(
+                        WalkerPool.INSTANCE,
+                        READ_AHEAD_DIRECTORIES,
+                        directoryFilter.and(dir -> !exclusions.excludesDirectory(dir)),
+                        fileFilter.and(file -> !exclusions.excludesFile(file)))
+                .walk(startDir);
     }
 
     private static boolean isGlobPathPart(String part) {
         return part.contains("*") || part.contains("?") || part.matches(".*\\[.*].*") || part.matches(".*\\{.*}.*");
     }
+
+    /**
+     * The pool listing the directories, kept apart from the common pool, which is shared with the formatting (e.g.
+     * parallel streams of formatter steps) and whose size is not under our control.
+     */
+    private static final class WalkerPool {
+
+        // listing is mostly waiting for the file system, so the number of processors is just a reasonable bound
+        static final ForkJoinPool INSTANCE = new ForkJoinPool(
+                Runtime.getRuntime().availableProcessors(),
+                pool -> {
+                    ForkJoinWorkerThread thread = ForkJoinPool.defaultForkJoinWorkerThreadFactory.newThread(pool);
+                    thread.setName("spotless-file-walker-" + thread.getPoolIndex());
+                    thread.setDaemon(true);
+                    return thread;
+                },
+                null,
+                false);
+    }
+
+    /**
+     * @param startDir where the walk for the files of a target starts
+     * @param directoryFilter the directories below the start dir the walk descends into
+     * @param fileFilter the files of the target
+     */
+    private record TargetScope(Path startDir, Predicate<Path> directoryFilter, Predicate<Path> fileFilter) {}
 }
@@ -0,0 +1,154 @@
+/*
+ * Copyright 2026 DiffPlug
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.diffplug.spotless.cli.core;
+
+import java.io.IOException;
+import java.nio.file.ClosedWatchServiceException;
+import java.nio.file.FileSystems;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardWatchEventKinds;
+import java.nio.file.WatchEvent;
+import java.nio.file.WatchKey;
+import java.nio.file.WatchService;
+import java.time.Duration;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+
+import org.jetbrains.annotations.NotNull;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.diffplug.spotless.ThrowingEx;
+
+/**
+ * Watches the directories of the targets for created and modified files.
+ * <p>
+ * Editors often write a file several times when saving it (or save several files at once), so the changes are
+ * collected until nothing changed for the debounce period and then handed out together, each file only once.
+ */
+public final class TargetWatcher implements AutoCloseable {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(TargetWatcher.class);
+
+    public static final Duration DEFAULT_DEBOUNCE = Duration.ofMillis(100);
+
+    /** the changes are handed out after this many debounce periods, even if the files keep changing */
+    private static final int MAX_DEBOUNCE_PERIODS = 10;
+
+    private final TargetResolver targetResolver;
+
+    private final Duration debounce;
+
+    private final WatchService watchService;
+
+    private final Set<Path> watchedDirectories = new HashSet<>();
+
+    private TargetWatcher(TargetResolver targetResolver, Duration debounce, WatchService watchService) {
+        this.targetResolver = targetResolver;
+        this.debounce = debounce;
+        this.watchService = watchService;
+    }
+
+    public static TargetWatcher start(@NotNull TargetResolver targetResolver) {
+        return start(targetResolver, DEFAULT_DEBOUNCE);
+    }
+
+    public static TargetWatcher start(@NotNull TargetResolver targetResolver, @NotNull Duration debounce) {
+        WatchService watchService = ThrowingEx.get(() -> FileSystems.getDefault().newWatchService());
+        TargetWatcher watcher = new TargetWatcher(
+                Objects.requireNonNull(targetResolver), Objects.requireNonNull(debounce), watchService);
+        targetResolver.targetDirectories().forEach(watcher::register);
+        LOGGER.debug("Watching {} directories for changes", watcher.watchedDirectories.size());
+        return watcher;
+    }
+
+    /**
+     * Blocks until at least one file of the targets was created or modified.
+     *
+     * @return the changed files which (still) exist and match the targets, never empty
+     */
+    public Set<Path> awaitChanges() throws InterruptedException {
+        while (true) {
+            Set<Path> changes = new LinkedHashSet<>();
+            collect(watchService.take(), changes);
+            long deadline = System.nanoTime() + debounce.toNanos() * MAX_DEBOUNCE_PERIODS;
+            WatchKey key;
+            while (System.nanoTime() < deadline
+                    && (key = watchService.poll(debounce.toNanos(), TimeUnit.NANOSECONDS)) != null) {
+                collect(key, changes);
+            }
+            changes.removeIf(file -> !Files.isRegularFile(file) || !targetResolver.isTarget(file));
+            if (!changes.isEmpty()) {
+                return changes;
+            }
+        }
+    }
+
+    private void collect(WatchKey key, Set<Path> changes) {
+        Path dir = (Path) key.watchable();
+        for (WatchEvent<?> event : key.pollEvents()) {
+            if (event.kind() == StandardWatchEventKinds.OVERFLOW) {
+                LOGGER.debug("Missed changes in {}, rescanning it", dir);
+                addFilesIn(dir, changes);
+                continue;
+            }
+            Path changed = dir.resolve((Path) event.context());
+            if (Files.isDirectory(changed)) {
+                // files may have been created in the new directory before it was registered
+                targetResolver.targetDirectoriesIn(changed).stream()
+                        .filter(this::register)
+                        .forEach(newDir -> addFilesIn(newDir, changes));
+            } else {
+                changes.add(changed);
+            }
+        }
+        if (!key.reset()) {
+            watchedDirectories.remove(dir);
+        }
+    }
+
+    private boolean register(Path dir) {
+        if (watchedDirectories.contains(dir)) {
+            return false;
+        }
+        try {
+            dir.register(watchService, StandardWatchEventKinds.ENTRY_CREATE, StandardWatchEventKinds.ENTRY_MODIFY);
+            watchedDirectories.add(dir);
+            return true;
+        } catch (IOException | ClosedWatchServiceException e) {
+            LOGGER.warn("Could not watch {} for changes", dir, e);
+            return false;
+        }
+    }
+
+    private static void addFilesIn(Path dir, Set<Path> changes) {
+        try (Stream<Path> files = Files.list(dir)) {
+            files.filter(Files::isRegularFile).forEach(changes::add);
+        } catch (IOException e) {
+            LOGGER.debug("Could not list directory {}", dir, e);
+        }
+    }
+
+    @Override
+    public void close() {
+        ThrowingEx.run(watchService::close);
+    }
+}
@@ -0,0 +1,189 @@
+/*
+ * Copyright 2026 DiffPlug
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.diffplug.spotless.cli.core;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.ConcurrentHashMap;
+
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.diffplug.spotless.ThrowingEx;
+
+/**
+ * On-disk index of files that were found to be clean in a previous run.
+ * <p>
+ * An index file belongs to exactly one step configuration (its name is the checksum of the command line), each
+ * entry records path, size, modification time and content hash of a clean file. A file is only considered
+ * up-to-date if all of them still match, so it is safe to skip formatting it.
+ */
+public final class UpToDateIndex {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(UpToDateIndex.class);
+
+    private static final String HEADER = "# spotless-cli up-to-date index v1";
+
+    private static final UpToDateIndex NONE = new UpToDateIndex(null, Map.of());
+
+    private final @Nullable Path indexFile;
+
+    private final ChecksumCalculator checksumCalculator = new ChecksumCalculator();
+
+    private final Map<String, Entry> entries;
+
+    private UpToDateIndex(@Nullable Path indexFile, @NotNull Map<String, Entry> entries) {
+        this.indexFile = indexFile;
+        this.entries = new ConcurrentHashMap<>(entries);
+    }
+
+    public static UpToDateIndex none() {
+        return NONE;
+    }
+
+    public static UpToDateIndex load(@NotNull Path indexFile) {
+        Objects.requireNonNull(indexFile);
+        if (!Files.isRegularFile(indexFile)) {
+            LOGGER.debug("No up-to-date index found at {}", indexFile);
+            return new UpToDateIndex(indexFile, Map.of());
+        }
+        try {
+            List<String> lines = Files.readAllLines(indexFile, StandardCharsets.UTF_8);
+            if (lines.isEmpty() || !HEADER.equals(lines.getFirst())) {
+                LOGGER.info("Ignoring up-to-date index with unknown format: {}", indexFile);
+                return new UpToDateIndex(indexFile, Map.of());
+            }
+            Map<String, Entry> entries = new ConcurrentHashMap<>();
+            lines.stream().skip(1).forEach(line -> {
+                String[] parts = line.split("\t", 4);
+                if (parts.length != 4) {
+                    return; // skip malformed lines
+                }
+                entries.put(parts[3], new Entry(Long.parseLong(parts[0]), Long.parseLong(parts[1]), parts[2]));
+            });
+            LOGGER.debug("Loaded up-to-date index with {} entries from {}", entries.size(), indexFile);
+            return new UpToDateIndex(indexFile, entries);
+        } catch (IOException | NumberFormatException e) {
+            LOGGER.warn("Could not read up-to-date index, starting with an empty one: {}", indexFile, e);
+            return new UpToDateIndex(indexFile, Map.of());
+        }
+    }
+
+    public boolean isEnabled() {
+        return indexFile != null;
+    }
+
+    /**
+     * @return {@code true} if the file was recorded as clean and neither its size, modification time nor content
+     * changed since.
+     */
+    public boolean isUpToDate(@NotNull Path file, byte[] content) {
+        if (!isEnabled()) {
+            return false;
+        }
+        Entry entry = entries.get(key(file));
+        if (entry == null) {
+            return false;
+        }
+        BasicFileAttributes attributes = attributes(file);
+        if (attributes == null
+                || entry.size() != attributes.size()
+                || entry.lastModified() != attributes.lastModifiedTime().toMillis()) {
+            return false;
+        }
+        return entry.contentHash().equals(checksumCalculator.calculateChecksum(content));
+    }
+
+    public void markClean(@NotNull Path file, byte[] content) {
+        if (!isEnabled()) {
+            return;
+        }
+        BasicFileAttributes attributes = attributes(file);
+        if (attributes == null) {
+            return;
+        }
+        entries.put(
+                key(file),
+                new Entry(
+                        attributes.size(),
+                        attributes.lastModifiedTime().toMillis(),
+                        checksumCalculator.calculateChecksum(content)));
+    }
+
+    public void invalidate(@NotNull Path file) {
+        if (!isEnabled()) {
+            return;
+        }
+        entries.remove(key(file));
+    }
+
+    /**
+     * Writes the index to a temporary file next to the index file and moves it into place, so concurrent or
+     * interrupted runs never see a partially written index.
+     */
+    public void save() {
+        if (!isEnabled()) {
+            return;
+        }
+        ThrowingEx.run(() -> {
+            Files.createDirectories(indexFile.getParent());
+            Path tempFile = Files.createTempFile(indexFile.getParent(), indexFile.getFileName() + "-", ".tmp");
+            try (BufferedWriter writer = Files.newBufferedWriter(tempFile, StandardCharsets.UTF_8)) {
+                writer.write(HEADER);
+                writer.newLine();
+                for (Map.Entry<String, Entry> entry : entries.entrySet()) {
+                    Entry value = entry.getValue();
+                    writer.write(value.size() + "\t" + value.lastModified() + "\t" + value.contentHash() + "\t"
+                            + entry.getKey());
+                    writer.newLine();
+                }
+            }
+            try {
+                Files.move(
+                        tempFile, indexFile, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+            } catch (AtomicMoveNotSupportedException e) {
+                Files.move(tempFile, indexFile, StandardCopyOption.REPLACE_EXISTING);
+            }
+        });
+        LOGGER.debug("Saved up-to-date index with {} entries to {}", entries.size(), indexFile);
+    }
+
+    private static String key(Path file) {
+        return file.toAbsolutePath().normalize().toString();
+    }
+
+    private static @Nullable BasicFileAttributes attributes(Path file) {
+        try {
+            return Files.readAttributes(file, BasicFileAttributes.class);
+        } catch (IOException e) {
+            LOGGER.debug("Could not read attributes of {}", file, e);
+            return null;
+        }
+    }
+
+    private record Entry(long size, long lastModified, String contentHash) {}
+}
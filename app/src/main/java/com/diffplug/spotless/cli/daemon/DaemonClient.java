@@ -0,0 +1,149 @@
+/*
+ * Copyright 2026 DiffPlug
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.diffplug.spotless.cli.daemon;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.PrintStream;
+import java.net.StandardProtocolFamily;
+import java.net.UnixDomainSocketAddress;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.SocketChannel;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.List;
+
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import com.diffplug.spotless.cli.FormattingEngineProvider;
+import com.diffplug.spotless.cli.SpotlessCLI;
+
+/**
+ * Thin client forwarding the command line to a running {@link SpotlessDaemon}. If no daemon is listening, spotless
+ * is run in-process instead, so the client can always be used in place of a regular invocation.
+ */
+public final class DaemonClient {
+
+    public static final String COMMAND_NAME = "client";
+
+    private DaemonClient() {
+        // no instances
+    }
+
+    public static int run(String... args) {
+        Path socketPath = DaemonProtocol.defaultSocketPath();
+        SocketChannel channel = connect(socketPath);
+        if (channel == null) {
+            return SpotlessCLI.createCommandLine(SpotlessCLI.createInstance(FormattingEngineProvider.NEW_PER_RUN))
+                    .execute(args);
+        }
+        try (channel) {
+            return send(
+                    channel,
+                    new DaemonProtocol.Request(
+                            DaemonProtocol.REQUEST_RUN, workingDirectory().toString(), absoluteArgFiles(args)));
+        } catch (IOException e) {
+            System.err.println("Lost connection to spotless daemon on " + socketPath + ": " + e);
+            return -2;
+        }
+    }
+
+    static int stop(@NotNull Path socketPath) {
+        SocketChannel channel = connect(socketPath);
+        if (channel == null) {
+            System.err.println("No spotless daemon listening on " + socketPath);
+            return 1;
+        }
+        try (channel) {
+            return send(channel, new DaemonProtocol.Request(DaemonProtocol.REQUEST_STOP, "", List.of()));
+        } catch (IOException e) {
+            System.err.println("Failed to stop spotless daemon on " + socketPath + ": " + e);
+            return -2;
+        }
+    }
+
+    static boolean isListening(@NotNull Path socketPath) {
+        SocketChannel channel = connect(socketPath);
+        if (channel == null) {
+            return false;
+        }
+        try {
+            channel.close();
+        } catch (IOException e) {
+            // we only wanted to know whether the connection can be established
+        }
+        return true;
+    }
+
+    private static @Nullable SocketChannel connect(Path socketPath) {
+        try {
+            SocketChannel channel = SocketChannel.open(StandardProtocolFamily.UNIX);
+            try {
+                channel.connect(UnixDomainSocketAddress.of(socketPath));
+                return channel;
+            } catch (IOException | RuntimeException e) {
+                channel.close();
+                return null;
+            }
+        } catch (IOException | UnsupportedOperationException e) {
+            return null; // no unix domain socket support on this platform
+        }
+    }
+
+    private static int send(SocketChannel channel, DaemonProtocol.Request request) throws IOException {
+        DataOutputStream out = new DataOutputStream(new BufferedOutputStream(Channels.newOutputStream(channel)));
+        DataInputStream in = new DataInputStream(new BufferedInputStream(Channels.newInputStream(channel)));
+        DaemonProtocol.writeRequest(out, request);
+        while (true) {
+            byte frameType = in.readByte();
+            byte[] payload = new byte[in.readInt()];
+            in.readFully(payload);
+            switch (frameType) {
+                case DaemonProtocol.FRAME_OUT -> write(System.out, payload);
+                case DaemonProtocol.FRAME_ERR -> write(System.err, payload);
+                case DaemonProtocol.FRAME_EXIT -> {
+                    return ByteBuffer.wrap(payload).getInt();
+                }
+                default -> throw new IOException("Unexpected frame type " + frameType);
+            }
+        }
+    }
+
+    private static void write(PrintStream stream, byte[] payload) {
+        stream.write(payload, 0, payload.length);
+        stream.flush();
+    }
+
+    /**
+     * The daemon runs in a different working directory, so relative {@code @file} arguments are made absolute.
+     */
+    private static List<String> absoluteArgFiles(String... args) {
+        return Arrays.stream(args)
+                .map(arg -> arg.startsWith("@") && arg.length() > 1 && !arg.startsWith("@@")
+                        ? "@" + workingDirectory().resolve(arg.substring(1))
+                        : arg)
+                .toList();
+    }
+
+    private static Path workingDirectory() {
+        return Path.of(System.getProperty("user.dir")).toAbsolutePath();
+    }
+}
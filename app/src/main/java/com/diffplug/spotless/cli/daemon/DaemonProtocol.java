@@ -0,0 +1,197 @@
+/*
+ * Copyright 2026 DiffPlug
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.diffplug.spotless.cli.daemon;
+
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.LinkOption;
+import java.nio.file.Path;
+import java.nio.file.attribute.PosixFileAttributes;
+import java.nio.file.attribute.PosixFilePermission;
+import java.nio.file.attribute.PosixFilePermissions;
+import java.nio.file.attribute.UserPrincipal;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+
+import org.jetbrains.annotations.NotNull;
+
+/**
+ * The wire format spoken between {@link DaemonClient} and {@link SpotlessDaemon}.
+ * <p>
+ * A request consists of the protocol version, the request kind, the working directory of the client and the
+ * arguments. The daemon answers with a sequence of frames (a frame type followed by a length-prefixed payload),
+ * the last frame always being {@link #FRAME_EXIT} carrying the exit code.
+ */
+final class DaemonProtocol {
+
+    static final int VERSION = 1;
+
+    static final byte REQUEST_RUN = 'R';
+    static final byte REQUEST_STOP = 'S';
+
+    static final byte FRAME_OUT = 'O';
+    static final byte FRAME_ERR = 'E';
+    static final byte FRAME_EXIT = 'X';
+
+    static final String SOCKET_ENV_VARIABLE = "SPOTLESS_DAEMON_SOCKET";
+
+    private static final Set<PosixFilePermission> PRIVATE_DIRECTORY_PERMISSIONS =
+            PosixFilePermissions.fromString("rwx------");
+
+    private DaemonProtocol() {
+        // no instances
+    }
+
+    static Path defaultSocketPath() {
+        String fromEnv = System.getenv(SOCKET_ENV_VARIABLE);
+        if (fromEnv != null && !fromEnv.isBlank()) {
+            return Path.of(fromEnv);
+        }
+        return Path.of(System.getProperty("java.io.tmpdir"), "spotless-cli-" + System.getProperty("user.name"))
+                .resolve("daemon.sock");
+    }
+
+    /**
+     * Creates the parent directory of the socket so that only the current user can access it (where supported).
+     * An already existing parent directory is only accepted if it is private to the current user, otherwise another
+     * user could replace the socket and receive the arguments (and thus the paths) of every run.
+     */
+    static void createPrivateParentDirectory(@NotNull Path socketPath) throws IOException {
+        Path parent = socketPath.toAbsolutePath().getParent();
+        boolean posix = parent.getFileSystem().supportedFileAttributeViews().contains("posix");
+        if (Files.exists(parent, LinkOption.NOFOLLOW_LINKS)) {
+            if (posix) {
+                verifyPrivateDirectory(parent);
+            }
+            return;
+        }
+        if (posix) {
+            Files.createDirectories(parent, PosixFilePermissions.asFileAttribute(PRIVATE_DIRECTORY_PERMISSIONS));
+        } else {
+            Files.createDirectories(parent);
+        }
+    }
+
+    private static void verifyPrivateDirectory(Path directory) throws IOException {
+        PosixFileAttributes attributes =
+                Files.readAttributes(directory, PosixFileAttributes.class, LinkOption.NOFOLLOW_LINKS);
+        if (!attributes.isDirectory()) {
+            throw new IOException("Refusing to use " + directory + " for the daemon socket: not a directory");
+        }
+        UserPrincipal currentUser = directory.getFileSystem()
+                .getUserPrincipalLookupService()
+                .lookupPrincipalByName(System.getProperty("user.name"));
+        if (!attributes.owner().equals(currentUser)) {
+            throw new IOException("Refusing to use " + directory + " for the daemon socket: owned by "
+                    + attributes.owner().getName() + " instead of " + currentUser.getName());
+        }
+        if (!attributes.permissions().equals(PRIVATE_DIRECTORY_PERMISSIONS)) {
+            throw new IOException("Refusing to use " + directory + " for the daemon socket: permissions are "
+                    + PosixFilePermissions.toString(attributes.permissions()) + " instead of "
+                    + PosixFilePermissions.toString(PRIVATE_DIRECTORY_PERMISSIONS));
+        }
+    }
+
+    record Request(byte kind, @NotNull String workingDirectory, @NotNull List<String> args) {}
+
+    static void writeRequest(@NotNull DataOutputStream out, @NotNull Request request) throws IOException {
+        out.writeInt(VERSION);
+        out.writeByte(request.kind());
+        writeString(out, request.workingDirectory());
+        out.writeInt(request.args().size());
+        for (String arg : request.args()) {
+            writeString(out, arg);
+        }
+        out.flush();
+    }
+
+    static Request readRequest(@NotNull DataInputStream in) throws IOException {
+        int version = in.readInt();
+        if (version != VERSION) {
+            throw new IOException("Unsupported protocol version " + version + ", expected " + VERSION);
+        }
+        byte kind = in.readByte();
+        String workingDirectory = readString(in);
+        int argCount = in.readInt();
+        List<String> args = new ArrayList<>(argCount);
+        for (int i = 0; i < argCount; i++) {
+            args.add(readString(in));
+        }
+        return new Request(kind, workingDirectory, args);
+    }
+
+    static void writeFrame(@NotNull DataOutputStream out, byte type, byte[] payload, int offset, int length)
+            throws IOException {
+        out.writeByte(type);
+        out.writeInt(length);
+        out.write(payload, offset, length);
+        out.flush();
+    }
+
+    static void writeExitFrame(@NotNull DataOutputStream out, int exitCode) throws IOException {
+        out.writeByte(FRAME_EXIT);
+        out.writeInt(Integer.BYTES);
+        out.writeInt(exitCode);
+        out.flush();
+    }
+
+    private static void writeString(DataOutputStream out, String value) throws IOException {
+        byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+        out.writeInt(bytes.length);
+        out.write(bytes);
+    }
+
+    private static String readString(DataInputStream in) throws IOException {
+        byte[] bytes = new byte[in.readInt()];
+        in.readFully(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    /**
+     * An output stream sending everything written to it as frames of the given type.
+     */
+    static final class FrameOutputStream extends OutputStream {
+
+        private final DataOutputStream out;
+
+        private final byte type;
+
+        FrameOutputStream(@NotNull DataOutputStream out, byte type) {
+            this.out = out;
+            this.type = type;
+        }
+
+        @Override
+        public void write(int b) throws IOException {
+            write(new byte[] {(byte) b}, 0, 1);
+        }
+
+        @Override
+        public void write(byte @NotNull [] b, int off, int len) throws IOException {
+            if (len == 0) {
+                return;
+            }
+            synchronized (out) {
+                writeFrame(out, type, b, off, len);
+            }
+        }
+    }
+}
@@ -0,0 +1,217 @@
+/*
+ * Copyright 2026 DiffPlug
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.diffplug.spotless.cli.daemon;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.PrintWriter;
+import java.net.StandardProtocolFamily;
+import java.net.UnixDomainSocketAddress;
+import java.nio.channels.Channels;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
+import java.nio.charset.Charset;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.concurrent.Callable;
+
+import org.jetbrains.annotations.NotNull;
+
+import com.diffplug.spotless.cli.SpotlessCLI;
+import com.diffplug.spotless.cli.help.OptionConstants;
+import com.diffplug.spotless.cli.version.SpotlessCLIVersionProvider;
+
+import picocli.CommandLine;
+import picocli.CommandLine.Command;
+
+@Command(
+        name = "spotless " + SpotlessDaemon.COMMAND_NAME,
+        mixinStandardHelpOptions = true,
+        usageHelpAutoWidth = true,
+        versionProvider = SpotlessCLIVersionProvider.class,
+        description = "%nRuns spotless as a long-running daemon listening on a unix domain socket. "
+                + "%nThe formatters of recently used configurations are kept warm between runs, "
+                + "use @|yellow spotless " + DaemonClient.COMMAND_NAME
+                + " [OPTIONS] [FORMATTING_STEPS]|@ to run spotless through the daemon.%n")
+public final class SpotlessDaemon implements Callable<Integer> {
+
+    public static final String COMMAND_NAME = "daemon";
+
+    @CommandLine.Spec
+    CommandLine.Model.CommandSpec spec; // injected by picocli
+
+    @CommandLine.Option(
+            names = {"--socket"},
+            description = "The unix domain socket to listen on. " + OptionConstants.DEFAULT_VALUE_SUFFIX_BEGIN + "$"
+                    + DaemonProtocol.SOCKET_ENV_VARIABLE + " or <tmpdir>/spotless-cli-<user>/daemon.sock"
+                    + OptionConstants.DEFAULT_VALUE_SUFFIX_END)
+    Path socket;
+
+    @CommandLine.Option(
+            names = {"--max-configurations"},
+            paramLabel = "N",
+            defaultValue = "4",
+            description = "The number of formatter configurations to keep warm." + OptionConstants.DEFAULT_VALUE_SUFFIX)
+    int maxConfigurations;
+
+    @CommandLine.Option(
+            names = {"--idle-timeout"},
+            paramLabel = "MINUTES",
+            defaultValue = "180",
+            description = "Stop the daemon after it did not receive a request for the given number of minutes. "
+                    + "0 disables the timeout." + OptionConstants.DEFAULT_VALUE_SUFFIX)
+    long idleTimeoutMinutes;
+
+    @CommandLine.Option(
+            names = {"--stop"},
+            description = "Stop the daemon listening on the socket instead of starting one.")
+    boolean stop;
+
+    public static int run(String... args) {
+        return new CommandLine(new SpotlessDaemon()).execute(args);
+    }
+
+    @Override
+    public Integer call() throws IOException {
+        if (maxConfigurations < 1) {
+            throw new CommandLine.ParameterException(spec.commandLine(), "Error: --max-configurations must be > 0");
+        }
+        if (idleTimeoutMinutes < 0) {
+            throw new CommandLine.ParameterException(spec.commandLine(), "Error: --idle-timeout must be >= 0");
+        }
+        Path socketPath = socket == null ? DaemonProtocol.defaultSocketPath() : socket;
+        if (stop) {
+            return DaemonClient.stop(socketPath);
+        }
+        try (WarmFormattingEngines engines = new WarmFormattingEngines(maxConfigurations);
+                ServerSocketChannel server = bind(socketPath);
+                Selector selector = Selector.open()) {
+            server.configureBlocking(false);
+            server.register(selector, SelectionKey.OP_ACCEPT);
+            log("Spotless daemon listening on " + socketPath);
+            serve(server, selector, engines);
+            log("Spotless daemon stopped");
+            return 0;
+        } finally {
+            Files.deleteIfExists(socketPath);
+        }
+    }
+
+    private ServerSocketChannel bind(Path socketPath) throws IOException {
+        DaemonProtocol.createPrivateParentDirectory(socketPath);
+        if (Files.exists(socketPath)) {
+            if (DaemonClient.isListening(socketPath)) {
+                throw new IllegalStateException("A spotless daemon is already listening on " + socketPath);
+            }
+            Files.delete(socketPath); // left behind by a daemon which did not shut down properly
+        }
+        ServerSocketChannel server = ServerSocketChannel.open(StandardProtocolFamily.UNIX);
+        server.bind(UnixDomainSocketAddress.of(socketPath));
+        return server;
+    }
+
+    /**
+     * Handles one request after the other, the formatting within a run is still done in parallel. Keeping the runs
+     * sequential is required anyway as logging is configured globally per run.
+     */
+    private void serve(ServerSocketChannel server, Selector selector, WarmFormattingEngines engines)
+            throws IOException {
+        long idleTimeoutMillis = Duration.ofMinutes(idleTimeoutMinutes).toMillis();
+        long lastRequest = System.currentTimeMillis();
+        while (true) {
+            int ready = selector.select(idleTimeoutMillis);
+            selector.selectedKeys().clear();
+            SocketChannel client = ready == 0 ? null : server.accept();
+            if (client == null) {
+                if (idleTimeoutMillis > 0 && System.currentTimeMillis() - lastRequest >= idleTimeoutMillis) {
+                    log("No request received within " + idleTimeoutMinutes + " minutes, stopping");
+                    return;
+                }
+                continue;
+            }
+            lastRequest = System.currentTimeMillis();
+            if (!handle(client, engines)) {
+                return;
+            }
+        }
+    }
+
+    /**
+     * @return {@code false} if the daemon was asked to stop
+     */
+    private boolean handle(SocketChannel client, WarmFormattingEngines engines) {
+        try (client;
+                DataInputStream in = new DataInputStream(new BufferedInputStream(Channels.newInputStream(client)));
+                DataOutputStream out =
+                        new DataOutputStream(new BufferedOutputStream(Channels.newOutputStream(client)))) {
+            client.configureBlocking(true);
+            DaemonProtocol.Request request = DaemonProtocol.readRequest(in);
+            if (request.kind() == DaemonProtocol.REQUEST_STOP) {
+                DaemonProtocol.writeExitFrame(out, 0);
+                return false;
+            }
+            int exitCode = execute(request, engines, out);
+            synchronized (out) {
+                DaemonProtocol.writeExitFrame(out, exitCode);
+            }
+        } catch (EOFException e) {
+            // client disconnected without sending a request, e.g. when probing whether the daemon is running
+        } catch (IOException e) {
+            logError("Failed to handle request: " + e);
+        }
+        return true;
+    }
+
+    static int execute(DaemonProtocol.Request request, WarmFormattingEngines engines, DataOutputStream out) {
+        PrintWriter stdOut = frameWriter(out, DaemonProtocol.FRAME_OUT);
+        PrintWriter stdErr = frameWriter(out, DaemonProtocol.FRAME_ERR);
+        try {
+            return SpotlessCLI.createCommandLine(
+                            SpotlessCLI.createInstance(engines, Path.of(request.workingDirectory())))
+                    .setOut(stdOut)
+                    .setErr(stdErr)
+                    .execute(request.args().toArray(String[]::new));
+        } finally {
+            stdOut.flush();
+            stdErr.flush();
+        }
+    }
+
+    private static @NotNull PrintWriter frameWriter(DataOutputStream out, byte frameType) {
+        return new PrintWriter(
+                new OutputStreamWriter(
+                        new DaemonProtocol.FrameOutputStream(out, frameType), Charset.defaultCharset()),
+                true);
+    }
+
+    private void log(String message) {
+        spec.commandLine().getOut().println(message);
+        spec.commandLine().getOut().flush();
+    }
+
+    private void logError(String message) {
+        spec.commandLine().getErr().println(message);
+        spec.commandLine().getErr().flush();
+    }
+}
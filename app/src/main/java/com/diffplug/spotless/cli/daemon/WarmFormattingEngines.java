@@ -0,0 +1,85 @@
+/*
+ * Copyright 2026 DiffPlug
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.diffplug.spotless.cli.daemon;
+
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.function.Supplier;
+
+import org.jetbrains.annotations.NotNull;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.diffplug.spotless.cli.FormattingEngine;
+import com.diffplug.spotless.cli.FormattingEngineProvider;
+
+/**
+ * Keeps the engines of the most recently used formatter configurations alive between runs, so the formatters do not
+ * need to be provisioned and warmed up again. The least recently used engine is closed once more than
+ * {@code maxEngines} configurations are in use.
+ */
+final class WarmFormattingEngines implements FormattingEngineProvider, AutoCloseable {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(WarmFormattingEngines.class);
+
+    private final int maxEngines;
+
+    private final LinkedHashMap<String, FormattingEngine> engines = new LinkedHashMap<>(16, 0.75f, true);
+
+    WarmFormattingEngines(int maxEngines) {
+        if (maxEngines < 1) {
+            throw new IllegalArgumentException("maxEngines must be > 0, was " + maxEngines);
+        }
+        this.maxEngines = maxEngines;
+    }
+
+    @Override
+    public synchronized @NotNull FormattingEngine obtain(
+            @NotNull String configurationKey, @NotNull Supplier<FormattingEngine> engineFactory) {
+        FormattingEngine engine = engines.get(configurationKey);
+        if (engine != null) {
+            LOGGER.info("Reusing warm formatting engine for configuration {}", configurationKey);
+            return engine.borrow();
+        }
+        LOGGER.info("Creating formatting engine for configuration {}", configurationKey);
+        engine = engineFactory.get();
+        engines.put(configurationKey, engine);
+        evictLeastRecentlyUsed();
+        return engine.borrow();
+    }
+
+    synchronized int size() {
+        return engines.size();
+    }
+
+    private void evictLeastRecentlyUsed() {
+        Iterator<Map.Entry<String, FormattingEngine>> iterator =
+                engines.entrySet().iterator();
+        while (engines.size() > maxEngines && iterator.hasNext()) {
+            Map.Entry<String, FormattingEngine> eldest = iterator.next();
+            LOGGER.info("Closing least recently used formatting engine for configuration {}", eldest.getKey());
+            iterator.remove();
+            eldest.getValue().close();
+        }
+    }
+
+    @Override
+    public synchronized void close() {
+        engines.values().forEach(FormattingEngine::close);
+        engines.clear();
+    }
+}
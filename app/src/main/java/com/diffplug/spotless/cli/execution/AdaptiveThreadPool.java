@@ -0,0 +1,197 @@
+/*
+ * Copyright 2026 DiffPlug
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.diffplug.spotless.cli.execution;
+
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryMXBean;
+import java.util.List;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.Supplier;
+
+import org.jetbrains.annotations.NotNull;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.diffplug.spotless.FormatterStep;
+
+/**
+ * A thread pool which sizes itself while formatting: as every thread gets a formatter of its own, the number of
+ * threads is bounded by the available CPUs and by the heap left for more formatters (estimated from the memory
+ * the first formatter took, including the first of its steps prepared lazily). Within these bounds, a thread is added as long as it raises the throughput of
+ * completed tasks noticeably, once it does not, the pool steps back to the previous size and keeps it.
+ */
+public final class AdaptiveThreadPool extends ThreadPoolExecutor {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(AdaptiveThreadPool.class);
+
+    /** throughput is compared over windows of at least this duration */
+    private static final long MIN_WINDOW_NANOS = TimeUnit.MILLISECONDS.toNanos(250);
+
+    /** a thread is only kept if it raises the throughput by at least 5 percent */
+    private static final double MIN_IMPROVEMENT = 1.05;
+
+    /** share of the free heap which may be spent on formatters, the rest is left for the files in flight */
+    private static final double FORMATTER_HEAP_SHARE = 0.5;
+
+    private static final long MIN_FORMATTER_BYTES = 1024 * 1024;
+
+    private final int cpuLimit;
+
+    private final AtomicBoolean formatterMeasured = new AtomicBoolean();
+
+    private final AtomicBoolean lazyStepsMeasured = new AtomicBoolean();
+
+    private long measuredFormatterBytes; // guarded by this
+
+    private volatile int maxThreads;
+
+    // guarded by this
+    private long windowStart = System.nanoTime();
+    private int windowCompleted;
+    private double lastThroughput;
+    private boolean warmingUp = true;
+    private boolean settled;
+
+    /**
+     * @param availableCpus the CPUs the process may use, see {@link ContainerResources#availableCpus()}
+     */
+    public AdaptiveThreadPool(double availableCpus) {
+        this(initialSize(availableCpus), maxSize(availableCpus));
+    }
+
+    private AdaptiveThreadPool(int initialSize, int cpuLimit) {
+        super(initialSize, initialSize, 0L, TimeUnit.MILLISECONDS, new LinkedBlockingQueue<>());
+        this.cpuLimit = cpuLimit;
+        this.maxThreads = cpuLimit;
+    }
+
+    /**
+     * @return the number of threads the pool starts with, the default of a fixed pool
+     */
+    public static int initialSize(double availableCpus) {
+        return Math.max((int) (availableCpus / 2), 1);
+    }
+
+    /**
+     * @return the number of threads the pool grows to at most, unless the heap limits it further
+     */
+    public static int maxSize(double availableCpus) {
+        return Math.max((int) Math.ceil(availableCpus), 1);
+    }
+
+    /**
+     * @return a supplier which measures the heap used by preparing the first steps, to bound the number of threads.
+     * Steps which are prepared lazily (see {@link LazyFormatterStep}) are measured when the first of them is prepared,
+     * it stands in for the other lazy steps.
+     */
+    public FormatterStepsSupplier measured(@NotNull FormatterStepsSupplier formatterSteps) {
+        return () -> LazyFormatterStep.preparingThrough(this::measureLazySteps, () -> {
+            if (!formatterMeasured.compareAndSet(false, true)) {
+                return formatterSteps.getFormatterSteps();
+            }
+            return measure(formatterSteps::getFormatterSteps);
+        });
+    }
+
+    private List<FormatterStep> measureLazySteps(Supplier<List<FormatterStep>> steps) {
+        if (!lazyStepsMeasured.compareAndSet(false, true)) {
+            return steps.get();
+        }
+        return measure(steps);
+    }
+
+    private List<FormatterStep> measure(Supplier<List<FormatterStep>> steps) {
+        MemoryMXBean memory = ManagementFactory.getMemoryMXBean();
+        long usedBefore = memory.getHeapMemoryUsage().getUsed();
+        List<FormatterStep> prepared = steps.get();
+        long usedAfter = memory.getHeapMemoryUsage().getUsed();
+        addToFormatter(Math.max(usedAfter - usedBefore, 0), usedAfter);
+        return prepared;
+    }
+
+    private synchronized void addToFormatter(long bytes, long usedHeap) {
+        measuredFormatterBytes += bytes;
+        limitToHeap(Math.max(measuredFormatterBytes, MIN_FORMATTER_BYTES), usedHeap);
+    }
+
+    private synchronized void limitToHeap(long bytesPerFormatter, long usedHeap) {
+        long freeHeap = Runtime.getRuntime().maxMemory() - usedHeap;
+        long affordable = 1 + (long) (freeHeap * FORMATTER_HEAP_SHARE / bytesPerFormatter);
+        maxThreads = (int) Math.max(Math.min(cpuLimit, affordable), 1);
+        LOGGER.info(
+                "Estimated {} KiB per formatter, formatting with at most {} threads",
+                bytesPerFormatter / 1024,
+                maxThreads);
+        if (getCorePoolSize() > maxThreads) {
+            resize(maxThreads);
+            settled = true;
+        }
+    }
+
+    @Override
+    protected void afterExecute(Runnable r, Throwable t) {
+        super.afterExecute(r, t);
+        onTaskCompleted();
+    }
+
+    private synchronized void onTaskCompleted() {
+        if (settled) {
+            return;
+        }
+        windowCompleted++;
+        long now = System.nanoTime();
+        long elapsed = now - windowStart;
+        int size = getCorePoolSize();
+        if (elapsed < MIN_WINDOW_NANOS || windowCompleted < size) {
+            return;
+        }
+        double throughput = windowCompleted * 1e9 / elapsed;
+        windowStart = now;
+        windowCompleted = 0;
+        if (warmingUp) {
+            // the first window after a resize includes creating the formatters of the new threads
+            warmingUp = false;
+            return;
+        }
+        if (throughput >= lastThroughput * MIN_IMPROVEMENT && size < maxThreads) {
+            LOGGER.debug("Throughput {} tasks/s with {} threads, adding a thread", (int) throughput, size);
+            lastThroughput = throughput;
+            resize(size + 1);
+        } else if (throughput < lastThroughput * MIN_IMPROVEMENT && lastThroughput > 0) {
+            LOGGER.debug("Throughput {} tasks/s with {} threads, stepping back", (int) throughput, size);
+            resize(size - 1);
+            settled = true;
+        } else {
+            settled = true;
+        }
+    }
+
+    private void resize(int size) {
+        if (size > getMaximumPoolSize()) {
+            setMaximumPoolSize(size);
+            setCorePoolSize(size);
+        } else {
+            // shrinking the maximum makes busy threads exit after their current task
+            setCorePoolSize(size);
+            setMaximumPoolSize(size);
+        }
+        warmingUp = true;
+        LOGGER.info("Formatting with {} threads", size);
+    }
+}
@@ -0,0 +1,78 @@
+/*
+ * Copyright 2026 DiffPlug
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.diffplug.spotless.cli.execution;
+
+import java.util.Iterator;
+import java.util.Objects;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletionService;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorCompletionService;
+import java.util.function.BiFunction;
+import java.util.stream.Stream;
+
+import org.jetbrains.annotations.NotNull;
+
+import com.diffplug.spotless.ThrowingEx;
+
+/**
+ * Submits tasks to an executor while never having more than {@code maxInFlight} of them pending.
+ * <p>
+ * Results are handed to the accumulator in the calling thread as soon as they complete (i.e. in completion order),
+ * so they can be released early instead of being held until all tasks are submitted.
+ */
+public final class BoundedCompletionService<T> {
+
+    private final CompletionService<T> completionService;
+
+    private final int maxInFlight;
+
+    public BoundedCompletionService(@NotNull Executor executor, int maxInFlight) {
+        if (maxInFlight < 1) {
+            throw new IllegalArgumentException("maxInFlight must be > 0, was " + maxInFlight);
+        }
+        this.completionService = new ExecutorCompletionService<>(Objects.requireNonNull(executor));
+        this.maxInFlight = maxInFlight;
+    }
+
+    public <R> R reduce(
+            @NotNull Stream<Callable<T>> tasks, R identity, @NotNull BiFunction<R, ? super T, R> accumulator) {
+        R accumulated = identity;
+        int inFlight = 0;
+        Iterator<Callable<T>> iterator = tasks.iterator();
+        while (true) {
+            if (inFlight == maxInFlight) {
+                accumulated = accumulator.apply(accumulated, takeCompleted());
+                inFlight--;
+            }
+            // only pull the next task once there is room for it
+            if (!iterator.hasNext()) {
+                break;
+            }
+            completionService.submit(iterator.next());
+            inFlight++;
+        }
+        while (inFlight > 0) {
+            accumulated = accumulator.apply(accumulated, takeCompleted());
+            inFlight--;
+        }
+        return accumulated;
+    }
+
+    private T takeCompleted() {
+        return ThrowingEx.get(() -> completionService.take().get());
+    }
+}
@@ -0,0 +1,108 @@
+/*
+ * Copyright 2026 DiffPlug
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.diffplug.spotless.cli.execution;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.OptionalDouble;
+
+import org.jetbrains.annotations.NotNull;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * The CPUs the process may use, taking (fractional) cgroup CPU quotas into account: the JVM rounds them up in
+ * {@link Runtime#availableProcessors()}, so a quota of 1.5 CPUs looks like 2 full cores.
+ * <p>
+ * Memory limits need no special treatment, the maximum heap of the JVM is derived from them already.
+ */
+public final class ContainerResources {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(ContainerResources.class);
+
+    private static final Path CGROUP_ROOT = Path.of("/sys/fs/cgroup");
+
+    private ContainerResources() {
+        // no instances
+    }
+
+    public static double availableCpus() {
+        return availableCpus(CGROUP_ROOT, Runtime.getRuntime().availableProcessors());
+    }
+
+    static double availableCpus(@NotNull Path cgroupRoot, int availableProcessors) {
+        OptionalDouble quota = cgroupV2Quota(cgroupRoot);
+        if (quota.isEmpty()) {
+            quota = cgroupV1Quota(cgroupRoot.resolve("cpu"));
+        }
+        if (quota.isEmpty()) {
+            quota = cgroupV1Quota(cgroupRoot.resolve("cpu,cpuacct"));
+        }
+        if (quota.isPresent() && quota.getAsDouble() < availableProcessors) {
+            LOGGER.debug("Using cgroup CPU quota of {} CPUs", quota.getAsDouble());
+            return quota.getAsDouble();
+        }
+        return availableProcessors;
+    }
+
+    /** {@code cpu.max} contains {@code <quota> <period>}, the quota being {@code max} if unlimited */
+    private static OptionalDouble cgroupV2Quota(Path cgroupRoot) {
+        List<String> values = readValues(cgroupRoot.resolve("cpu.max"));
+        if (values.size() != 2 || "max".equals(values.get(0))) {
+            return OptionalDouble.empty();
+        }
+        return quota(values.get(0), values.get(1));
+    }
+
+    /** the quota is {@code -1} if unlimited */
+    private static OptionalDouble cgroupV1Quota(Path cpuController) {
+        List<String> quota = readValues(cpuController.resolve("cpu.cfs_quota_us"));
+        List<String> period = readValues(cpuController.resolve("cpu.cfs_period_us"));
+        if (quota.size() != 1 || period.size() != 1) {
+            return OptionalDouble.empty();
+        }
+        return quota(quota.getFirst(), period.getFirst());
+    }
+
+    private static OptionalDouble quota(String quota, String period) {
+        try {
+            long quotaMicros = Long.parseLong(quota);
+            long periodMicros = Long.parseLong(period);
+            if (quotaMicros <= 0 || periodMicros <= 0) {
+                return OptionalDouble.empty();
+            }
+            return OptionalDouble.of((double) quotaMicros / periodMicros);
+        } catch (NumberFormatException e) {
+            LOGGER.debug("Ignoring unexpected cgroup CPU quota {} / {}", quota, period, e);
+            return OptionalDouble.empty();
+        }
+    }
+
+    private static List<String> readValues(Path file) {
+        if (!Files.isRegularFile(file)) {
+            return List.of();
+        }
+        try {
+            return List.of(Files.readString(file, StandardCharsets.UTF_8).trim().split("\\s+"));
+        } catch (IOException e) {
+            LOGGER.debug("Could not read {}", file, e);
+            return List.of();
+        }
+    }
+}
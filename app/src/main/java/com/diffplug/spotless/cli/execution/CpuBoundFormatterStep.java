@@ -0,0 +1,106 @@
+/*
+ * Copyright 2026 DiffPlug
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.diffplug.spotless.cli.execution;
+
+import java.io.File;
+import java.util.List;
+import java.util.Objects;
+import java.util.concurrent.Semaphore;
+
+import org.jetbrains.annotations.NotNull;
+
+import com.diffplug.spotless.FormatterStep;
+import com.diffplug.spotless.Lint;
+import com.diffplug.spotless.ThrowingEx;
+
+/**
+ * Wraps a step which does its work in the JVM. When called from a virtual thread, it only runs while one of the
+ * (process wide) permits - one per available CPU, see {@link ContainerResources} - is held, so that a wide fan-out
+ * of virtual threads does not make CPU bound steps compete for the cores. Platform threads are limited by the size
+ * of their pool already and pass through.
+ */
+final class CpuBoundFormatterStep implements FormatterStep {
+
+    private static final long serialVersionUID = 1L;
+
+    // rounded down, as running more steps than the (fractional) cgroup quota allows only gets them throttled
+    private static final Semaphore CORES =
+            new Semaphore(Math.max((int) ContainerResources.availableCpus(), 1));
+
+    private final FormatterStep delegate;
+
+    CpuBoundFormatterStep(@NotNull FormatterStep delegate) {
+        this.delegate = Objects.requireNonNull(delegate);
+    }
+
+    @Override
+    public String getName() {
+        return delegate.getName();
+    }
+
+    @Override
+    public String format(String rawUnix, File file) throws Exception {
+        if (!Thread.currentThread().isVirtual()) {
+            return delegate.format(rawUnix, file);
+        }
+        acquire();
+        try {
+            return delegate.format(rawUnix, file);
+        } finally {
+            CORES.release();
+        }
+    }
+
+    @Override
+    public List<Lint> lint(String content, File file) throws Exception {
+        if (!Thread.currentThread().isVirtual()) {
+            return delegate.lint(content, file);
+        }
+        acquire();
+        try {
+            return delegate.lint(content, file);
+        } finally {
+            CORES.release();
+        }
+    }
+
+    private static void acquire() {
+        try {
+            CORES.acquire();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw ThrowingEx.asRuntime(e);
+        }
+    }
+
+    @Override
+    public void close() throws Exception {
+        delegate.close();
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) return true;
+        if (o == null || getClass() != o.getClass()) return false;
+        CpuBoundFormatterStep that = (CpuBoundFormatterStep) o;
+        return Objects.equals(delegate, that.delegate);
+    }
+
+    @Override
+    public int hashCode() {
+        return Objects.hash(delegate);
+    }
+}
@@ -0,0 +1,31 @@
+/*
+ * Copyright 2026 DiffPlug
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.diffplug.spotless.cli.execution;
+
+/**
+ * The kind of threads the files are formatted on.
+ */
+public enum ExecutorType {
+    /** a fixed pool of {@code --parallelity} platform threads, each with its own formatter */
+    PLATFORM,
+    /**
+     * a virtual thread per task, all files in flight are formatted at once, formatters are pooled and steps doing
+     * their work in the JVM are throttled to the number of cores
+     */
+    VIRTUAL,
+    /** {@link #VIRTUAL} if all steps wait on external processes or servers, {@link #PLATFORM} otherwise */
+    AUTO
+}
@@ -0,0 +1,198 @@
+/*
+ * Copyright 2026 DiffPlug
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.diffplug.spotless.cli.execution;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.function.Predicate;
+import java.util.function.Supplier;
+
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.diffplug.spotless.FormatterStep;
+import com.diffplug.spotless.LineEnding;
+import com.diffplug.spotless.Lint;
+import com.diffplug.spotless.cli.steps.BatchFormatterStep;
+
+/**
+ * Stands in for the steps of a step command which only applies to some files (see
+ * {@link com.diffplug.spotless.cli.steps.SpotlessCLIFormatterStep#fileExtensions} and
+ * {@link com.diffplug.spotless.cli.core.StepRoutes}): the steps are only prepared when the first of these files is
+ * formatted, all other files pass unchanged. So a run which never sees such a file never pays for starting the steps.
+ * <p>
+ * Like any step of a formatter, it is used by one thread at a time.
+ * <p>
+ * The preparation of the steps can be observed (e.g. to measure it) through a {@link Preparation} which is in place
+ * while the lazy steps are created, see {@link #preparingThrough}.
+ */
+final class LazyFormatterStep implements BatchFormatterStep {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(LazyFormatterStep.class);
+
+    private static final long serialVersionUID = 1L;
+
+    private static final ThreadLocal<Preparation> CURRENT_PREPARATION = new ThreadLocal<>();
+
+    private final String name;
+
+    private final transient Predicate<File> appliesTo;
+
+    private final transient Supplier<List<FormatterStep>> stepsSupplier;
+
+    private final transient Preparation preparation;
+
+    private @Nullable List<FormatterStep> steps;
+
+    LazyFormatterStep(
+            @NotNull String name,
+            @NotNull Predicate<File> appliesTo,
+            @NotNull Supplier<List<FormatterStep>> stepsSupplier) {
+        this.name = Objects.requireNonNull(name);
+        this.appliesTo = Objects.requireNonNull(appliesTo);
+        this.stepsSupplier = Objects.requireNonNull(stepsSupplier);
+        this.preparation = Objects.requireNonNullElse(CURRENT_PREPARATION.get(), Supplier::get);
+    }
+
+    /** for the steps of a batch, which are prepared already */
+    private LazyFormatterStep(String name, Predicate<File> appliesTo, List<FormatterStep> steps) {
+        this(name, appliesTo, () -> steps);
+        this.steps = steps;
+    }
+
+    /**
+     * Runs {@code creation}, the lazy steps it creates (in the current thread) prepare their steps through
+     * {@code preparation} later on.
+     */
+    static <T> T preparingThrough(@NotNull Preparation preparation, @NotNull Supplier<T> creation) {
+        Preparation previous = CURRENT_PREPARATION.get();
+        CURRENT_PREPARATION.set(Objects.requireNonNull(preparation));
+        try {
+            return creation.get();
+        } finally {
+            if (previous == null) {
+                CURRENT_PREPARATION.remove();
+            } else {
+                CURRENT_PREPARATION.set(previous);
+            }
+        }
+    }
+
+    /**
+     * @param fileExtensions lower case, without the leading dot
+     */
+    static Predicate<File> hasExtension(@NotNull Set<String> fileExtensions) {
+        Set<String> extensions = Set.copyOf(fileExtensions);
+        return file -> {
+            String fileName = file.getName();
+            int lastDotIndex = fileName.lastIndexOf('.');
+            return lastDotIndex != -1
+                    && extensions.contains(fileName.substring(lastDotIndex + 1).toLowerCase(Locale.ROOT));
+        };
+    }
+
+    @Override
+    public String getName() {
+        return name;
+    }
+
+    @Override
+    public @NotNull FormatterStep prepareBatch(@NotNull Map<File, String> rawUnixByFile) {
+        Map<File, String> applicable = new LinkedHashMap<>();
+        rawUnixByFile.forEach((file, rawUnix) -> {
+            if (appliesTo.test(file)) {
+                applicable.put(file, rawUnix);
+            }
+        });
+        if (applicable.isEmpty()) {
+            return this;
+        }
+        List<FormatterStep> batchSteps = steps().stream()
+                .map(step -> step instanceof BatchFormatterStep batchStep ? batchStep.prepareBatch(applicable) : step)
+                .toList();
+        return new LazyFormatterStep(name, appliesTo, batchSteps);
+    }
+
+    @Override
+    public String format(String rawUnix, File file) throws Exception {
+        if (!appliesTo.test(file)) {
+            return rawUnix;
+        }
+        String formatted = rawUnix;
+        for (FormatterStep step : steps()) {
+            String result = step.format(formatted, file);
+            if (result != null) {
+                // like the formatter does between its steps, as the next step expects unix line endings as well
+                formatted = LineEnding.toUnix(result);
+            }
+        }
+        return formatted;
+    }
+
+    @Override
+    public List<Lint> lint(String content, File file) throws Exception {
+        if (!appliesTo.test(file)) {
+            return List.of();
+        }
+        List<Lint> lints = new ArrayList<>();
+        for (FormatterStep step : steps()) {
+            List<Lint> stepLints = step.lint(content, file);
+            if (stepLints != null) {
+                lints.addAll(stepLints);
+            }
+        }
+        return lints;
+    }
+
+    boolean isPrepared() {
+        return steps != null;
+    }
+
+    private List<FormatterStep> steps() {
+        if (steps == null) {
+            LOGGER.info("Preparing step {} for its first file", name);
+            steps = preparation.prepare(stepsSupplier);
+        }
+        return steps;
+    }
+
+    @Override
+    public void close() throws Exception {
+        if (steps == null) {
+            return;
+        }
+        for (FormatterStep step : steps) {
+            step.close();
+        }
+    }
+
+    /**
+     * Prepares the steps of a lazy step when its first file shows up.
+     */
+    @FunctionalInterface
+    interface Preparation {
+
+        List<FormatterStep> prepare(Supplier<List<FormatterStep>> steps);
+    }
+}
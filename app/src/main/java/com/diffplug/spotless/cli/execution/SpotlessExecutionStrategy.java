@@ -42,7 +42,7 @@ public class SpotlessExecutionStrategy implements CommandLine.IExecutionStrategy
                 stepsSupplierFactory.createFormatterStepsSupplier(commandLineStream, context);
 
         // 3. run spotless steps
-        return executeSpotlessAction(commandLineStream, stepsSupplier);
+        return executeSpotlessAction(commandLineStream, stepsSupplier, context);
     }
 
     private SpotlessActionContext provideSpotlessActionContext(SpotlessCommandLineStream commandLineStream) {
@@ -54,11 +54,13 @@ public class SpotlessExecutionStrategy implements CommandLine.IExecutionStrategy
     }
 
     private Integer executeSpotlessAction(
-            SpotlessCommandLineStream commandLineStream, FormatterStepsSupplier stepsSupplier) {
+            SpotlessCommandLineStream commandLineStream,
+            FormatterStepsSupplier stepsSupplier,
+            SpotlessActionContext context) {
         return commandLineStream
                 .actions()
                 .findFirst()
-                .map(spotlessAction -> spotlessAction.executeSpotlessAction(stepsSupplier))
+                .map(spotlessAction -> spotlessAction.executeSpotlessAction(stepsSupplier, context))
                 .orElse(-1);
     }
 }
@@ -15,12 +15,18 @@
  */
 package com.diffplug.spotless.cli.execution;
 
+import java.io.File;
 import java.util.List;
+import java.util.Set;
 import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Predicate;
 
 import com.diffplug.spotless.FormatterStep;
 import com.diffplug.spotless.cli.core.SpotlessActionContext;
 import com.diffplug.spotless.cli.core.SpotlessCommandLineStream;
+import com.diffplug.spotless.cli.core.StepRoutes;
+import com.diffplug.spotless.cli.profile.StepPreparedEvent;
+import com.diffplug.spotless.cli.steps.SpotlessCLIFormatterStep;
 
 public class ThreadLocalFormatterStepsFactory implements FormatterStepsSupplierFactory {
 
@@ -50,12 +56,55 @@ public class ThreadLocalFormatterStepsFactory implements FormatterStepsSupplierF
                         SpotlessActionContext threadContext = context.deriveContext(threadId.get());
                         threadLocalFormatterSteps.set(commandLineStream
                                 .formatterSteps()
-                                .flatMap(step -> step.prepareFormatterSteps(threadContext).stream())
+                                .flatMap(step -> formatterSteps(step, threadContext).stream())
                                 .toList());
                     }
                 }
             }
             return threadLocalFormatterSteps.get();
         }
+
+        /**
+         * Steps which only apply to some files (by their routes or otherwise by their extensions) are prepared when
+         * the first of these files shows up.
+         */
+        private static List<FormatterStep> formatterSteps(
+                SpotlessCLIFormatterStep step, SpotlessActionContext threadContext) {
+            String stepName = StepRoutes.stepName(step);
+            StepRoutes stepRoutes = threadContext.stepRoutes();
+            SpotlessActionContext stepContext = threadContext.forStep(stepName);
+            Predicate<File> appliesTo;
+            if (stepRoutes.isRouted(stepName)) {
+                // the routes decide, so a step can format files with other extensions (e.g. *.fxml as XML)
+                appliesTo = stepRoutes.filesFor(stepName);
+            } else {
+                Set<String> fileExtensions = step.fileExtensions(stepContext);
+                appliesTo = fileExtensions.isEmpty() ? null : LazyFormatterStep.hasExtension(fileExtensions);
+            }
+            if (appliesTo == null) {
+                return prepareFormatterSteps(step, stepContext);
+            }
+            return List.of(
+                    new LazyFormatterStep(stepName, appliesTo, () -> prepareFormatterSteps(step, stepContext)));
+        }
+
+        private static List<FormatterStep> prepareFormatterSteps(
+                SpotlessCLIFormatterStep step, SpotlessActionContext threadContext) {
+            StepPreparedEvent event = new StepPreparedEvent();
+            event.begin();
+            List<FormatterStep> formatterSteps = step.prepareFormatterSteps(threadContext);
+            if (step.isCpuBound()) {
+                formatterSteps = formatterSteps.stream()
+                        .<FormatterStep>map(CpuBoundFormatterStep::new)
+                        .toList();
+            }
+            event.end();
+            if (event.shouldCommit()) {
+                event.stepClass = step.getClass();
+                event.configChecksum = threadContext.executionLayout().checksumCalculator().calculateChecksum(step);
+                event.commit();
+            }
+            return formatterSteps;
+        }
     }
 }
@@ -0,0 +1,108 @@
+/*
+ * Copyright 2026 DiffPlug
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.diffplug.spotless.cli.git;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.Objects;
+
+import org.eclipse.jgit.lib.ObjectId;
+import org.jetbrains.annotations.NotNull;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.diffplug.spotless.ThrowingEx;
+
+/**
+ * Decides whether the content of a file in the working tree differs from its content at a given revision.
+ * <p>
+ * Uses the same semantics as {@code ratchetFrom} in the spotless build plugins: the file is compared to its content in
+ * the merge base of the revision and {@code HEAD}, taking the index and git filters (e.g. {@code core.autocrlf})
+ * into account.
+ */
+public final class GitRatchet implements AutoCloseable {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(GitRatchet.class);
+
+    private final DirectoryGitRatchet ratchet;
+
+    private final File dir;
+
+    private final Path workTree;
+
+    private final ObjectId treeSha;
+
+    private GitRatchet(
+            @NotNull DirectoryGitRatchet ratchet, @NotNull File dir, @NotNull Path workTree, @NotNull ObjectId treeSha) {
+        this.ratchet = Objects.requireNonNull(ratchet);
+        this.dir = Objects.requireNonNull(dir);
+        this.workTree = Objects.requireNonNull(workTree);
+        this.treeSha = Objects.requireNonNull(treeSha);
+    }
+
+    /**
+     * @param dir a directory within the working tree of the repository
+     * @param revision the revision to compare to, e.g. {@code origin/main}, {@code HEAD~1} or a commit id
+     * @throws IllegalArgumentException if {@code dir} is not within a git working tree or the revision is unknown
+     */
+    public static GitRatchet from(@NotNull Path dir, @NotNull String revision) {
+        File absoluteDir = dir.toAbsolutePath().normalize().toFile();
+        DirectoryGitRatchet ratchet = new DirectoryGitRatchet();
+        try {
+            Path workTree = ratchet.workTreeOf(absoluteDir);
+            ObjectId treeSha = ratchet.rootTreeShaOf(absoluteDir, revision);
+            LOGGER.info("Ratchet from {} (tree {}) in {}", revision, treeSha.name(), workTree);
+            return new GitRatchet(ratchet, absoluteDir, workTree, treeSha);
+        } catch (IOException | RuntimeException e) {
+            ratchet.close();
+            throw new IllegalArgumentException(e.getMessage() + " (in " + dir + ")", e);
+        }
+    }
+
+    /**
+     * @return {@code true} if the file does not exist at the revision or its content differs from it
+     */
+    public boolean isChanged(@NotNull Path file) {
+        Path absoluteFile = file.toAbsolutePath().normalize();
+        if (!absoluteFile.startsWith(workTree)) {
+            return true; // not ours to decide, better format it
+        }
+        return ThrowingEx.get(() -> !ratchet.isClean(dir, treeSha, absoluteFile.toFile()));
+    }
+
+    @Override
+    public void close() {
+        ratchet.close();
+    }
+
+    private static final class DirectoryGitRatchet extends com.diffplug.spotless.extra.GitRatchet<File> {
+
+        Path workTreeOf(File dir) throws IOException {
+            return repositoryFor(dir).getWorkTree().toPath().toAbsolutePath().normalize();
+        }
+
+        @Override
+        protected File getDir(File dir) {
+            return dir;
+        }
+
+        @Override
+        protected File getParent(File dir) {
+            return dir.getParentFile();
+        }
+    }
+}
@@ -0,0 +1,57 @@
+/*
+ * Copyright 2026 DiffPlug
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.diffplug.spotless.cli.profile;
+
+import jdk.jfr.Category;
+import jdk.jfr.DataAmount;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+/**
+ * JDK Flight Recorder event for formatting a single file, its duration is the time spent in the formatter steps.
+ */
+@Name(FileFormattedEvent.NAME)
+@Label("File Formatted")
+@Category({"Spotless", "Formatting"})
+@Description("A file was formatted by all formatter steps")
+@StackTrace(false)
+public final class FileFormattedEvent extends Event {
+
+    public static final String NAME = "com.diffplug.spotless.cli.FileFormatted";
+
+    public static final String OUTCOME_CLEAN = "clean";
+
+    public static final String OUTCOME_DIRTY = "dirty";
+
+    public static final String OUTCOME_DID_NOT_CONVERGE = "did not converge";
+
+    @Label("Path")
+    public String path;
+
+    @Label("Size")
+    @DataAmount
+    public long size;
+
+    @Label("Steps")
+    @Description("Number of formatter steps the file was formatted with")
+    public int steps;
+
+    @Label("Outcome")
+    public String outcome;
+}
@@ -0,0 +1,346 @@
+/*
+ * Copyright 2026 DiffPlug
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.diffplug.spotless.cli.profile;
+
+import java.io.IOException;
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
+
+import org.jetbrains.annotations.NotNull;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.diffplug.spotless.FormatterStep;
+import com.diffplug.spotless.cli.execution.FormatterStepsSupplier;
+
+/**
+ * Collects timings of a run: of its phases (e.g. resolving the targets), of every formatter step and of every file,
+ * and writes them as a report.
+ * <p>
+ * All methods are thread-safe. A {@link #disabled()} profiler records nothing and adds no overhead besides a
+ * branch.
+ */
+public final class Profiler {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(Profiler.class);
+
+    public static final String PHASE_TARGET_RESOLUTION = "target resolution";
+
+    public static final String PHASE_FORMATTER_CREATION = "formatter creation";
+
+    public static final String PHASE_READING_FILES = "reading files";
+
+    private static final int SLOWEST_FILES = 20;
+
+    private static final long NO_CPU_TIME = -1;
+
+    private static final Profiler DISABLED = new Profiler(false);
+
+    private final boolean enabled;
+
+    private final long startNanos = System.nanoTime();
+
+    private final ThreadMXBean threadMXBean = ManagementFactory.getThreadMXBean();
+
+    private final Map<String, Samples> phases = new LinkedHashMap<>(); // guarded by itself
+
+    private final Map<String, Samples> steps = new LinkedHashMap<>(); // guarded by itself
+
+    private final Samples fileWallTimes = new Samples();
+
+    private final Samples fileCpuTimes = new Samples();
+
+    private final PriorityQueue<FileTiming> slowestFiles =
+            new PriorityQueue<>(Comparator.comparingLong(FileTiming::wallNanos)); // guarded by itself
+
+    private Profiler(boolean enabled) {
+        this.enabled = enabled;
+    }
+
+    public static Profiler start() {
+        return new Profiler(true);
+    }
+
+    public static Profiler disabled() {
+        return DISABLED;
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    public <T, E extends Exception> T time(@NotNull String phase, @NotNull Work<T, E> work) throws E {
+        if (!enabled) {
+            return work.get();
+        }
+        long start = System.nanoTime();
+        try {
+            return work.get();
+        } finally {
+            recordPhase(phase, System.nanoTime() - start);
+        }
+    }
+
+    /**
+     * @return a stream which records the time spent producing its elements (i.e. in the source stream) as phase
+     */
+    public <T> Stream<T> time(@NotNull String phase, @NotNull Stream<T> stream) {
+        if (!enabled) {
+            return stream;
+        }
+        Iterator<T> iterator = stream.iterator();
+        Iterator<T> timedIterator = new Iterator<>() {
+            @Override
+            public boolean hasNext() {
+                return time(phase, iterator::hasNext);
+            }
+
+            @Override
+            public T next() {
+                return time(phase, iterator::next);
+            }
+        };
+        return StreamSupport.stream(Spliterators.spliteratorUnknownSize(timedIterator, Spliterator.ORDERED), false)
+                .onClose(stream::close);
+    }
+
+    /**
+     * @return a supplier which records the time to prepare the steps as formatter creation and whose steps record
+     * the time spent in each of them
+     */
+    public FormatterStepsSupplier profiled(@NotNull FormatterStepsSupplier formatterSteps) {
+        if (!enabled) {
+            return formatterSteps;
+        }
+        return () -> time(PHASE_FORMATTER_CREATION, formatterSteps::getFormatterSteps).stream()
+                .map(step -> (FormatterStep) new ProfilingFormatterStep(step, this))
+                .toList();
+    }
+
+    /**
+     * Starts timing a file in the current thread, the timing is recorded when the returned timer is closed (in the
+     * same thread).
+     */
+    public FileTimer startFile(@NotNull Path file) {
+        if (!enabled) {
+            return FileTimer.NOOP;
+        }
+        long startCpu = currentThreadCpuTime();
+        long startWall = System.nanoTime();
+        return () -> {
+            long endCpu = currentThreadCpuTime();
+            long cpuNanos = startCpu == NO_CPU_TIME || endCpu == NO_CPU_TIME ? NO_CPU_TIME : endCpu - startCpu;
+            recordFile(new FileTiming(file, System.nanoTime() - startWall, cpuNanos));
+        };
+    }
+
+    void recordStep(String stepName, long nanos) {
+        samples(steps, stepName).add(nanos);
+    }
+
+    private void recordPhase(String phase, long nanos) {
+        samples(phases, phase).add(nanos);
+    }
+
+    private void recordFile(FileTiming timing) {
+        fileWallTimes.add(timing.wallNanos());
+        if (timing.cpuNanos() != NO_CPU_TIME) {
+            fileCpuTimes.add(timing.cpuNanos());
+        }
+        synchronized (slowestFiles) {
+            slowestFiles.add(timing);
+            if (slowestFiles.size() > SLOWEST_FILES) {
+                slowestFiles.poll();
+            }
+        }
+    }
+
+    private static Samples samples(Map<String, Samples> samplesByName, String name) {
+        synchronized (samplesByName) {
+            return samplesByName.computeIfAbsent(name, key -> new Samples());
+        }
+    }
+
+    /**
+     * @return the cpu time of the current thread, or {@link #NO_CPU_TIME} for a virtual thread (the cpu time of its
+     * carrier would include other virtual threads mounted in between) or if it cannot be measured
+     */
+    private long currentThreadCpuTime() {
+        if (Thread.currentThread().isVirtual() || !threadMXBean.isCurrentThreadCpuTimeSupported()) {
+            return NO_CPU_TIME;
+        }
+        return threadMXBean.getCurrentThreadCpuTime();
+    }
+
+    public void writeReport(@NotNull Path reportFile) {
+        if (!enabled) {
+            return;
+        }
+        try {
+            Path parent = reportFile.toAbsolutePath().getParent();
+            if (parent != null) {
+                Files.createDirectories(parent);
+            }
+            Files.writeString(reportFile, report(), StandardCharsets.UTF_8);
+            LOGGER.info("Wrote profile to {}", reportFile);
+        } catch (IOException e) {
+            LOGGER.warn("Could not write profile to {}", reportFile, e);
+        }
+    }
+
+    String report() {
+        StringBuilder report = new StringBuilder();
+        report.append(String.format(
+                Locale.ROOT,
+                "spotless-cli profile: %s ms total, %d files formatted%n",
+                millis(System.nanoTime() - startNanos),
+                fileWallTimes.count()));
+
+        report.append(String.format(Locale.ROOT, "%nPhases (summed over all threads)%n"));
+        appendTable(report, "phase", snapshot(phases));
+
+        report.append(String.format(Locale.ROOT, "%nSteps (time spent in each step, summed over all threads)%n"));
+        appendTable(report, "step", snapshot(steps));
+
+        report.append(String.format(Locale.ROOT, "%nFiles (formatting and writing a file)%n"));
+        Map<String, long[]> files = new LinkedHashMap<>();
+        files.put("wall time", fileWallTimes.sorted());
+        if (fileCpuTimes.count() > 0 || fileWallTimes.count() == 0) {
+            files.put("cpu time", fileCpuTimes.sorted());
+        }
+        appendTable(report, "", files);
+        if (fileCpuTimes.count() < fileWallTimes.count()) {
+            report.append(String.format(
+                    Locale.ROOT,
+                    "cpu time n/a for %d files (formatted on virtual threads or not supported)%n",
+                    fileWallTimes.count() - fileCpuTimes.count()));
+        }
+
+        report.append(String.format(Locale.ROOT, "%nSlowest files%n"));
+        report.append(String.format(Locale.ROOT, "%12s %12s  %s%n", "wall ms", "cpu ms", "file"));
+        List<FileTiming> slowest;
+        synchronized (slowestFiles) {
+            slowest = new ArrayList<>(slowestFiles);
+        }
+        slowest.sort(Comparator.comparingLong(FileTiming::wallNanos).reversed());
+        for (FileTiming timing : slowest) {
+            report.append(String.format(
+                    Locale.ROOT,
+                    "%12s %12s  %s%n",
+                    millis(timing.wallNanos()),
+                    timing.cpuNanos() == NO_CPU_TIME ? "n/a" : millis(timing.cpuNanos()),
+                    timing.file()));
+        }
+        return report.toString();
+    }
+
+    private static Map<String, long[]> snapshot(Map<String, Samples> samplesByName) {
+        Map<String, long[]> snapshot = new LinkedHashMap<>();
+        synchronized (samplesByName) {
+            samplesByName.forEach((name, samples) -> snapshot.put(name, samples.sorted()));
+        }
+        return snapshot;
+    }
+
+    private static void appendTable(StringBuilder report, String nameHeader, Map<String, long[]> sortedSamplesByName) {
+        int nameWidth = Math.max(
+                nameHeader.length(),
+                sortedSamplesByName.keySet().stream().mapToInt(String::length).max().orElse(0));
+        String rowFormat = "%-" + nameWidth + "s %8s %12s %10s %10s %10s %10s%n";
+        report.append(String.format(
+                Locale.ROOT, rowFormat, nameHeader, "count", "total ms", "p50 ms", "p90 ms", "p99 ms", "max ms"));
+        sortedSamplesByName.forEach((name, sorted) -> report.append(String.format(
+                Locale.ROOT,
+                rowFormat,
+                name,
+                sorted.length,
+                millis(Arrays.stream(sorted).sum()),
+                millis(percentile(sorted, 50)),
+                millis(percentile(sorted, 90)),
+                millis(percentile(sorted, 99)),
+                millis(sorted.length == 0 ? 0 : sorted[sorted.length - 1]))));
+    }
+
+    /** nearest-rank percentile of the sorted samples */
+    static long percentile(long[] sorted, int percentile) {
+        if (sorted.length == 0) {
+            return 0;
+        }
+        int rank = (int) Math.ceil(percentile / 100.0 * sorted.length);
+        return sorted[Math.max(rank, 1) - 1];
+    }
+
+    private static String millis(long nanos) {
+        return String.format(Locale.ROOT, "%.1f", nanos / 1_000_000.0);
+    }
+
+    @FunctionalInterface
+    public interface Work<T, E extends Exception> {
+        T get() throws E;
+    }
+
+    @FunctionalInterface
+    public interface FileTimer extends AutoCloseable {
+
+        FileTimer NOOP = () -> {};
+
+        @Override
+        void close();
+    }
+
+    private record FileTiming(Path file, long wallNanos, long cpuNanos) {}
+
+    /** growable list of durations */
+    private static final class Samples {
+
+        private long[] values = new long[16];
+
+        private int count;
+
+        synchronized void add(long value) {
+            if (count == values.length) {
+                values = Arrays.copyOf(values, count * 2);
+            }
+            values[count++] = value;
+        }
+
+        synchronized int count() {
+            return count;
+        }
+
+        synchronized long[] sorted() {
+            long[] sorted = Arrays.copyOf(values, count);
+            Arrays.sort(sorted);
+            return sorted;
+        }
+    }
+}
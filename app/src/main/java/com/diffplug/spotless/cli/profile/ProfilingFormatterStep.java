@@ -0,0 +1,101 @@
+/*
+ * Copyright 2026 DiffPlug
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.diffplug.spotless.cli.profile;
+
+import java.io.File;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+
+import org.jetbrains.annotations.NotNull;
+
+import com.diffplug.spotless.FormatterStep;
+import com.diffplug.spotless.Lint;
+import com.diffplug.spotless.cli.steps.BatchFormatterStep;
+
+/**
+ * Records the time spent in the wrapped step. Implements {@link BatchFormatterStep} in any case, so batching keeps
+ * working for wrapped steps (other steps format their batches themselves).
+ */
+final class ProfilingFormatterStep implements BatchFormatterStep {
+
+    private static final long serialVersionUID = 1L;
+
+    private final FormatterStep delegate;
+
+    private final transient Profiler profiler;
+
+    ProfilingFormatterStep(@NotNull FormatterStep delegate, @NotNull Profiler profiler) {
+        this.delegate = Objects.requireNonNull(delegate);
+        this.profiler = Objects.requireNonNull(profiler);
+    }
+
+    @Override
+    public String getName() {
+        return delegate.getName();
+    }
+
+    @Override
+    public @NotNull FormatterStep prepareBatch(@NotNull Map<File, String> rawUnixByFile) {
+        if (!(delegate instanceof BatchFormatterStep batchStep)) {
+            return this;
+        }
+        long start = System.nanoTime();
+        try {
+            return new ProfilingFormatterStep(batchStep.prepareBatch(rawUnixByFile), profiler);
+        } finally {
+            profiler.recordStep(getName(), System.nanoTime() - start);
+        }
+    }
+
+    @Override
+    public String format(String rawUnix, File file) throws Exception {
+        long start = System.nanoTime();
+        try {
+            return delegate.format(rawUnix, file);
+        } finally {
+            profiler.recordStep(getName(), System.nanoTime() - start);
+        }
+    }
+
+    @Override
+    public List<Lint> lint(String content, File file) throws Exception {
+        long start = System.nanoTime();
+        try {
+            return delegate.lint(content, file);
+        } finally {
+            profiler.recordStep(getName(), System.nanoTime() - start);
+        }
+    }
+
+    @Override
+    public void close() throws Exception {
+        delegate.close();
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) return true;
+        if (o == null || getClass() != o.getClass()) return false;
+        ProfilingFormatterStep that = (ProfilingFormatterStep) o;
+        return Objects.equals(delegate, that.delegate);
+    }
+
+    @Override
+    public int hashCode() {
+        return Objects.hash(delegate);
+    }
+}
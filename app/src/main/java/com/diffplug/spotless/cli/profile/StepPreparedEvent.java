@@ -0,0 +1,43 @@
+/*
+ * Copyright 2026 DiffPlug
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.diffplug.spotless.cli.profile;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+/**
+ * JDK Flight Recorder event for preparing the formatter steps of a step command, which happens once per thread.
+ */
+@Name(StepPreparedEvent.NAME)
+@Label("Step Prepared")
+@Category({"Spotless", "Setup"})
+@Description("The formatter steps of a step command were prepared for a formatting thread")
+@StackTrace(false)
+public final class StepPreparedEvent extends Event {
+
+    public static final String NAME = "com.diffplug.spotless.cli.StepPrepared";
+
+    @Label("Step Class")
+    public Class<?> stepClass;
+
+    @Label("Config Checksum")
+    @Description("Checksum of the options the step was configured with")
+    public String configChecksum;
+}
@@ -0,0 +1,43 @@
+/*
+ * Copyright 2026 DiffPlug
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.diffplug.spotless.cli.profile;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+/**
+ * JDK Flight Recorder event for resolving a single {@code --target} to the files it matches.
+ */
+@Name(TargetResolvedEvent.NAME)
+@Label("Target Resolved")
+@Category({"Spotless", "Targets"})
+@Description("A target (file, directory or glob) was resolved to the files it matches")
+@StackTrace(false)
+public final class TargetResolvedEvent extends Event {
+
+    public static final String NAME = "com.diffplug.spotless.cli.TargetResolved";
+
+    @Label("Target")
+    public String target;
+
+    @Label("Count")
+    @Description("Number of files the target was resolved to")
+    public int count;
+}
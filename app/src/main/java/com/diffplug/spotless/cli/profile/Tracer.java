@@ -0,0 +1,255 @@
+/*
+ * Copyright 2026 DiffPlug
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.diffplug.spotless.cli.profile;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Iterator;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Queue;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
+
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.diffplug.spotless.cli.execution.FormatterStepsSupplier;
+
+/**
+ * Records spans of work per thread and writes them in the chrome trace event format (a JSON file which can be
+ * opened with https://ui.perfetto.dev or chrome://tracing), to see what each thread did over time.
+ * <p>
+ * All methods are thread-safe. A {@link #disabled()} tracer records nothing.
+ */
+public final class Tracer {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(Tracer.class);
+
+    public static final String CATEGORY_TARGETS = "targets";
+
+    public static final String CATEGORY_SETUP = "setup";
+
+    public static final String CATEGORY_FORMAT = "format";
+
+    public static final String CATEGORY_RESULT = "result";
+
+    public static final String CATEGORY_IO = "io";
+
+    /** pulling a target faster than this is not worth a span, slower pulls are the directory walks */
+    private static final long MIN_TARGET_PULL_NANOS = 100_000;
+
+    private static final Tracer DISABLED = new Tracer(false);
+
+    private final boolean enabled;
+
+    private final long startNanos = System.nanoTime();
+
+    private final Queue<Event> events = new ConcurrentLinkedQueue<>();
+
+    private final Map<Long, String> threadNames = new ConcurrentHashMap<>();
+
+    private Tracer(boolean enabled) {
+        this.enabled = enabled;
+    }
+
+    public static Tracer start() {
+        return new Tracer(true);
+    }
+
+    public static Tracer disabled() {
+        return DISABLED;
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    /**
+     * Starts a span in the current thread, it is recorded when closed (in the same thread).
+     */
+    public Span span(@NotNull String name, @NotNull String category) {
+        return span(name, category, null);
+    }
+
+    /**
+     * Starts a span for work on the given file in the current thread, it is recorded when closed (in the same thread).
+     */
+    public Span span(@NotNull String name, @NotNull String category, @Nullable Path file) {
+        if (!enabled) {
+            return Span.NOOP;
+        }
+        long start = System.nanoTime();
+        return () -> record(name, category, file, start, System.nanoTime());
+    }
+
+    /**
+     * @return a stream which records a span for every element whose production (in the source stream) took long
+     */
+    public <T> Stream<T> traceSlowPulls(@NotNull String name, @NotNull Stream<T> stream) {
+        if (!enabled) {
+            return stream;
+        }
+        Iterator<T> iterator = stream.iterator();
+        Iterator<T> tracedIterator = new Iterator<>() {
+            @Override
+            public boolean hasNext() {
+                long start = System.nanoTime();
+                boolean hasNext = iterator.hasNext();
+                recordIfSlow(start);
+                return hasNext;
+            }
+
+            @Override
+            public T next() {
+                long start = System.nanoTime();
+                T next = iterator.next();
+                recordIfSlow(start);
+                return next;
+            }
+
+            private void recordIfSlow(long start) {
+                long end = System.nanoTime();
+                if (end - start >= MIN_TARGET_PULL_NANOS) {
+                    record(name, CATEGORY_TARGETS, null, start, end);
+                }
+            }
+        };
+        return StreamSupport.stream(Spliterators.spliteratorUnknownSize(tracedIterator, Spliterator.ORDERED), false)
+                .onClose(stream::close);
+    }
+
+    /**
+     * @return a supplier which records a span for preparing the steps of each thread's formatter
+     */
+    public FormatterStepsSupplier traced(@NotNull FormatterStepsSupplier formatterSteps) {
+        if (!enabled) {
+            return formatterSteps;
+        }
+        return () -> {
+            try (Span span = span("create formatter", CATEGORY_SETUP)) {
+                return formatterSteps.getFormatterSteps();
+            }
+        };
+    }
+
+    private void record(String name, String category, @Nullable Path file, long startNanos, long endNanos) {
+        Thread thread = Thread.currentThread();
+        long threadId = thread.threadId();
+        threadNames.computeIfAbsent(threadId, id -> thread.getName());
+        events.add(new Event(name, category, file, startNanos - this.startNanos, endNanos - startNanos, threadId));
+    }
+
+    public void write(@NotNull Path traceFile) {
+        if (!enabled) {
+            return;
+        }
+        try {
+            Path parent = traceFile.toAbsolutePath().getParent();
+            if (parent != null) {
+                Files.createDirectories(parent);
+            }
+            try (Writer writer = Files.newBufferedWriter(traceFile, StandardCharsets.UTF_8)) {
+                write(writer);
+            }
+            LOGGER.info("Wrote {} trace events to {}", events.size(), traceFile);
+        } catch (IOException e) {
+            LOGGER.warn("Could not write trace to {}", traceFile, e);
+        }
+    }
+
+    void write(Writer writer) throws IOException {
+        long pid = ProcessHandle.current().pid();
+        writer.write("{\"displayTimeUnit\":\"ms\",\"traceEvents\":[\n");
+        boolean first = true;
+        for (Map.Entry<Long, String> threadName : threadNames.entrySet()) {
+            first = separate(writer, first);
+            writer.write(String.format(
+                    Locale.ROOT,
+                    "{\"name\":\"thread_name\",\"ph\":\"M\",\"pid\":%d,\"tid\":%d,\"args\":{\"name\":%s}}",
+                    pid,
+                    threadName.getKey(),
+                    quote(threadName.getValue())));
+        }
+        for (Event event : events) {
+            first = separate(writer, first);
+            writer.write(String.format(
+                    Locale.ROOT,
+                    "{\"name\":%s,\"cat\":%s,\"ph\":\"X\",\"ts\":%.3f,\"dur\":%.3f,\"pid\":%d,\"tid\":%d",
+                    quote(event.name()),
+                    quote(event.category()),
+                    event.startNanos() / 1_000.0,
+                    event.durationNanos() / 1_000.0,
+                    pid,
+                    event.threadId()));
+            if (event.file() != null) {
+                writer.write(",\"args\":{\"file\":" + quote(event.file().toString()) + "}");
+            }
+            writer.write("}");
+        }
+        writer.write("\n]}\n");
+    }
+
+    private static boolean separate(Writer writer, boolean first) throws IOException {
+        if (!first) {
+            writer.write(",\n");
+        }
+        return false;
+    }
+
+    static String quote(String value) {
+        StringBuilder quoted = new StringBuilder(value.length() + 2).append('"');
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            switch (c) {
+                case '"' -> quoted.append("\\\"");
+                case '\\' -> quoted.append("\\\\");
+                case '\n' -> quoted.append("\\n");
+                case '\r' -> quoted.append("\\r");
+                case '\t' -> quoted.append("\\t");
+                default -> {
+                    if (c < 0x20) {
+                        quoted.append(String.format(Locale.ROOT, "\\u%04x", (int) c));
+                    } else {
+                        quoted.append(c);
+                    }
+                }
+            }
+        }
+        return quoted.append('"').toString();
+    }
+
+    @FunctionalInterface
+    public interface Span extends AutoCloseable {
+
+        Span NOOP = () -> {};
+
+        @Override
+        void close();
+    }
+
+    private record Event(
+            String name, String category, @Nullable Path file, long startNanos, long durationNanos, long threadId) {}
+}
@@ -0,0 +1,84 @@
+/*
+ * Copyright 2026 DiffPlug
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.diffplug.spotless.cli.report;
+
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+
+import com.diffplug.spotless.cli.version.SpotlessCLIVersionProvider;
+
+import picocli.CommandLine;
+import picocli.CommandLine.Command;
+
+@Command(
+        name = "spotless " + MergeReports.COMMAND_NAME,
+        mixinStandardHelpOptions = true,
+        usageHelpAutoWidth = true,
+        versionProvider = SpotlessCLIVersionProvider.class,
+        description = "%nMerges the reports written by @|yellow spotless --report FILE|@ into a single summary and "
+                + "exit code, e.g. the reports of all @|yellow --shard|@s of a tree which was formatted by several jobs.%n")
+public final class MergeReports implements Callable<Integer> {
+
+    public static final String COMMAND_NAME = "merge-reports";
+
+    @CommandLine.Spec
+    CommandLine.Model.CommandSpec spec; // injected by picocli
+
+    @CommandLine.Parameters(arity = "1..*", paramLabel = "REPORT", description = "The reports to merge.")
+    List<Path> reports;
+
+    @CommandLine.Option(
+            names = {"--report"},
+            paramLabel = "FILE",
+            description = "Write the merged report to the given file.")
+    Path report;
+
+    public static int run(String... args) {
+        return new CommandLine(new MergeReports()).execute(args);
+    }
+
+    @Override
+    public Integer call() throws IOException {
+        List<RunReport> runReports = new ArrayList<>();
+        for (Path reportFile : reports) {
+            try {
+                runReports.add(RunReport.read(reportFile));
+            } catch (IOException | IllegalArgumentException e) {
+                throw new CommandLine.ParameterException(
+                        spec.commandLine(), "Error: Could not read report " + reportFile + ": " + e.getMessage());
+            }
+        }
+        RunReport merged;
+        try {
+            merged = RunReport.merge(runReports);
+        } catch (IllegalArgumentException e) {
+            throw new CommandLine.ParameterException(spec.commandLine(), "Error: " + e.getMessage());
+        }
+        PrintWriter out = spec.commandLine().getOut();
+        out.println(merged.summary());
+        merged.dirtyFiles().forEach(file -> out.println("dirty: " + file));
+        merged.didNotConvergeFiles().forEach(file -> out.println("did not converge: " + file));
+        out.flush();
+        if (report != null) {
+            merged.write(report);
+        }
+        return merged.exitCode();
+    }
+}
@@ -0,0 +1,256 @@
+/*
+ * Copyright 2026 DiffPlug
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.diffplug.spotless.cli.report;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.TreeMap;
+
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import com.diffplug.spotless.cli.core.Shard;
+
+/**
+ * The outcome of a run: its exit code, how many files ended up in which state and which files were not clean.
+ * <p>
+ * Reports are written as plain text so that the reports of several runs, e.g. of all the {@code --shard}s of a tree,
+ * can be collected and {@link #merge(List) merged} into a single summary and exit code. Not thread-safe, results are
+ * recorded by the thread handling them.
+ */
+public final class RunReport {
+
+    static final String HEADER = "# spotless-cli report v1";
+
+    private static final String SHARD = "shard";
+
+    private static final String EXIT_CODE = "exit-code";
+
+    private static final String UP_TO_DATE = "up-to-date";
+
+    private static final String CLEAN = "clean";
+
+    private static final String DIRTY = "dirty";
+
+    private static final String DID_NOT_CONVERGE = "did-not-converge";
+
+    private final @Nullable Shard shard;
+
+    private int exitCode;
+
+    private long upToDate;
+
+    private long clean;
+
+    private final List<String> dirtyFiles = new ArrayList<>();
+
+    private final List<String> didNotConvergeFiles = new ArrayList<>();
+
+    public RunReport(@Nullable Shard shard) {
+        this.shard = shard;
+    }
+
+    public @Nullable Shard shard() {
+        return shard;
+    }
+
+    public int exitCode() {
+        return exitCode;
+    }
+
+    public void exitCode(int exitCode) {
+        this.exitCode = exitCode;
+    }
+
+    public long upToDate() {
+        return upToDate;
+    }
+
+    public long clean() {
+        return clean;
+    }
+
+    public List<String> dirtyFiles() {
+        return Collections.unmodifiableList(dirtyFiles);
+    }
+
+    public List<String> didNotConvergeFiles() {
+        return Collections.unmodifiableList(didNotConvergeFiles);
+    }
+
+    public long files() {
+        return upToDate + clean + dirtyFiles.size() + didNotConvergeFiles.size();
+    }
+
+    public void recordUpToDate() {
+        upToDate++;
+    }
+
+    public void recordClean() {
+        clean++;
+    }
+
+    /**
+     * @param file the path of the file relative to the base directory
+     */
+    public void recordDirty(@NotNull String file) {
+        dirtyFiles.add(Objects.requireNonNull(file));
+    }
+
+    /**
+     * @param file the path of the file relative to the base directory
+     */
+    public void recordDidNotConverge(@NotNull String file) {
+        didNotConvergeFiles.add(Objects.requireNonNull(file));
+    }
+
+    /**
+     * Merges the reports of several runs. The reports either all belong to no shard, or they are exactly the shards
+     * of one partitioning: all of them, each one once.
+     *
+     * @throws IllegalArgumentException if the reports are not such a set of shards
+     */
+    public static RunReport merge(@NotNull List<RunReport> reports) {
+        validateShards(reports);
+        RunReport merged = new RunReport(null);
+        for (RunReport report : reports) {
+            merged.exitCode = combineExitCodes(merged.exitCode, report.exitCode);
+            merged.upToDate += report.upToDate;
+            merged.clean += report.clean;
+            merged.dirtyFiles.addAll(report.dirtyFiles);
+            merged.didNotConvergeFiles.addAll(report.didNotConvergeFiles);
+        }
+        Collections.sort(merged.dirtyFiles);
+        Collections.sort(merged.didNotConvergeFiles);
+        return merged;
+    }
+
+    /**
+     * A run which did not converge (-1) outweighs dirty runs (1), which outweigh clean runs (0).
+     */
+    static int combineExitCodes(int exitCode, int other) {
+        if (exitCode == -1 || other == -1) {
+            return -1;
+        }
+        return Math.max(exitCode, other);
+    }
+
+    private static void validateShards(List<RunReport> reports) {
+        long sharded = reports.stream().filter(report -> report.shard != null).count();
+        if (sharded == 0) {
+            return;
+        }
+        if (sharded != reports.size()) {
+            throw new IllegalArgumentException("Cannot merge reports of shards with reports of unsharded runs");
+        }
+        int count = reports.getFirst().shard.count();
+        Map<Integer, Shard> shards = new TreeMap<>();
+        for (RunReport report : reports) {
+            if (report.shard.count() != count) {
+                throw new IllegalArgumentException("Cannot merge reports of different numbers of shards: " + count
+                        + " and " + report.shard.count());
+            }
+            if (shards.put(report.shard.index(), report.shard) != null) {
+                throw new IllegalArgumentException("Shard " + report.shard + " is reported more than once");
+            }
+        }
+        List<String> missing = new ArrayList<>();
+        for (int index = 1; index <= count; index++) {
+            if (!shards.containsKey(index)) {
+                missing.add(index + "/" + count);
+            }
+        }
+        if (!missing.isEmpty()) {
+            throw new IllegalArgumentException("Missing the reports of shards " + String.join(", ", missing));
+        }
+    }
+
+    public String summary() {
+        return files() + " files: " + clean + " clean, " + upToDate + " up-to-date, " + dirtyFiles.size() + " dirty, "
+                + didNotConvergeFiles.size() + " did not converge";
+    }
+
+    public void write(@NotNull Path reportFile) throws IOException {
+        Path parent = reportFile.toAbsolutePath().getParent();
+        if (parent != null) {
+            Files.createDirectories(parent);
+        }
+        try (BufferedWriter writer = Files.newBufferedWriter(reportFile, StandardCharsets.UTF_8)) {
+            writer.write(HEADER);
+            writer.newLine();
+            if (shard != null) {
+                writeLine(writer, SHARD, shard.toString());
+            }
+            writeLine(writer, EXIT_CODE, Integer.toString(exitCode));
+            writeLine(writer, UP_TO_DATE, Long.toString(upToDate));
+            writeLine(writer, CLEAN, Long.toString(clean));
+            for (String file : dirtyFiles) {
+                writeLine(writer, DIRTY, file);
+            }
+            for (String file : didNotConvergeFiles) {
+                writeLine(writer, DID_NOT_CONVERGE, file);
+            }
+        }
+    }
+
+    private static void writeLine(BufferedWriter writer, String key, String value) throws IOException {
+        writer.write(key + "\t" + value);
+        writer.newLine();
+    }
+
+    /**
+     * @throws IllegalArgumentException if the file is not a report (of this version)
+     */
+    public static RunReport read(@NotNull Path reportFile) throws IOException {
+        List<String> lines = Files.readAllLines(reportFile, StandardCharsets.UTF_8);
+        if (lines.isEmpty() || !HEADER.equals(lines.getFirst())) {
+            throw new IllegalArgumentException("Not a spotless-cli report: " + reportFile);
+        }
+        Shard shard = lines.stream()
+                .filter(line -> line.startsWith(SHARD + "\t"))
+                .findFirst()
+                .map(line -> Shard.parse(line.substring(SHARD.length() + 1)))
+                .orElse(null);
+        RunReport report = new RunReport(shard);
+        try {
+            for (String line : lines.subList(1, lines.size())) {
+                String[] parts = line.split("\t", 2);
+                if (parts.length != 2) {
+                    continue; // skip malformed lines
+                }
+                switch (parts[0]) {
+                    case EXIT_CODE -> report.exitCode = Integer.parseInt(parts[1]);
+                    case UP_TO_DATE -> report.upToDate = Long.parseLong(parts[1]);
+                    case CLEAN -> report.clean = Long.parseLong(parts[1]);
+                    case DIRTY -> report.dirtyFiles.add(parts[1]);
+                    case DID_NOT_CONVERGE -> report.didNotConvergeFiles.add(parts[1]);
+                    default -> {} // shard, or written by a newer version
+                }
+            }
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException("Malformed spotless-cli report: " + reportFile, e);
+        }
+        return report;
+    }
+}
@@ -0,0 +1,41 @@
+/*
+ * Copyright 2026 DiffPlug
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.diffplug.spotless.cli.steps;
+
+import java.io.File;
+import java.util.Map;
+
+import org.jetbrains.annotations.NotNull;
+
+import com.diffplug.spotless.FormatterStep;
+
+/**
+ * A step which can format many files at once much cheaper than one by one (e.g. because it runs an external process
+ * per invocation).
+ * <p>
+ * Before the files of a batch are formatted one by one (in the same thread), the step gets the chance to prepare
+ * the results for all of them, and the files of the batch are then formatted by the returned step. It must still
+ * work for files (or contents) which were not prepared, as the content passed to {@link #format(String, File)}
+ * differs from the prepared one if other steps ran before.
+ */
+public interface BatchFormatterStep extends FormatterStep {
+
+    /**
+     * @param rawUnixByFile the content of each file of the batch, as it is read from disk (with unix line endings)
+     * @return the step to format the files of the batch with, which is not closed (so it must not own any resources)
+     */
+    @NotNull FormatterStep prepareBatch(@NotNull Map<File, String> rawUnixByFile);
+}
@@ -0,0 +1,298 @@
+/*
+ * Copyright 2026 DiffPlug
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.diffplug.spotless.cli.steps;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import java.util.stream.Stream;
+
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.diffplug.spotless.ForeignExe;
+import com.diffplug.spotless.FormatterStep;
+import com.diffplug.spotless.Lint;
+
+/**
+ * Formats whole batches of files with a single clang-format process ({@code clang-format -i file1 file2 ...}).
+ * <p>
+ * As clang-format only reads a single content from stdin ({@code --assume-filename} does not apply to files), the
+ * contents of a batch are written to a temporary directory. The files are grouped by the {@code .clang-format} file
+ * they would pick up in place, which is passed by its real path ({@code --style=file:<path>}, clang-format 14 and
+ * later) or copied next to the contents for older versions. To make the convergence check of spotless cheap as
+ * well, changed results are formatted a second time within the same batch.
+ * <p>
+ * Whenever a content was not prepared (or the batch failed), formatting falls back to the regular per-file step,
+ * so results and error messages are exactly the same as without batching.
+ */
+final class BatchedClangFormatStep implements BatchFormatterStep {
+
+    private static final long serialVersionUID = 1L;
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(BatchedClangFormatStep.class);
+
+    private static final Pattern MAJOR_VERSION_PATTERN = Pattern.compile("\\d+");
+
+    private static final List<String> STYLE_FILE_NAMES = List.of(".clang-format", "_clang-format");
+
+    private final FormatterStep delegate;
+
+    private final String executable;
+
+    private final @Nullable String style;
+
+    private final boolean styleFileByPath;
+
+    private BatchedClangFormatStep(
+            @NotNull FormatterStep delegate,
+            @NotNull String executable,
+            @Nullable String style,
+            boolean styleFileByPath) {
+        this.delegate = Objects.requireNonNull(delegate);
+        this.executable = Objects.requireNonNull(executable);
+        this.style = style;
+        this.styleFileByPath = styleFileByPath;
+    }
+
+    /**
+     * @return the batching step, or just {@code delegate} if the executable cannot be found or does not have the
+     * requested version (the regular step reports the problem when formatting then)
+     */
+    static FormatterStep create(
+            @NotNull FormatterStep delegate,
+            @NotNull String version,
+            @Nullable String pathToExe,
+            @Nullable String style) {
+        String executable;
+        try {
+            // resolved the same way as by the regular step
+            executable = ForeignExe.nameAndVersion("clang-format", version)
+                    .pathToExe(pathToExe)
+                    .confirmVersionAndGetAbsolutePath();
+        } catch (IOException | RuntimeException e) {
+            LOGGER.debug("Not batching clang-format {}, could not find it", version, e);
+            return delegate;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return delegate;
+        }
+        return new BatchedClangFormatStep(delegate, executable, style, majorVersion(version) >= 14);
+    }
+
+    @Override
+    public String getName() {
+        return delegate.getName();
+    }
+
+    @Override
+    public @NotNull FormatterStep prepareBatch(@NotNull Map<File, String> rawUnixByFile) {
+        Map<File, Map<String, String>> results = new HashMap<>();
+        Map<Path, Map<File, String>> byStyleFile = new LinkedHashMap<>(); // null key for files without style file
+        rawUnixByFile.forEach((file, rawUnix) -> byStyleFile
+                .computeIfAbsent(styleFileFor(file), key -> new LinkedHashMap<>())
+                .put(file, rawUnix));
+        byStyleFile.forEach((styleFile, inputs) -> {
+            Map<File, String> formatted = runBatch(styleFile, inputs);
+            Map<File, String> changed = new LinkedHashMap<>();
+            formatted.forEach((file, output) -> {
+                String input = inputs.get(file);
+                results.computeIfAbsent(file, key -> new HashMap<>()).put(input, output);
+                if (!output.equals(input)) {
+                    changed.put(file, output);
+                }
+            });
+            // spotless formats changed files again to check that the result converges
+            runBatch(styleFile, changed).forEach((file, output) -> results.get(file).put(changed.get(file), output));
+        });
+        return new PreparedBatch(delegate, results);
+    }
+
+    @Override
+    public String format(String rawUnix, File file) throws Exception {
+        return delegate.format(rawUnix, file);
+    }
+
+    @Override
+    public List<Lint> lint(String content, File file) throws Exception {
+        return delegate.lint(content, file);
+    }
+
+    /** @return the formatted contents, or an empty map if the batch could not be formatted */
+    private Map<File, String> runBatch(@Nullable Path styleFile, Map<File, String> inputs) {
+        if (inputs.size() < 2) {
+            return Map.of(); // no gain over the regular step
+        }
+        Path batchDir = null;
+        try {
+            batchDir = Files.createTempDirectory("spotless-clang-format-");
+            List<String> command = new ArrayList<>();
+            command.add(executable);
+            if (style != null && !style.equals("file")) {
+                command.add("--style=" + style);
+            } else if (styleFile != null && styleFileByPath) {
+                command.add("--style=file:" + styleFile);
+            } else if (styleFile != null) {
+                Files.copy(styleFile, batchDir.resolve(styleFile.getFileName()));
+            }
+            Map<File, Path> copies = new LinkedHashMap<>();
+            int index = 0;
+            for (Map.Entry<File, String> input : inputs.entrySet()) {
+                // own directory per file, so files with the same name don't clash
+                Path copy = Files.createDirectory(batchDir.resolve(String.valueOf(index++)))
+                        .resolve(input.getKey().getName());
+                Files.writeString(copy, input.getValue(), StandardCharsets.UTF_8);
+                copies.put(input.getKey(), copy);
+            }
+            command.add("-i");
+            copies.values().forEach(copy -> command.add(copy.toString()));
+            ProcessResult result = run(command);
+            if (result.exitCode() != 0) {
+                LOGGER.debug(
+                        "clang-format batch of {} files failed ({}), formatting them one by one: {}",
+                        inputs.size(),
+                        result.exitCode(),
+                        result.output());
+                return Map.of();
+            }
+            Map<File, String> formatted = new LinkedHashMap<>();
+            for (Map.Entry<File, Path> copy : copies.entrySet()) {
+                formatted.put(copy.getKey(), Files.readString(copy.getValue(), StandardCharsets.UTF_8));
+            }
+            LOGGER.debug("Formatted batch of {} files with one clang-format process", inputs.size());
+            return formatted;
+        } catch (IOException e) {
+            LOGGER.debug("clang-format batch of {} files failed, formatting them one by one", inputs.size(), e);
+            return Map.of();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return Map.of();
+        } finally {
+            if (batchDir != null) {
+                deleteRecursively(batchDir);
+            }
+        }
+    }
+
+    /** @return the major version, or 0 if it cannot be told */
+    private static int majorVersion(String version) {
+        Matcher matcher = MAJOR_VERSION_PATTERN.matcher(version);
+        return matcher.lookingAt() ? Integer.parseInt(matcher.group()) : 0;
+    }
+
+    /** @return the style file clang-format would use for the file (in case the style is looked up from a file) */
+    private static @Nullable Path styleFileFor(File file) {
+        for (Path dir = file.toPath().toAbsolutePath().getParent(); dir != null; dir = dir.getParent()) {
+            for (String name : STYLE_FILE_NAMES) {
+                Path candidate = dir.resolve(name);
+                if (Files.isRegularFile(candidate)) {
+                    return candidate;
+                }
+            }
+        }
+        return null;
+    }
+
+    private static ProcessResult run(List<String> command) throws IOException, InterruptedException {
+        Process process = new ProcessBuilder(command).redirectErrorStream(true).start();
+        process.getOutputStream().close();
+        String output = new String(process.getInputStream().readAllBytes(), StandardCharsets.UTF_8);
+        return new ProcessResult(process.waitFor(), output);
+    }
+
+    private static void deleteRecursively(Path dir) {
+        try (Stream<Path> paths = Files.walk(dir)) {
+            paths.sorted(Comparator.reverseOrder()).forEach(path -> path.toFile().delete());
+        } catch (IOException e) {
+            LOGGER.debug("Could not delete {}", dir, e);
+        }
+    }
+
+    @Override
+    public void close() throws Exception {
+        delegate.close();
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) return true;
+        if (o == null || getClass() != o.getClass()) return false;
+        BatchedClangFormatStep that = (BatchedClangFormatStep) o;
+        return Objects.equals(delegate, that.delegate)
+                && Objects.equals(executable, that.executable)
+                && Objects.equals(style, that.style)
+                && styleFileByPath == that.styleFileByPath;
+    }
+
+    @Override
+    public int hashCode() {
+        return Objects.hash(delegate, executable, style, styleFileByPath);
+    }
+
+    private record ProcessResult(int exitCode, String output) {}
+
+    /**
+     * Formats the files of a batch with the results prepared for them, anything else with the regular step.
+     */
+    private static final class PreparedBatch implements FormatterStep {
+
+        private static final long serialVersionUID = 1L;
+
+        private final FormatterStep delegate;
+
+        /** by file and input content */
+        private final Map<File, Map<String, String>> results;
+
+        private PreparedBatch(FormatterStep delegate, Map<File, Map<String, String>> results) {
+            this.delegate = delegate;
+            this.results = results;
+        }
+
+        @Override
+        public String getName() {
+            return delegate.getName();
+        }
+
+        @Override
+        public String format(String rawUnix, File file) throws Exception {
+            String result = results.getOrDefault(file, Map.of()).get(rawUnix);
+            return result != null ? result : delegate.format(rawUnix, file);
+        }
+
+        @Override
+        public List<Lint> lint(String content, File file) throws Exception {
+            return delegate.lint(content, file);
+        }
+
+        @Override
+        public void close() {
+            // the delegate belongs to the batching step
+        }
+    }
+}
@@ -55,6 +55,15 @@ public class ClangFormat extends SpotlessFormatterStep {
             description = "The style to use for clang-format.")
     String style;
 
+    @CommandLine.Option(
+            names = {"--batch-size", "-b"},
+            description = "The number of files to format with a single clang-format process." + OptionConstants.NEW_LINE
+                    + "Files which cannot be formatted in a batch (e.g. because another step ran before) are"
+                    + " formatted one by one." + OptionConstants.DEFAULT_VALUE_SUFFIX_BEGIN
+                    + "one process per file" + OptionConstants.DEFAULT_VALUE_SUFFIX_END,
+            paramLabel = "N")
+    Integer batchSize;
+
     @Override
     public @NotNull List<FormatterStep> prepareFormatterSteps() {
         ClangFormatStep clangFormatStep = ClangFormatStep.withVersion(version);
@@ -64,6 +73,20 @@ public class ClangFormat extends SpotlessFormatterStep {
         if (style != null) {
             clangFormatStep = clangFormatStep.withStyle(style);
         }
+        if (batchSize != null && batchSize > 1) {
+            return List.of(BatchedClangFormatStep.create(
+                    clangFormatStep.create(), version, pathToExec != null ? pathToExec.toString() : null, style));
+        }
         return List.of(clangFormatStep.create());
     }
+
+    @Override
+    public int preferredBatchSize() {
+        return batchSize != null ? Math.max(batchSize, 1) : 1;
+    }
+
+    @Override
+    public boolean isCpuBound() {
+        return false;
+    }
 }
@@ -18,6 +18,7 @@ package com.diffplug.spotless.cli.steps;
 import java.nio.file.Path;
 import java.util.List;
 import java.util.Locale;
+import java.util.Set;
 import java.util.function.Supplier;
 
 import org.jetbrains.annotations.NotNull;
@@ -61,23 +62,30 @@ public class EclipseWtp extends SpotlessFormatterStep {
     Type type;
 
     public enum Type {
-        CSS(EclipseWtpFormatterStep.CSS),
-        HTML(EclipseWtpFormatterStep.HTML),
-        JS(EclipseWtpFormatterStep.JS),
-        JSON(EclipseWtpFormatterStep.JSON),
-        XML(EclipseWtpFormatterStep.XML),
-        XHTML(EclipseWtpFormatterStep.HTML); // XHTML is treated as HTML in Eclipse WTP
+        CSS(EclipseWtpFormatterStep.CSS, "css"),
+        HTML(EclipseWtpFormatterStep.HTML, "html", "htm"),
+        JS(EclipseWtpFormatterStep.JS, "js", "mjs", "cjs"),
+        JSON(EclipseWtpFormatterStep.JSON, "json"),
+        XML(EclipseWtpFormatterStep.XML, "xml", "xsd", "xsl", "xslt", "wsdl", "svg", "pom"),
+        XHTML(EclipseWtpFormatterStep.HTML, "xhtml"); // XHTML is treated as HTML in Eclipse WTP
 
         private final EclipseWtpFormatterStep backendEclipseWtpType;
 
-        Type(EclipseWtpFormatterStep backendEclipseWtpType) {
+        private final Set<String> fileExtensions;
+
+        Type(EclipseWtpFormatterStep backendEclipseWtpType, String... fileExtensions) {
             this.backendEclipseWtpType = backendEclipseWtpType;
+            this.fileExtensions = Set.of(fileExtensions);
         }
 
         public @NotNull EclipseWtpFormatterStep toEclipseWtpType() {
             return this.backendEclipseWtpType;
         }
 
+        public @NotNull Set<String> fileExtensions() {
+            return fileExtensions;
+        }
+
         public static @Nullable Type fromTargetFileType(@NotNull TargetFileTypeInferer.TargetFileType targetFileType) {
             return switch (targetFileType.fileExtension().toLowerCase(Locale.getDefault())) {
                 case "css" -> CSS;
@@ -105,6 +113,20 @@ public class EclipseWtp extends SpotlessFormatterStep {
         return List.of(builder.build());
     }
 
+    /**
+     * Only files of the (given or inferred) type are formatted, so the formatter only starts once such a file shows up.
+     */
+    @Override
+    public @NotNull Set<String> fileExtensions(SpotlessActionContext context) {
+        if (type != null) {
+            return type.fileExtensions();
+        }
+        TargetFileTypeInferer.TargetFileType targetFileType = context.targetFileType();
+        Type inferredType = targetFileType.fileExtension() != null ? Type.fromTargetFileType(targetFileType) : null;
+        // without a type, preparing the steps fails right away
+        return inferredType != null ? inferredType.fileExtensions() : Set.of();
+    }
+
     private Type type(Supplier<TargetFileTypeInferer.TargetFileType> targetFileTypeSupplier) {
         if (type != null) {
             return type;
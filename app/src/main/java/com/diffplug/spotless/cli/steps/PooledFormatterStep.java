@@ -0,0 +1,239 @@
+/*
+ * Copyright 2026 DiffPlug
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.diffplug.spotless.cli.steps;
+
+import java.io.File;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Supplier;
+
+import org.jetbrains.annotations.NotNull;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.diffplug.spotless.FormatterStep;
+import com.diffplug.spotless.Lint;
+
+/**
+ * A step backed by a pool of at most {@code poolSize} delegate steps which is shared by all instances created for
+ * the same {@code poolKey}, i.e. by all formatting threads.
+ * <p>
+ * This is meant for steps which hold an expensive resource (e.g. a node server): instead of one resource per
+ * thread, each call borrows an idle delegate (waiting for one if all are busy). Delegates are created lazily, so
+ * the pool never grows beyond what the run actually needs. The pool is closed when the last instance is closed.
+ */
+final class PooledFormatterStep implements FormatterStep {
+
+    private static final long serialVersionUID = 1L;
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(PooledFormatterStep.class);
+
+    private static final Map<String, Pool> POOLS = new HashMap<>();
+
+    private final String name;
+
+    private final String poolKey;
+
+    private final int poolSize;
+
+    private transient volatile Pool pool;
+
+    private PooledFormatterStep(String name, String poolKey, int poolSize, Pool pool) {
+        this.name = name;
+        this.poolKey = poolKey;
+        this.poolSize = poolSize;
+        this.pool = pool;
+    }
+
+    static FormatterStep create(
+            @NotNull String name,
+            @NotNull String poolKey,
+            int poolSize,
+            @NotNull Supplier<FormatterStep> delegateFactory) {
+        if (poolSize < 1) {
+            throw new IllegalArgumentException("poolSize must be > 0, was " + poolSize);
+        }
+        Objects.requireNonNull(delegateFactory);
+        synchronized (POOLS) {
+            Pool pool = POOLS.computeIfAbsent(poolKey, key -> new Pool(key, poolSize, delegateFactory));
+            pool.references++;
+            return new PooledFormatterStep(name, poolKey, poolSize, pool);
+        }
+    }
+
+    @Override
+    public String getName() {
+        return name;
+    }
+
+    @Override
+    public String format(String rawUnix, File file) throws Exception {
+        return withDelegate(delegate -> delegate.format(rawUnix, file));
+    }
+
+    @Override
+    public List<Lint> lint(String content, File file) throws Exception {
+        return withDelegate(delegate -> delegate.lint(content, file));
+    }
+
+    private <T> T withDelegate(DelegateUse<T> use) throws Exception {
+        Pool current = pool;
+        if (current == null) {
+            throw new IllegalStateException("Step " + name + " is closed or was deserialized");
+        }
+        FormatterStep delegate = current.borrow();
+        try {
+            return use.apply(delegate);
+        } finally {
+            current.release(delegate);
+        }
+    }
+
+    @Override
+    public void close() throws Exception {
+        Pool closing;
+        synchronized (POOLS) {
+            if (pool == null) {
+                return;
+            }
+            closing = --pool.references == 0 ? POOLS.remove(poolKey) : null;
+            pool = null;
+        }
+        if (closing != null) {
+            closing.close();
+        }
+    }
+
+    @FunctionalInterface
+    private interface DelegateUse<T> {
+        T apply(FormatterStep delegate) throws Exception;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) return true;
+        if (o == null || getClass() != o.getClass()) return false;
+        PooledFormatterStep that = (PooledFormatterStep) o;
+        return poolSize == that.poolSize && Objects.equals(name, that.name) && Objects.equals(poolKey, that.poolKey);
+    }
+
+    @Override
+    public int hashCode() {
+        return Objects.hash(name, poolKey, poolSize);
+    }
+
+    private static final class Pool {
+
+        private final String key;
+
+        private final int size;
+
+        private final Supplier<FormatterStep> delegateFactory;
+
+        // a lock instead of synchronized, so virtual threads waiting for a delegate do not pin their carrier
+        private final Lock lock = new ReentrantLock();
+
+        private final Condition delegateAvailable = lock.newCondition();
+
+        private final Deque<FormatterStep> idle = new ArrayDeque<>(); // guarded by lock
+
+        private final List<FormatterStep> created = new ArrayList<>(); // guarded by lock
+
+        private int reserved; // guarded by lock, counts delegates created or being created
+
+        private int references; // guarded by POOLS
+
+        private Pool(String key, int size, Supplier<FormatterStep> delegateFactory) {
+            this.key = key;
+            this.size = size;
+            this.delegateFactory = delegateFactory;
+        }
+
+        FormatterStep borrow() throws InterruptedException {
+            int number;
+            lock.lock();
+            try {
+                while (idle.isEmpty() && reserved >= size) {
+                    delegateAvailable.await();
+                }
+                if (!idle.isEmpty()) {
+                    return idle.pop();
+                }
+                number = ++reserved;
+            } finally {
+                lock.unlock();
+            }
+            // created outside the lock, so several delegates can start up in parallel
+            LOGGER.debug("Creating pooled step {}/{} for {}", number, size, key);
+            FormatterStep delegate;
+            try {
+                delegate = delegateFactory.get();
+            } catch (RuntimeException | Error e) {
+                lock.lock();
+                try {
+                    reserved--;
+                    delegateAvailable.signal(); // a waiting borrower takes over creating the delegate
+                } finally {
+                    lock.unlock();
+                }
+                throw e;
+            }
+            lock.lock();
+            try {
+                created.add(delegate);
+            } finally {
+                lock.unlock();
+            }
+            return delegate;
+        }
+
+        void release(FormatterStep delegate) {
+            lock.lock();
+            try {
+                idle.push(delegate);
+                delegateAvailable.signal();
+            } finally {
+                lock.unlock();
+            }
+        }
+
+        void close() {
+            lock.lock();
+            try {
+                LOGGER.debug("Closing {} pooled steps for {}", created.size(), key);
+                for (FormatterStep delegate : created) {
+                    try {
+                        delegate.close();
+                    } catch (Exception e) {
+                        LOGGER.warn("Could not close pooled step {}", delegate.getName(), e);
+                    }
+                }
+                created.clear();
+                idle.clear();
+            } finally {
+                lock.unlock();
+            }
+        }
+    }
+}
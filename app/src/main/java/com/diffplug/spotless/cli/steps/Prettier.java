@@ -29,6 +29,7 @@ import com.diffplug.spotless.FormatterStep;
 import com.diffplug.spotless.cli.core.ExecutionLayout;
 import com.diffplug.spotless.cli.core.SpotlessActionContext;
 import com.diffplug.spotless.cli.help.AdditionalInfoLinks;
+import com.diffplug.spotless.cli.help.OptionConstants;
 import com.diffplug.spotless.cli.help.SupportedFileTypes;
 import com.diffplug.spotless.npm.NpmPathResolver;
 import com.diffplug.spotless.npm.PrettierConfig;
@@ -66,7 +67,7 @@ import static com.diffplug.spotless.cli.steps.OptionDefaultUse.use;
     "https://prettier.io/",
     "🧩 Find plugins at https://prettier.io/docs/plugins.html#official-plugins"
 })
-public class Prettier extends SpotlessFormatterStep {
+public class Prettier extends SpotlessFormatterStep implements BuildDirGloballyReusable {
 
     public static final String SUPPORTED_FILETYPES =
             "JavaScript, JSX, Angular, Vue, Flow, TypeScript, CSS, Less, SCSS, HTML, Ember/Handlebars, JSON, GraphQL, Markdown, YAML, (and more using plugins)";
@@ -95,6 +96,20 @@ public class Prettier extends SpotlessFormatterStep {
             paramLabel = "'OPTION=VALUE'")
     Map<String, String> prettierConfigOptions;
 
+    @CommandLine.Option(
+            names = {"--server-pool-size"},
+            description = "The number of prettier servers shared by all formatting threads." + NEW_LINE
+                    + "Each thread borrows an idle server per file, which saves node processes (and memory) when"
+                    + " running with many threads." + OptionConstants.DEFAULT_VALUE_SUFFIX_BEGIN
+                    + "one server per thread" + OptionConstants.DEFAULT_VALUE_SUFFIX_END,
+            paramLabel = "N")
+    Integer serverPoolSize;
+
+    @Override
+    public boolean isCpuBound() {
+        return false;
+    }
+
     @NotNull @Override
     public List<FormatterStep> prepareFormatterSteps(SpotlessActionContext context) {
         FormatterStep prettierFormatterStep = builder(context)
@@ -106,6 +121,7 @@ public class Prettier extends SpotlessFormatterStep {
                 .withAdditionalNpmrcLocations(additionalNpmrcLocations())
                 .withPrettierConfigOptions(prettierConfigOptions())
                 .withPrettierConfigPath(prettierConfigPath)
+                .withServerPoolSize(serverPoolSize)
                 .build();
 
         return List.of(prettierFormatterStep);
@@ -172,6 +188,8 @@ public class Prettier extends SpotlessFormatterStep {
 
         private Path prettierConfigPath;
 
+        private Integer serverPoolSize;
+
         private PrettierFormatterStepBuilder(@NotNull SpotlessActionContext context) {
             this.context = Objects.requireNonNull(context);
         }
@@ -216,7 +234,25 @@ public class Prettier extends SpotlessFormatterStep {
             return this;
         }
 
+        public PrettierFormatterStepBuilder withServerPoolSize(Integer serverPoolSize) {
+            this.serverPoolSize = serverPoolSize;
+            return this;
+        }
+
         public FormatterStep build() {
+            if (serverPoolSize == null) {
+                return buildServerStep();
+            }
+            if (serverPoolSize < 1) {
+                throw new IllegalArgumentException("--server-pool-size must be > 0, was " + serverPoolSize);
+            }
+            ExecutionLayout layout = context.executionLayout();
+            String poolKey = layout.buildDirFor(Prettier.this).toAbsolutePath() + "|" + layout.baseDir();
+            return PooledFormatterStep.create(
+                    PrettierFormatterStep.NAME, poolKey, serverPoolSize, this::buildServerStep);
+        }
+
+        private FormatterStep buildServerStep() {
             ExecutionLayout layout = context.executionLayout();
             File projectDirFile = asFile(layout.find(Path.of("package.json")) // project dir
                     .map(Path::getParent)
@@ -241,7 +277,8 @@ public class Prettier extends SpotlessFormatterStep {
                                             ? layout.find(prettierConfigPath).orElseThrow()
                                             : null),
                             prettierConfigOptions));
-            return step;
+            // all formatter threads share the build dir, so npm install only needs to run once
+            return SharedSetupFormatterStep.wrap(step, buildDirFile);
         }
     }
 }
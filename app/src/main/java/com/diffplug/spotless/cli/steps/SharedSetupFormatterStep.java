@@ -0,0 +1,151 @@
+/*
+ * Copyright 2026 DiffPlug
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.diffplug.spotless.cli.steps;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileLock;
+import java.nio.file.FileAlreadyExistsException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.ConcurrentHashMap;
+
+import org.jetbrains.annotations.NotNull;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.diffplug.spotless.FormatterStep;
+import com.diffplug.spotless.Lint;
+
+/**
+ * Wraps a step which lazily sets up a directory shared with other instances of the same step (e.g. running
+ * {@code npm install} on first use), so that the setup is only done once.
+ * <p>
+ * Until the setup succeeded once, the first use of every instance is done while holding a lock on the shared
+ * directory (within this JVM and across processes). Afterwards, instances are used without any locking, so they
+ * can still start their own resources (e.g. a node server) in parallel.
+ */
+final class SharedSetupFormatterStep implements FormatterStep {
+
+    private static final long serialVersionUID = 1L;
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(SharedSetupFormatterStep.class);
+
+    private static final Map<String, Object> LOCKS = new ConcurrentHashMap<>();
+
+    private static final String LOCK_FILE_NAME = ".spotless-cli.lock";
+
+    private static final String SETUP_DONE_MARKER_NAME = ".spotless-cli-setup-done";
+
+    private final FormatterStep delegate;
+
+    private final File sharedDir;
+
+    private transient volatile boolean used;
+
+    private SharedSetupFormatterStep(@NotNull FormatterStep delegate, @NotNull File sharedDir) {
+        this.delegate = Objects.requireNonNull(delegate);
+        this.sharedDir = Objects.requireNonNull(sharedDir);
+    }
+
+    static FormatterStep wrap(@NotNull FormatterStep delegate, @NotNull File sharedDir) {
+        return new SharedSetupFormatterStep(delegate, sharedDir);
+    }
+
+    @Override
+    public String getName() {
+        return delegate.getName();
+    }
+
+    @Override
+    public String format(String rawUnix, File file) throws Exception {
+        return firstUseGuarded(() -> delegate.format(rawUnix, file));
+    }
+
+    @Override
+    public List<Lint> lint(String content, File file) throws Exception {
+        return firstUseGuarded(() -> delegate.lint(content, file));
+    }
+
+    private <T> T firstUseGuarded(StepUse<T> use) throws Exception {
+        if (used || isSetupDone()) {
+            used = true;
+            return use.get();
+        }
+        synchronized (LOCKS.computeIfAbsent(sharedDir.getAbsolutePath(), dir -> new Object())) {
+            // file locks are held per JVM, so threads need to be serialized before acquiring it
+            try (FileChannel channel = FileChannel.open(
+                            sharedDir.toPath().resolve(LOCK_FILE_NAME),
+                            StandardOpenOption.CREATE,
+                            StandardOpenOption.WRITE);
+                    FileLock lock = channel.lock()) {
+                if (!isSetupDone()) {
+                    LOGGER.info("Setting up shared directory {} for step {}", sharedDir, getName());
+                    T result = use.get();
+                    markSetupDone();
+                    used = true;
+                    return result;
+                }
+            }
+        }
+        used = true;
+        return use.get();
+    }
+
+    private boolean isSetupDone() {
+        return Files.exists(setupDoneMarker());
+    }
+
+    private void markSetupDone() throws IOException {
+        try {
+            Files.createFile(setupDoneMarker());
+        } catch (FileAlreadyExistsException e) {
+            // fine, someone else was faster
+        }
+    }
+
+    private Path setupDoneMarker() {
+        return sharedDir.toPath().resolve(SETUP_DONE_MARKER_NAME);
+    }
+
+    @Override
+    public void close() throws Exception {
+        delegate.close();
+    }
+
+    @FunctionalInterface
+    private interface StepUse<T> {
+        T get() throws Exception;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) return true;
+        if (o == null || getClass() != o.getClass()) return false;
+        SharedSetupFormatterStep that = (SharedSetupFormatterStep) o;
+        return Objects.equals(delegate, that.delegate) && Objects.equals(sharedDir, that.sharedDir);
+    }
+
+    @Override
+    public int hashCode() {
+        return Objects.hash(delegate, sharedDir);
+    }
+}
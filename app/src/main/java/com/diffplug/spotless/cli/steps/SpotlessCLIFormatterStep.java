@@ -16,6 +16,7 @@
 package com.diffplug.spotless.cli.steps;
 
 import java.util.List;
+import java.util.Set;
 
 import org.jetbrains.annotations.NotNull;
 
@@ -26,4 +27,27 @@ import com.diffplug.spotless.cli.core.SpotlessActionContext;
 public interface SpotlessCLIFormatterStep extends SpotlessCommand {
 
     @NotNull List<FormatterStep> prepareFormatterSteps(SpotlessActionContext context);
+
+    /**
+     * @return the number of files the prepared steps want to get at once, see {@link BatchFormatterStep}
+     */
+    default int preferredBatchSize() {
+        return 1;
+    }
+
+    /**
+     * @return {@code false} if the prepared steps mostly wait for an external process or server to do the work
+     */
+    default boolean isCpuBound() {
+        return true;
+    }
+
+    /**
+     * @return the extensions (lower case, without the leading dot) of the files the prepared steps apply to, empty if
+     * they apply to all files. Steps for some extensions only are prepared when the first of these files is formatted.
+     * A step named in a {@code --route} applies to the files of its routes instead.
+     */
+    default @NotNull Set<String> fileExtensions(SpotlessActionContext context) {
+        return Set.of();
+    }
 }
@@ -0,0 +1,81 @@
+/*
+ * Copyright 2026 DiffPlug
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.diffplug.spotless.cli;
+
+import java.util.List;
+
+import org.junit.jupiter.api.Test;
+
+import com.diffplug.spotless.cli.steps.LicenseHeader;
+import com.diffplug.spotless.tag.CliNativeTest;
+import com.diffplug.spotless.tag.CliProcessTest;
+
+@CliProcessTest
+@CliNativeTest
+public class SpotlessCLIExecutionTest extends CLIIntegrationHarness {
+
+    @Test
+    void virtualExecutorFormatsAllTargets() {
+        for (int i = 0; i < 10; i++) {
+            setFile("TestFile" + i + ".java").toContent("public class TestFile" + i + " {}");
+        }
+
+        cliRunner()
+                .withTargets("*.java")
+                .withOption("--executor", "virtual")
+                .withOption("--max-in-flight", "4")
+                .withStep(LicenseHeader.class)
+                .withOption("--header", "/* License */")
+                .run();
+
+        for (int i = 0; i < 10; i++) {
+            assertFile("TestFile" + i + ".java").hasContent("/* License */\npublic class TestFile" + i + " {}");
+        }
+    }
+
+    @Test
+    void routedStepOnlyFormatsMatchingTargets() {
+        setFile("TestFile.java").toContent("public class TestFile {}");
+        setFile("TestFile.kt").toContent("class TestFile");
+
+        cliRunner()
+                .withTargets("TestFile.*")
+                .withOption("--route", "*.java=license-header")
+                .withStep(LicenseHeader.class)
+                .withOption("--header", "/* License */")
+                .run();
+
+        assertFile("TestFile.java").hasContent("/* License */\npublic class TestFile {}");
+        assertFile("TestFile.kt").hasContent("class TestFile");
+    }
+
+    @Test
+    void cachedResultIsAppliedUntilReferencedFileChanges() {
+        for (String header : List.of("/* License */", "/* License */", "/* Changed License */")) {
+            setFile("header.txt").toContent(header);
+            setFile("TestFile.java").toContent("public class TestFile {}");
+
+            cliRunner()
+                    .withTargets("TestFile.java")
+                    .withOption("--cache-dir", "cache")
+                    .withStep(LicenseHeader.class)
+                    .withOption("--header-file", "header.txt")
+                    .run();
+
+            assertFile("TestFile.java").hasContent(header + "\npublic class TestFile {}");
+        }
+    }
+}
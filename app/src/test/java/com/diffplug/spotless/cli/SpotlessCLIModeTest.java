@@ -16,10 +16,12 @@
 package com.diffplug.spotless.cli;
 
 import java.io.IOException;
+import java.nio.charset.StandardCharsets;
 
 import org.junit.jupiter.api.Test;
 
 import com.diffplug.spotless.cli.steps.GoogleJavaFormat;
+import com.diffplug.spotless.cli.steps.LicenseHeader;
 import com.diffplug.spotless.tag.CliNativeTest;
 import com.diffplug.spotless.tag.CliProcessTest;
 
@@ -55,4 +57,23 @@ public class SpotlessCLIModeTest extends CLIIntegrationHarness {
         selfie().expectResource("Java.java").toMatchDisk();
         assertThat(result.exitCode()).isEqualTo(1);
     }
+
+    @Test
+    void checkModeComparesFormattedContentInTheTargetEncoding() {
+        String content = "public class TestFile {\n    int a;\n\n    String greeting = \"Grüße\";\n}";
+        setFile("TestFile.java").toContent(content, StandardCharsets.ISO_8859_1);
+
+        SpotlessCLIRunner.Result result = cliRunner()
+                .withTargets("*.java")
+                .withOption("--mode", "check")
+                .withOption("--encoding", "ISO-8859-1")
+                .withStep(LicenseHeader.class)
+                .withOption("--header", "/* License */")
+                .runAndFail();
+
+        // only the header differs, the line with the umlauts is the same after decoding the formatted content
+        assertThat(result.stdErr()).contains("File needs reformatting").contains("-- 1 differences");
+        assertThat(result.exitCode()).isEqualTo(1);
+        assertFile("TestFile.java").hasContent(content, StandardCharsets.ISO_8859_1);
+    }
 }
@@ -0,0 +1,131 @@
+/*
+ * Copyright 2026 DiffPlug
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.diffplug.spotless.cli;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.HashMap;
+import java.util.Map;
+
+import org.junit.jupiter.api.Test;
+
+import com.diffplug.spotless.cli.batch.BatchProtocol;
+import com.diffplug.spotless.cli.steps.LicenseHeader;
+import com.diffplug.spotless.tag.CliNativeTest;
+import com.diffplug.spotless.tag.CliProcessTest;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+@CliProcessTest
+@CliNativeTest
+public class SpotlessCLIStdinTest extends CLIIntegrationHarness {
+
+    @Test
+    void stdinIsFormattedToStdout() {
+        SpotlessCLIRunner.Result result = cliRunner()
+                .withOption("--stdin-filepath", "src/TestFile.java")
+                .withStdin("public class TestFile {}")
+                .withStep(LicenseHeader.class)
+                .withOption("--header", "/* License */")
+                .run();
+
+        assertThat(result.stdOut()).isEqualTo("/* License */\npublic class TestFile {}");
+        assertThat(rootFolder().toPath().resolve("src")).doesNotExist();
+    }
+
+    @Test
+    void stdinIsWrittenInItsEncoding() {
+        SpotlessCLIRunner.Result result = cliRunner()
+                .withOption("--encoding", "ISO-8859-1")
+                .withOption("--stdin-filepath", "TestFile.java")
+                .withStdin("public class Grüße {}".getBytes(StandardCharsets.ISO_8859_1))
+                .withStep(LicenseHeader.class)
+                .withOption("--header", "/* License */")
+                .run();
+
+        assertThat(result.stdOutBytes())
+                .isEqualTo("/* License */\npublic class Grüße {}".getBytes(StandardCharsets.ISO_8859_1));
+    }
+
+    @Test
+    void stdinIsOnlyFormattedIfRouted() {
+        SpotlessCLIRunner.Result result = cliRunner()
+                .withOption("--stdin-filepath", "README.md")
+                .withOption("--route", "*.java=license-header")
+                .withStdin("# Readme")
+                .withStep(LicenseHeader.class)
+                .withOption("--header", "/* License */")
+                .run();
+
+        assertThat(result.stdOut()).isEqualTo("# Readme");
+    }
+
+    @Test
+    void batchStdinAnswersEachRequest() throws IOException {
+        ByteArrayOutputStream requests = new ByteArrayOutputStream();
+        DataOutputStream out = new DataOutputStream(requests);
+        BatchProtocol.writeRequest(out, new BatchProtocol.Request(1, "src/A.java", utf8("public class A {}")));
+        BatchProtocol.writeRequest(
+                out, new BatchProtocol.Request(2, "src/B.java", utf8("/* License */\npublic class B {}")));
+        BatchProtocol.writeRequest(out, new BatchProtocol.Request(3, "build/C.java", utf8("public class C {}")));
+
+        SpotlessCLIRunner.Result result = cliRunner()
+                .withOption("--batch-stdin")
+                .withOption("--exclude", "build/**")
+                .withStdin(requests.toByteArray())
+                .withStep(LicenseHeader.class)
+                .withOption("--header", "/* License */")
+                .run();
+
+        // answered in completion order
+        Map<Integer, BatchProtocol.Response> responses = new HashMap<>();
+        DataInputStream in = new DataInputStream(new ByteArrayInputStream(result.stdOutBytes()));
+        for (BatchProtocol.Response response = BatchProtocol.readResponse(in);
+                response != null;
+                response = BatchProtocol.readResponse(in)) {
+            responses.put(response.id(), response);
+        }
+        assertThat(responses).containsOnlyKeys(1, 2, 3);
+        assertThat(responses.get(1).status()).isEqualTo(BatchProtocol.STATUS_FORMATTED);
+        assertThat(responses.get(1).content()).isEqualTo(utf8("/* License */\npublic class A {}"));
+        assertThat(responses.get(2).status()).isEqualTo(BatchProtocol.STATUS_CLEAN);
+        assertThat(responses.get(2).content()).isEqualTo(utf8("/* License */\npublic class B {}"));
+        assertThat(responses.get(3).status()).isEqualTo(BatchProtocol.STATUS_SKIPPED);
+        assertThat(responses.get(3).content()).isEqualTo(utf8("public class C {}"));
+        assertThat(rootFolder().toPath().resolve("src")).doesNotExist();
+    }
+
+    @Test
+    void stdinCannotBeCombinedWithTargets() {
+        SpotlessCLIRunner.Result result = cliRunner()
+                .withTargets("*.java")
+                .withOption("--stdin-filepath", "TestFile.java")
+                .withStdin("public class TestFile {}")
+                .withStep(LicenseHeader.class)
+                .withOption("--header", "/* License */")
+                .runAndFail();
+
+        assertThat(result.stdErr()).contains("--stdin-filepath cannot be combined with --target");
+    }
+
+    private static byte[] utf8(String content) {
+        return content.getBytes(StandardCharsets.UTF_8);
+    }
+}
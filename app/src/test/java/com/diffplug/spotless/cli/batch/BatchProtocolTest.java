@@ -0,0 +1,96 @@
+/*
+ * Copyright 2026 DiffPlug
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.diffplug.spotless.cli.batch;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.List;
+
+import org.junit.jupiter.api.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class BatchProtocolTest {
+
+    @Test
+    void itReadsRequestsUntilTheEndOfTheStream() throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        DataOutputStream out = new DataOutputStream(bytes);
+        BatchProtocol.writeRequest(out, new BatchProtocol.Request(1, "src/A.java", utf8("class A {}")));
+        BatchProtocol.writeRequest(out, new BatchProtocol.Request(2, "src/Ä.java", new byte[0]));
+
+        List<BatchProtocol.Request> requests = BatchProtocol.requests(in(bytes)).toList();
+
+        assertThat(requests).extracting(BatchProtocol.Request::id).containsExactly(1, 2);
+        assertThat(requests).extracting(BatchProtocol.Request::path).containsExactly("src/A.java", "src/Ä.java");
+        assertThat(requests.get(0).content()).isEqualTo(utf8("class A {}"));
+        assertThat(requests.get(1).content()).isEmpty();
+    }
+
+    @Test
+    void itReadsNoRequestsFromAnEmptyStream() {
+        assertThat(BatchProtocol.requests(in(new ByteArrayOutputStream()))).isEmpty();
+    }
+
+    @Test
+    void itFailsOnTruncatedRequest() throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        BatchProtocol.writeRequest(
+                new DataOutputStream(bytes), new BatchProtocol.Request(1, "A.java", utf8("class A {}")));
+        byte[] truncated = Arrays.copyOf(bytes.toByteArray(), bytes.size() - 1);
+
+        assertThatThrownBy(() -> BatchProtocol.readRequest(
+                        new DataInputStream(new ByteArrayInputStream(truncated))))
+                .isInstanceOf(IOException.class);
+    }
+
+    @Test
+    void itRoundTripsResponses() throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        DataOutputStream out = new DataOutputStream(bytes);
+        BatchProtocol.writeResponse(
+                out, new BatchProtocol.Response(2, BatchProtocol.STATUS_FORMATTED, utf8("class B {}"), ""));
+        BatchProtocol.writeResponse(
+                out, new BatchProtocol.Response(1, BatchProtocol.STATUS_LINTS, utf8("class A{}"), "L1: lint"));
+
+        DataInputStream in = in(bytes);
+        BatchProtocol.Response first = BatchProtocol.readResponse(in);
+        BatchProtocol.Response second = BatchProtocol.readResponse(in);
+
+        assertThat(first.id()).isEqualTo(2);
+        assertThat(first.status()).isEqualTo(BatchProtocol.STATUS_FORMATTED);
+        assertThat(first.content()).isEqualTo(utf8("class B {}"));
+        assertThat(first.message()).isEmpty();
+        assertThat(second.id()).isEqualTo(1);
+        assertThat(second.status()).isEqualTo(BatchProtocol.STATUS_LINTS);
+        assertThat(second.message()).isEqualTo("L1: lint");
+        assertThat(BatchProtocol.readResponse(in)).isNull();
+    }
+
+    private static DataInputStream in(ByteArrayOutputStream bytes) {
+        return new DataInputStream(new ByteArrayInputStream(bytes.toByteArray()));
+    }
+
+    private static byte[] utf8(String value) {
+        return value.getBytes(StandardCharsets.UTF_8);
+    }
+}
@@ -0,0 +1,145 @@
+/*
+ * Copyright 2026 DiffPlug
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.diffplug.spotless.cli.core;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+import java.nio.file.attribute.PosixFilePermission;
+import java.nio.file.attribute.PosixFilePermissions;
+import java.util.Set;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.stream.Stream;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.DisabledOnOs;
+
+import com.diffplug.spotless.ResourceHarness;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.junit.jupiter.api.condition.OS.WINDOWS;
+
+class AtomicFileWriterTest extends ResourceHarness {
+
+    @Test
+    void itReplacesContentWithoutLeavingTemporaryFiles() throws IOException {
+        Path file = setFile("Test.java").toContent("class Test{}").getFile().toPath();
+        AtomicFileWriter writer = new AtomicFileWriter(AtomicFileWriter.Fsync.ALWAYS);
+
+        boolean written = writer.writeIfChanged(file, bytes("class Test{}"), bytes("class Test {}"));
+
+        assertThat(written).isTrue();
+        assertThat(file).hasContent("class Test {}");
+        assertThat(filesInRootFolder()).containsExactly(file);
+    }
+
+    @Test
+    void itDoesNotWriteUnchangedContent() throws IOException {
+        Path file = setFile("Test.java").toContent("class Test {}").getFile().toPath();
+        FileTime lastModified = FileTime.fromMillis(1_000_000);
+        Files.setLastModifiedTime(file, lastModified);
+        AtomicFileWriter writer = new AtomicFileWriter(AtomicFileWriter.Fsync.NONE);
+
+        boolean written = writer.writeIfChanged(file, bytes("class Test {}"), bytes("class Test {}"));
+
+        assertThat(written).isFalse();
+        assertThat(Files.getLastModifiedTime(file)).isEqualTo(lastModified);
+    }
+
+    @Test
+    void itSyncsWrittenFilesInBatch() throws IOException {
+        Path file1 = setFile("a/Test1.java").toContent("a").getFile().toPath();
+        Path file2 = setFile("b/Test2.java").toContent("b").getFile().toPath();
+        AtomicFileWriter writer = new AtomicFileWriter(AtomicFileWriter.Fsync.BATCH);
+        ExecutorService executor = Executors.newFixedThreadPool(2);
+        try {
+            writer.writeIfChanged(file1, bytes("a"), bytes("aa"));
+            writer.writeIfChanged(file2, bytes("b"), bytes("bb"));
+            writer.syncPending(executor);
+        } finally {
+            executor.shutdownNow();
+        }
+
+        assertThat(file1).hasContent("aa");
+        assertThat(file2).hasContent("bb");
+    }
+
+    @Test
+    @DisabledOnOs(WINDOWS)
+    void itKeepsPermissionsAndSymlinks() throws IOException {
+        Path file = setFile("run.sh").toContent("echo hi").getFile().toPath();
+        Set<PosixFilePermission> permissions = PosixFilePermissions.fromString("rwxr-x---");
+        Files.setPosixFilePermissions(file, permissions);
+        Path link = Files.createSymbolicLink(rootFolder().toPath().resolve("link.sh"), file);
+        AtomicFileWriter writer = new AtomicFileWriter(AtomicFileWriter.Fsync.NONE);
+
+        writer.writeIfChanged(link, bytes("echo hi"), bytes("echo hello"));
+
+        assertThat(Files.isSymbolicLink(link)).isTrue();
+        assertThat(file).hasContent("echo hello");
+        assertThat(Files.getPosixFilePermissions(file)).isEqualTo(permissions);
+    }
+
+    @Test
+    @DisabledOnOs(WINDOWS)
+    void itReplacesTargetOfSymlinkInOtherDirectory() throws IOException {
+        Path file = setFile("shared/Test.java").toContent("class Test{}").getFile().toPath();
+        Path link = Files.createSymbolicLink(rootFolder().toPath().resolve("Test.java"), file);
+        AtomicFileWriter writer = new AtomicFileWriter(AtomicFileWriter.Fsync.ALWAYS);
+
+        writer.writeIfChanged(link, bytes("class Test{}"), bytes("class Test {}"));
+
+        assertThat(Files.isSymbolicLink(link)).isTrue();
+        assertThat(Files.readSymbolicLink(link)).isEqualTo(file);
+        assertThat(file).hasContent("class Test {}");
+        assertThat(filesInRootFolder()).containsExactlyInAnyOrder(link, file.getParent());
+        try (Stream<Path> files = Files.list(file.getParent())) {
+            assertThat(files).containsExactly(file);
+        }
+    }
+
+    @Test
+    @DisabledOnOs(WINDOWS)
+    void itWritesHardLinkedFilesInPlace() throws IOException {
+        Path file = setFile("Test.java").toContent("class Test{}").getFile().toPath();
+        Path link = Files.createLink(rootFolder().toPath().resolve("Link.java"), file);
+        AtomicFileWriter writer = new AtomicFileWriter(AtomicFileWriter.Fsync.BATCH);
+        ExecutorService executor = Executors.newSingleThreadExecutor();
+        try {
+            writer.writeIfChanged(file, bytes("class Test{}"), bytes("class Test {}"));
+            writer.syncPending(executor);
+        } finally {
+            executor.shutdownNow();
+        }
+
+        assertThat(Files.isSameFile(file, link)).isTrue();
+        assertThat(link).hasContent("class Test {}");
+        assertThat(filesInRootFolder()).containsExactlyInAnyOrder(file, link);
+    }
+
+    private static byte[] bytes(String content) {
+        return content.getBytes(StandardCharsets.UTF_8);
+    }
+
+    private Set<Path> filesInRootFolder() throws IOException {
+        try (Stream<Path> files = Files.list(rootFolder().toPath())) {
+            return Set.copyOf(files.toList());
+        }
+    }
+}
@@ -299,7 +299,8 @@ class ChecksumCalculatorTest {
         Path baseDir;
 
         @Override
-        public @NotNull Integer executeSpotlessAction(@NotNull FormatterStepsSupplier formatterSteps) {
+        public @NotNull Integer executeSpotlessAction(
+                @NotNull FormatterStepsSupplier formatterSteps, @NotNull SpotlessActionContext context) {
             return 0;
         }
     }
@@ -18,13 +18,21 @@ package com.diffplug.spotless.cli.core;
 import java.io.IOException;
 import java.nio.file.Files;
 import java.nio.file.Path;
+import java.util.List;
+import java.util.stream.Stream;
 
+import org.jetbrains.annotations.NotNull;
 import org.junit.jupiter.api.AfterEach;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.mockito.Mockito;
 
+import com.diffplug.spotless.FormatterStep;
 import com.diffplug.spotless.ResourceHarness;
+import com.diffplug.spotless.cli.steps.BuildDirGloballyReusable;
+import com.diffplug.spotless.cli.steps.SpotlessCLIFormatterStep;
+
+import picocli.CommandLine;
 
 import static org.assertj.core.api.Assertions.assertThat;
 
@@ -95,6 +103,53 @@ class ExecutionLayoutTest extends ResourceHarness {
         assertThat(Files.exists(buildDir)).isFalse();
     }
 
+    @Test
+    void itSharesBuildDirOfGloballyReusableStepsBetweenDerivedLayouts() {
+        setFile("settings.gradle").toLines("rootProject.name = 'test'");
+        SpotlessCommandLineStream commandLineStream = commandLineStream();
+        Mockito.when(commandLineStream.actions()).thenAnswer(invocation -> Stream.empty());
+        Mockito.when(commandLineStream.formatterSteps()).thenAnswer(invocation -> Stream.empty());
+        ExecutionLayout layout = ExecutionLayout.create(fileResolver(), commandLineStream);
+
+        Path buildDir = layout.deriveLayout(1).buildDirFor(new ReusableStep());
+
+        assertThat(buildDir).isEqualTo(layout.deriveLayout(2).buildDirFor(new ReusableStep()));
+        assertThat(buildDir).isNotEqualTo(layout.deriveLayout(2).buildDirFor(new NonReusableStep()));
+        assertThat(layout.deriveLayout(1).buildDirFor(new NonReusableStep()))
+                .isNotEqualTo(layout.deriveLayout(2).buildDirFor(new NonReusableStep()));
+    }
+
+    @Test
+    void itKeepsUpToDateIndexOfTmpBuildDir() throws IOException {
+        ExecutionLayout layout = ExecutionLayout.create(fileResolver(), stepsCommandLineStream(new NonReusableStep()));
+        Path indexFile = layout.upToDateIndexFile();
+        Files.createDirectories(indexFile.getParent());
+        Files.writeString(indexFile, "index");
+        try {
+            layout.buildDir(); // registers the cleanup of the tmp build dir
+
+            cleanup.clearCleanables();
+
+            assertThat(indexFile).exists();
+        } finally {
+            Files.delete(indexFile);
+        }
+    }
+
+    @Test
+    void itUsesOtherUpToDateIndexAfterReferencedFileChanged() {
+        setFile("settings.gradle").toLines("rootProject.name = 'test'");
+        setFile("config.txt").toContent("config A");
+        ConfiguredStep step = new ConfiguredStep();
+        step.configFile = Path.of("config.txt");
+        ExecutionLayout layout = ExecutionLayout.create(fileResolver(), stepsCommandLineStream(step));
+        Path indexFile = layout.upToDateIndexFile();
+
+        setFile("config.txt").toContent("config B");
+
+        assertThat(layout.upToDateIndexFile()).isNotEqualTo(indexFile);
+    }
+
     private FileResolver fileResolver() {
         return new FileResolver(rootFolder().toPath());
     }
@@ -102,4 +157,27 @@ class ExecutionLayoutTest extends ResourceHarness {
     private SpotlessCommandLineStream commandLineStream() {
         return Mockito.mock(SpotlessCommandLineStream.class);
     }
+
+    private SpotlessCommandLineStream stepsCommandLineStream(SpotlessCLIFormatterStep step) {
+        SpotlessCommandLineStream commandLineStream = commandLineStream();
+        Mockito.when(commandLineStream.actions()).thenAnswer(invocation -> Stream.empty());
+        Mockito.when(commandLineStream.formatterSteps()).thenAnswer(invocation -> Stream.of(step));
+        return commandLineStream;
+    }
+
+    private static class NonReusableStep implements SpotlessCLIFormatterStep {
+
+        @Override
+        public @NotNull List<FormatterStep> prepareFormatterSteps(SpotlessActionContext context) {
+            return List.of();
+        }
+    }
+
+    private static class ReusableStep extends NonReusableStep implements BuildDirGloballyReusable {}
+
+    private static class ConfiguredStep extends NonReusableStep {
+
+        @CommandLine.Option(names = "--config-file")
+        Path configFile;
+    }
 }
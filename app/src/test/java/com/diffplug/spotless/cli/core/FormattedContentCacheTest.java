@@ -0,0 +1,127 @@
+/*
+ * Copyright 2026 DiffPlug
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.diffplug.spotless.cli.core;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+import java.util.stream.Stream;
+
+import org.junit.jupiter.api.Test;
+
+import com.diffplug.spotless.ResourceHarness;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class FormattedContentCacheTest extends ResourceHarness {
+
+    private static final byte[] CONTENT = "class Test {}\n".getBytes(StandardCharsets.UTF_8);
+
+    private static final byte[] DIRTY_CONTENT = "class Test{}".getBytes(StandardCharsets.UTF_8);
+
+    private static final byte[] FORMATTED = "class Test {}\n".getBytes(StandardCharsets.UTF_8);
+
+    @Test
+    void itReturnsWhatWasPutByAnotherRun() {
+        try (FormattedContentCache cache = open("config", 1024)) {
+            cache.putClean(cache.key(Path.of("Clean.java"), CONTENT));
+            cache.putFormatted(cache.key(Path.of("Dirty.java"), DIRTY_CONTENT), FORMATTED);
+        }
+
+        try (FormattedContentCache cache = open("config", 1024)) {
+            assertThat(cache.get(cache.key(Path.of("Clean.java"), CONTENT)))
+                    .isNotNull()
+                    .matches(FormattedContentCache.Entry::isClean);
+            assertThat(cache.get(cache.key(Path.of("Dirty.java"), DIRTY_CONTENT)).formattedContent())
+                    .isEqualTo(FORMATTED);
+        }
+    }
+
+    @Test
+    void itDoesNotReturnEntriesOfOtherConfigurationsOrPaths() {
+        try (FormattedContentCache cache = open("config", 1024)) {
+            cache.putClean(cache.key(Path.of("Test.java"), CONTENT));
+
+            assertThat(cache.get(cache.key(Path.of("Test.kt"), CONTENT))).isNull();
+            assertThat(cache.get(cache.key(Path.of("other", "Test.java"), CONTENT))).isNull();
+        }
+
+        try (FormattedContentCache cache = open("other-config", 1024)) {
+            assertThat(cache.get(cache.key(Path.of("Test.java"), CONTENT))).isNull();
+        }
+    }
+
+    @Test
+    void itEvictsTheLeastRecentlyUsedEntriesOnceTooLarge() throws IOException {
+        String oldKey;
+        String newKey;
+        // two entries of 15 bytes each, only one of them fits
+        try (FormattedContentCache cache = open("config", 20)) {
+            oldKey = cache.key(Path.of("Old.java"), DIRTY_CONTENT);
+            cache.putFormatted(oldKey, FORMATTED);
+            makeOld(oldKey);
+            newKey = cache.key(Path.of("New.java"), "class  Test{}".getBytes(StandardCharsets.UTF_8));
+            cache.putFormatted(newKey, FORMATTED);
+        }
+
+        try (FormattedContentCache cache = open("config", 20)) {
+            assertThat(cache.get(oldKey)).isNull();
+            assertThat(cache.get(newKey)).isNotNull();
+        }
+    }
+
+    @Test
+    void itDoesNotEvictWhileTheCacheIsStillInUse() throws IOException {
+        try (FormattedContentCache otherRun = open("config", 1)) {
+            String key;
+            try (FormattedContentCache cache = open("config", 1)) {
+                key = cache.key(Path.of("Test.java"), DIRTY_CONTENT);
+                cache.putFormatted(key, FORMATTED);
+            }
+
+            assertThat(otherRun.get(key)).isNotNull();
+        }
+    }
+
+    @Test
+    void itCachesNothingWhenDisabled() {
+        FormattedContentCache cache = FormattedContentCache.none();
+        String key = cache.key(Path.of("Test.java"), CONTENT);
+        cache.putClean(key);
+
+        assertThat(cache.get(key)).isNull();
+    }
+
+    private FormattedContentCache open(String configChecksum, long maxSizeBytes) {
+        return FormattedContentCache.open(
+                cacheDir(), rootFolder().toPath(), configChecksum, StepRoutes.none(), maxSizeBytes);
+    }
+
+    private void makeOld(String key) throws IOException {
+        try (Stream<Path> files = Files.walk(cacheDir())) {
+            Path entry = files.filter(file -> file.getFileName().toString().equals(key))
+                    .findFirst()
+                    .orElseThrow();
+            Files.setLastModifiedTime(entry, FileTime.fromMillis(0));
+        }
+    }
+
+    private Path cacheDir() {
+        return rootFolder().toPath().resolve("cache");
+    }
+}
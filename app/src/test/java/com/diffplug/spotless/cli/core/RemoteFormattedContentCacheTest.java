@@ -0,0 +1,183 @@
+/*
+ * Copyright 2026 DiffPlug
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.diffplug.spotless.cli.core;
+
+import java.io.IOException;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.URI;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+
+import com.diffplug.spotless.ResourceHarness;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class RemoteFormattedContentCacheTest extends ResourceHarness {
+
+    private static final byte[] ENTRY = "Fclass Test {}\n".getBytes(StandardCharsets.UTF_8);
+
+    private final StandInBuildCache buildCache = new StandInBuildCache();
+
+    @BeforeEach
+    void startBuildCache() throws IOException {
+        buildCache.start();
+    }
+
+    @AfterEach
+    void stopBuildCache() {
+        buildCache.stop();
+    }
+
+    @Test
+    void itReadsWhatWasPushed() {
+        try (RemoteFormattedContentCache cache = RemoteFormattedContentCache.create(buildCache.uri(), true)) {
+            cache.put("key1", ENTRY);
+        }
+
+        try (RemoteFormattedContentCache cache = RemoteFormattedContentCache.create(buildCache.uri(), false)) {
+            Map<String, byte[]> entries = cache.getAll(List.of("key1", "key2"));
+
+            assertThat(entries).containsOnlyKeys("key1");
+            assertThat(entries.get("key1")).isEqualTo(ENTRY);
+        }
+        assertThat(buildCache.requests)
+                .containsExactlyInAnyOrder("PUT /cache/key1", "GET /cache/key1", "GET /cache/key2");
+    }
+
+    @Test
+    void itDoesNotPushUnlessAskedTo() {
+        try (RemoteFormattedContentCache cache = RemoteFormattedContentCache.create(buildCache.uri(), false)) {
+            cache.put("key1", ENTRY);
+        }
+
+        assertThat(buildCache.entries).isEmpty();
+    }
+
+    @Test
+    void itSendsCredentialsOfTheUrl() {
+        URI uri = URI.create(buildCache.uri().toString().replace("http://", "http://user:secret@"));
+        try (RemoteFormattedContentCache cache = RemoteFormattedContentCache.create(uri, true)) {
+            cache.put("key1", ENTRY);
+        }
+
+        assertThat(buildCache.authorizations).containsExactly("Basic dXNlcjpzZWNyZXQ=");
+    }
+
+    @Test
+    void itFallsBackToNoCacheWhenUnreachable() {
+        URI uri = buildCache.uri();
+        buildCache.stop();
+
+        try (RemoteFormattedContentCache cache = RemoteFormattedContentCache.create(uri, true)) {
+            assertThat(cache.getAll(List.of("key1"))).isEmpty();
+            assertThat(cache.isEnabled()).isFalse();
+            cache.put("key1", ENTRY); // not even tried
+        }
+    }
+
+    @Test
+    void itSharesEntriesBetweenLocalCachesAndKeepsThemLocally() {
+        byte[] content = "class Test{}".getBytes(StandardCharsets.UTF_8);
+        byte[] formatted = "class Test {}\n".getBytes(StandardCharsets.UTF_8);
+        RemoteFormattedContentCache pushing = RemoteFormattedContentCache.create(buildCache.uri(), true);
+        try (FormattedContentCache agent1 = openLocalCache("agent1", pushing)) {
+            agent1.putFormatted(agent1.key(Path.of("Test.java"), content), formatted);
+        }
+        RemoteFormattedContentCache reading = RemoteFormattedContentCache.create(buildCache.uri(), false);
+        try (FormattedContentCache agent2 = openLocalCache("agent2", reading)) {
+            FormattedContentCache.Entry entry = agent2.get(agent2.key(Path.of("Test.java"), content));
+
+            assertThat(entry).isNotNull();
+            assertThat(entry.formattedContent()).isEqualTo(formatted);
+        }
+        buildCache.stop();
+
+        try (FormattedContentCache agent2 = openLocalCache("agent2", RemoteFormattedContentCache.none())) {
+            assertThat(agent2.get(agent2.key(Path.of("Test.java"), content))).isNotNull();
+        }
+    }
+
+    private FormattedContentCache openLocalCache(String name, RemoteFormattedContentCache remote) {
+        return FormattedContentCache.open(
+                rootFolder().toPath().resolve(name), rootFolder().toPath(), "config", StepRoutes.none(), 1024, remote);
+    }
+
+    /** stands in for a gradle build cache node: GET and PUT of entries below /cache/ */
+    private static final class StandInBuildCache {
+
+        private final Map<String, byte[]> entries = new ConcurrentHashMap<>();
+
+        private final Queue<String> requests = new ConcurrentLinkedQueue<>();
+
+        private final Queue<String> authorizations = new ConcurrentLinkedQueue<>();
+
+        private HttpServer server;
+
+        void start() throws IOException {
+            server = HttpServer.create(new InetSocketAddress(InetAddress.getLoopbackAddress(), 0), 0);
+            server.createContext("/cache/", this::handle);
+            server.start();
+        }
+
+        URI uri() {
+            return URI.create("http://localhost:" + server.getAddress().getPort() + "/cache");
+        }
+
+        void stop() {
+            server.stop(0);
+        }
+
+        private void handle(HttpExchange exchange) throws IOException {
+            try (exchange) {
+                String key = exchange.getRequestURI().getPath().substring("/cache/".length());
+                requests.add(exchange.getRequestMethod() + " " + exchange.getRequestURI().getPath());
+                String authorization = exchange.getRequestHeaders().getFirst("Authorization");
+                if (authorization != null) {
+                    authorizations.add(authorization);
+                }
+                switch (exchange.getRequestMethod()) {
+                    case "GET" -> {
+                        byte[] entry = entries.get(key);
+                        if (entry == null) {
+                            exchange.sendResponseHeaders(404, -1);
+                        } else {
+                            exchange.sendResponseHeaders(200, entry.length);
+                            exchange.getResponseBody().write(entry);
+                        }
+                    }
+                    case "PUT" -> {
+                        entries.put(key, exchange.getRequestBody().readAllBytes());
+                        exchange.sendResponseHeaders(200, -1);
+                    }
+                    default -> exchange.sendResponseHeaders(405, -1);
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,71 @@
+/*
+ * Copyright 2026 DiffPlug
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.diffplug.spotless.cli.core;
+
+import java.nio.file.Path;
+import java.util.List;
+import java.util.stream.IntStream;
+
+import org.junit.jupiter.api.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class ShardTest {
+
+    private final Path baseDir = Path.of("project").toAbsolutePath();
+
+    private final List<Path> files = IntStream.range(0, 200)
+            .mapToObj(i -> baseDir.resolve("src").resolve("File" + i + ".java"))
+            .toList();
+
+    @Test
+    void itAssignsEveryFileToExactlyOneShard() {
+        List<Shard> shards = List.of(Shard.parse("1/3"), Shard.parse("2/3"), Shard.parse("3/3"));
+
+        for (Path file : files) {
+            assertThat(shards.stream().filter(shard -> shard.contains(baseDir, file))).hasSize(1);
+        }
+    }
+
+    @Test
+    void itSpreadsFilesAcrossAllShards() {
+        for (int index = 1; index <= 4; index++) {
+            Shard shard = new Shard(index, 4);
+            assertThat(files.stream().filter(file -> shard.contains(baseDir, file))).hasSizeBetween(25, 75);
+        }
+    }
+
+    @Test
+    void itAssignsFilesByTheirPathRelativeToTheBaseDir() {
+        Path otherBaseDir = Path.of("elsewhere").toAbsolutePath();
+        Shard shard = Shard.parse("2/5");
+
+        for (Path file : files) {
+            Path movedFile = otherBaseDir.resolve(baseDir.relativize(file));
+            assertThat(shard.contains(otherBaseDir, movedFile)).isEqualTo(shard.contains(baseDir, file));
+        }
+    }
+
+    @Test
+    void itRejectsMalformedShards() {
+        assertThatThrownBy(() -> Shard.parse("2")).isInstanceOf(IllegalArgumentException.class);
+        assertThatThrownBy(() -> Shard.parse("a/4")).isInstanceOf(IllegalArgumentException.class);
+        assertThatThrownBy(() -> Shard.parse("0/4")).hasMessageContaining("between 1 and 4");
+        assertThatThrownBy(() -> Shard.parse("5/4")).hasMessageContaining("between 1 and 4");
+        assertThatThrownBy(() -> Shard.parse("1/0")).hasMessageContaining("must be > 0");
+    }
+}
@@ -0,0 +1,81 @@
+/*
+ * Copyright 2026 DiffPlug
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.diffplug.spotless.cli.core;
+
+import java.io.File;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.Set;
+
+import org.junit.jupiter.api.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class StepRoutesTest {
+
+    private final Path baseDir = Path.of("project").toAbsolutePath();
+
+    private final StepRoutes routes = StepRoutes.parse(
+            baseDir,
+            List.of(
+                    "*.java=google-java-format,license-header",
+                    "src" + File.separator + "**.xml=eclipse-wtp",
+                    "*.xsd=eclipse-wtp"));
+
+    @Test
+    void itRoutesFilesByFileNameOrRelativePath() {
+        assertThat(routes.filesFor("license-header").test(file("src", "main", "A.java")))
+                .isTrue();
+        assertThat(routes.filesFor("license-header").test(file("pom.xml"))).isFalse();
+        assertThat(routes.filesFor("eclipse-wtp").test(file("src", "main", "a.xml")))
+                .isTrue();
+        assertThat(routes.filesFor("eclipse-wtp").test(file("pom.xml"))).isFalse();
+        assertThat(routes.filesFor("eclipse-wtp").test(file("schema.xsd"))).isTrue();
+    }
+
+    @Test
+    void itKnowsWhetherAllStepsAreRouted() {
+        assertThat(routes.isRouted("eclipse-wtp")).isTrue();
+        assertThat(routes.isRouted("prettier")).isFalse();
+        assertThat(routes.routesAll(Set.of("google-java-format", "eclipse-wtp"))).isTrue();
+        assertThat(routes.routesAll(Set.of("google-java-format", "prettier"))).isFalse();
+        assertThat(routes.matchesAnyRoute(file("README.md").toPath())).isFalse();
+    }
+
+    @Test
+    void itInfersTheTargetFileTypeOfRoutedSteps() {
+        assertThat(routes.targetFileTypeFor("google-java-format"))
+                .hasValueSatisfying(fileType -> assertThat(fileType.fileExtension()).isEqualTo("java"));
+        // xml and xsd differ
+        assertThat(routes.targetFileTypeFor("eclipse-wtp")).isEmpty();
+        assertThat(routes.targetFileTypeFor("prettier")).isEmpty();
+    }
+
+    @Test
+    void itRejectsMalformedRoutesAndUnknownSteps() {
+        assertThatThrownBy(() -> StepRoutes.parse(baseDir, List.of("*.java")))
+                .isInstanceOf(IllegalArgumentException.class)
+                .hasMessageContaining("<glob>=<step>");
+        assertThatThrownBy(() -> routes.validateStepNames(Set.of("google-java-format", "license-header")))
+                .isInstanceOf(IllegalArgumentException.class)
+                .hasMessageContaining("eclipse-wtp");
+    }
+
+    private File file(String... segments) {
+        return baseDir.resolve(Path.of("", segments)).toFile();
+    }
+}
@@ -0,0 +1,191 @@
+/*
+ * Copyright 2026 DiffPlug
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.diffplug.spotless.cli.core;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+
+import org.junit.jupiter.api.Test;
+
+import com.diffplug.spotless.ResourceHarness;
+import com.diffplug.spotless.cli.profile.TargetResolvedEvent;
+
+import jdk.jfr.Recording;
+import jdk.jfr.consumer.RecordedEvent;
+import jdk.jfr.consumer.RecordingFile;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class TargetResolverTest extends ResourceHarness {
+
+    @Test
+    void itResolvesGlobAcrossDirectories() throws IOException {
+        createFiles();
+
+        assertThat(resolve("src/**/*.java"))
+                .containsExactly("src/main/java/A.java", "src/main/java/b/B.java", "src/test/java/C.java");
+    }
+
+    @Test
+    void itResolvesGlobWithSingleDirectoryWildcard() throws IOException {
+        createFiles();
+
+        assertThat(resolve("src/*/java/*.java")).containsExactly("src/main/java/A.java", "src/test/java/C.java");
+    }
+
+    @Test
+    void itResolvesGlobStartingWithDoubleWildcard() throws IOException {
+        createFiles();
+
+        assertThat(resolve("**/*.java"))
+                .containsExactly(
+                        "node_modules/x/D.java",
+                        "src/main/java/A.java",
+                        "src/main/java/b/B.java",
+                        "src/test/java/C.java");
+    }
+
+    @Test
+    void itResolvesDirectory() throws IOException {
+        createFiles();
+
+        assertThat(resolve("src/main"))
+                .containsExactly("src/main/java/A.java", "src/main/java/b/B.java", "src/main/kotlin/E.kt");
+    }
+
+    @Test
+    void itSkipsExcludedFiles() throws IOException {
+        createFiles();
+
+        TargetExclusions exclusions = TargetExclusions.of(baseDir(), List.of("**/node_modules/**", "**/b/*"), false);
+
+        assertThat(resolve("**/*.java", exclusions))
+                .containsExactly("src/main/java/A.java", "src/test/java/C.java");
+    }
+
+    @Test
+    void itSkipsFilesIgnoredByGit() throws IOException {
+        createFiles();
+        setFile(".gitignore").toContent("node_modules/\n*.kt\n/src/test/\n");
+        setFile("src/main/.gitignore").toContent("!E.kt\n");
+
+        assertThat(resolve("src", TargetExclusions.of(baseDir(), List.of(), true)))
+                .containsExactly(
+                        "src/main/.gitignore",
+                        "src/main/java/A.java",
+                        "src/main/java/b/B.java",
+                        "src/main/kotlin/E.kt");
+    }
+
+    @Test
+    void itStreamsTheSameFilesWhenResolvedAgain() throws IOException {
+        createFiles();
+        TargetResolver targetResolver = new TargetResolver(baseDir(), List.of("src"), TargetExclusions.none());
+
+        List<Path> first = targetResolver.resolveTargets().limit(1).toList();
+        List<Path> all = targetResolver.resolveTargets().toList();
+
+        assertThat(first).containsExactly(baseDir().resolve("src/main/java/A.java"));
+        assertThat(all).startsWith(first.toArray(Path[]::new)).hasSize(4);
+        assertThat(targetResolver.resolveTargets()).containsExactlyElementsOf(all);
+    }
+
+    @Test
+    void itReplaysPeekedTargetsWithoutWalkingAgain() throws IOException {
+        createFiles();
+        TargetResolver targetResolver = new TargetResolver(baseDir(), List.of("src"), TargetExclusions.none());
+
+        List<Path> peeked = targetResolver.peekTargets().limit(1).toList();
+        setFile("src/main/java/A2.java").toContent("class A2 {}");
+
+        assertThat(targetResolver.resolveTargets())
+                .startsWith(peeked.toArray(Path[]::new))
+                .hasSize(4);
+        assertThat(targetResolver.resolveTargets()).hasSize(5);
+    }
+
+    @Test
+    void itListsBoundedNumberOfDirectoriesAheadOfTheConsumer() throws IOException {
+        for (int i = 0; i < 20; i++) {
+            setFile("src/dir" + i + "/sub/File.java").toContent("class File {}");
+        }
+        ParallelFileWalker.Walk walk =
+                new ParallelFileWalker(ForkJoinPool.commonPool(), 1, dir -> true, file -> true).walk(baseDir());
+
+        assertThat(walk.files().limit(1)).hasSize(1);
+        assertThat(walk.done()).isNotDone();
+
+        assertThat(walk.consumeFiles()).hasSize(20);
+        assertThat(walk.done()).isCompletedWithValue(20);
+        assertThatThrownBy(walk::files).isInstanceOf(IllegalStateException.class);
+    }
+
+    @Test
+    void itPrunesDirectoriesWhichCannotMatch() {
+        GlobSegmentMatcher matcher = GlobSegmentMatcher.compile("src/*/java/**/*.java", "/");
+
+        assertThat(matcher.mayContainMatches(Path.of("node_modules"))).isFalse();
+        assertThat(matcher.mayContainMatches(Path.of("src", "main", "kotlin"))).isFalse();
+        assertThat(matcher.mayContainMatches(Path.of("src", "main"))).isTrue();
+        assertThat(matcher.mayContainMatches(Path.of("src", "main", "java", "b"))).isTrue();
+    }
+
+    @Test
+    void itRecordsFlightRecorderEventPerResolvedTarget() throws IOException {
+        createFiles();
+        Path recordingFile = rootFolder().toPath().resolve("recording.jfr");
+
+        try (Recording recording = new Recording()) {
+            recording.enable(TargetResolvedEvent.NAME);
+            recording.start();
+            resolve("src/main");
+            recording.stop();
+            recording.dump(recordingFile);
+        }
+
+        List<RecordedEvent> events = RecordingFile.readAllEvents(recordingFile);
+        assertThat(events).hasSize(1);
+        assertThat(events.getFirst().getString("target")).isEqualTo("src/main");
+        assertThat(events.getFirst().getInt("count")).isEqualTo(3);
+    }
+
+    private void createFiles() throws IOException {
+        setFile("src/main/java/A.java").toContent("class A {}");
+        setFile("src/main/java/b/B.java").toContent("class B {}");
+        setFile("src/main/kotlin/E.kt").toContent("class E");
+        setFile("src/test/java/C.java").toContent("class C {}");
+        setFile("node_modules/x/D.java").toContent("class D {}");
+    }
+
+    private List<String> resolve(String target) {
+        return resolve(target, TargetExclusions.none());
+    }
+
+    private List<String> resolve(String target, TargetExclusions exclusions) {
+        Path baseDir = baseDir();
+        return new TargetResolver(baseDir, List.of(target), exclusions)
+                .resolveTargets()
+                .map(path -> baseDir.relativize(path).toString().replace('\\', '/'))
+                .toList();
+    }
+
+    private Path baseDir() {
+        return rootFolder().toPath();
+    }
+}
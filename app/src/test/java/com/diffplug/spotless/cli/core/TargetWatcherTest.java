@@ -0,0 +1,99 @@
+/*
+ * Copyright 2026 DiffPlug
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.diffplug.spotless.cli.core;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.List;
+import java.util.Set;
+
+import org.junit.jupiter.api.Test;
+
+import com.diffplug.spotless.ResourceHarness;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class TargetWatcherTest extends ResourceHarness {
+
+    @Test
+    void itCoalescesRepeatedChangesOfTheSameFile() throws Exception {
+        setFile("src/main/A.java").toContent("class A {}");
+        try (TargetWatcher watcher = watch("src/**/*.java")) {
+            Files.writeString(file("src/main/A.java"), "class A { }");
+            Files.writeString(file("src/main/A.java"), "class A {  }");
+
+            assertThat(watcher.awaitChanges()).containsExactly(file("src/main/A.java"));
+        }
+    }
+
+    @Test
+    void itIgnoresFilesWhichDoNotMatchTheTargets() throws Exception {
+        setFile("src/main/A.java").toContent("class A {}");
+        try (TargetWatcher watcher = watch("src/**/*.java")) {
+            Files.writeString(file("src/main/notes.txt"), "not java");
+            Files.writeString(file("src/main/B.java"), "class B {}");
+
+            assertThat(watcher.awaitChanges()).containsExactly(file("src/main/B.java"));
+        }
+    }
+
+    @Test
+    void itWatchesDirectoriesCreatedWhileWatching() throws Exception {
+        setFile("src/main/A.java").toContent("class A {}");
+        try (TargetWatcher watcher = watch("src/**/*.java")) {
+            Files.createDirectories(file("src/main/b"));
+            Files.writeString(file("src/main/b/B.java"), "class B {}");
+
+            assertThat(watcher.awaitChanges()).containsExactly(file("src/main/b/B.java"));
+
+            Files.writeString(file("src/main/b/B.java"), "class B { }");
+
+            assertThat(watcher.awaitChanges()).containsExactly(file("src/main/b/B.java"));
+        }
+    }
+
+    @Test
+    void itIgnoresExcludedFiles() throws Exception {
+        setFile("src/main/A.java").toContent("class A {}");
+        setFile("src/generated/G.java").toContent("class G {}");
+        TargetExclusions exclusions = TargetExclusions.of(baseDir(), List.of("**/generated/**"), false);
+        try (TargetWatcher watcher = watch(new TargetResolver(baseDir(), List.of("src"), exclusions))) {
+            Files.writeString(file("src/generated/G.java"), "class G { }");
+            Files.writeString(file("src/main/A.java"), "class A { }");
+
+            Set<Path> changes = watcher.awaitChanges();
+
+            assertThat(changes).containsExactly(file("src/main/A.java"));
+        }
+    }
+
+    private TargetWatcher watch(String target) {
+        return watch(new TargetResolver(baseDir(), List.of(target), TargetExclusions.none()));
+    }
+
+    private static TargetWatcher watch(TargetResolver targetResolver) {
+        return TargetWatcher.start(targetResolver, Duration.ofMillis(200));
+    }
+
+    private Path file(String path) {
+        return baseDir().resolve(path).normalize();
+    }
+
+    private Path baseDir() {
+        return rootFolder().toPath();
+    }
+}
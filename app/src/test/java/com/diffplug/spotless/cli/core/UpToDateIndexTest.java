@@ -0,0 +1,83 @@
+/*
+ * Copyright 2026 DiffPlug
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.diffplug.spotless.cli.core;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+
+import org.junit.jupiter.api.Test;
+
+import com.diffplug.spotless.ResourceHarness;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class UpToDateIndexTest extends ResourceHarness {
+
+    @Test
+    void itReportsCleanFileAsUpToDateAfterReload() throws IOException {
+        Path file = setFile("Test.java").toContent("class Test {}").getFile().toPath();
+        UpToDateIndex index = UpToDateIndex.load(indexFile());
+        index.markClean(file, Files.readAllBytes(file));
+        index.save();
+
+        UpToDateIndex reloaded = UpToDateIndex.load(indexFile());
+
+        assertThat(reloaded.isUpToDate(file, Files.readAllBytes(file))).isTrue();
+    }
+
+    @Test
+    void itDoesNotReportChangedFileAsUpToDate() throws IOException {
+        Path file = setFile("Test.java").toContent("class Test {}").getFile().toPath();
+        UpToDateIndex index = UpToDateIndex.load(indexFile());
+        index.markClean(file, Files.readAllBytes(file));
+        index.save();
+        FileTime lastModified = Files.getLastModifiedTime(file);
+        Files.writeString(file, "class Tset {}");
+        Files.setLastModifiedTime(file, lastModified); // only the content differs
+
+        UpToDateIndex reloaded = UpToDateIndex.load(indexFile());
+
+        assertThat(reloaded.isUpToDate(file, Files.readAllBytes(file))).isFalse();
+    }
+
+    @Test
+    void itDoesNotReportInvalidatedFileAsUpToDate() throws IOException {
+        Path file = setFile("Test.java").toContent("class Test {}").getFile().toPath();
+        UpToDateIndex index = UpToDateIndex.load(indexFile());
+        index.markClean(file, Files.readAllBytes(file));
+        index.invalidate(file);
+        index.save();
+
+        UpToDateIndex reloaded = UpToDateIndex.load(indexFile());
+
+        assertThat(reloaded.isUpToDate(file, Files.readAllBytes(file))).isFalse();
+    }
+
+    @Test
+    void itNeverReportsUpToDateWhenDisabled() throws IOException {
+        Path file = setFile("Test.java").toContent("class Test {}").getFile().toPath();
+        UpToDateIndex index = UpToDateIndex.none();
+        index.markClean(file, Files.readAllBytes(file));
+
+        assertThat(index.isUpToDate(file, Files.readAllBytes(file))).isFalse();
+    }
+
+    private Path indexFile() {
+        return rootFolder().toPath().resolve("index").resolve("checksum");
+    }
+}
@@ -0,0 +1,75 @@
+/*
+ * Copyright 2026 DiffPlug
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.diffplug.spotless.cli.daemon;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.PosixFilePermissions;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.DisabledOnOs;
+import org.junit.jupiter.api.condition.OS;
+
+import com.diffplug.spotless.ResourceHarness;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+@DisabledOnOs(OS.WINDOWS)
+class DaemonProtocolTest extends ResourceHarness {
+
+    @Test
+    void itCreatesPrivateParentDirectory() throws IOException {
+        Path parent = rootFolder().toPath().resolve("daemon");
+
+        DaemonProtocol.createPrivateParentDirectory(parent.resolve("daemon.sock"));
+
+        assertThat(PosixFilePermissions.toString(Files.getPosixFilePermissions(parent)))
+                .isEqualTo("rwx------");
+    }
+
+    @Test
+    void itAcceptsExistingPrivateParentDirectory() throws IOException {
+        Path parent = Files.createDirectory(rootFolder().toPath().resolve("daemon"));
+        Files.setPosixFilePermissions(parent, PosixFilePermissions.fromString("rwx------"));
+
+        DaemonProtocol.createPrivateParentDirectory(parent.resolve("daemon.sock"));
+
+        assertThat(parent).isDirectory();
+    }
+
+    @Test
+    void itRefusesExistingParentDirectoryAccessibleByOthers() throws IOException {
+        Path parent = Files.createDirectory(rootFolder().toPath().resolve("daemon"));
+        Files.setPosixFilePermissions(parent, PosixFilePermissions.fromString("rwxr-xr-x"));
+
+        assertThatThrownBy(() -> DaemonProtocol.createPrivateParentDirectory(parent.resolve("daemon.sock")))
+                .isInstanceOf(IOException.class)
+                .hasMessageContaining("rwxr-xr-x");
+    }
+
+    @Test
+    void itRefusesSymbolicLinkAsParentDirectory() throws IOException {
+        Path target = Files.createDirectory(rootFolder().toPath().resolve("target"));
+        Files.setPosixFilePermissions(target, PosixFilePermissions.fromString("rwx------"));
+        Path parent = Files.createSymbolicLink(rootFolder().toPath().resolve("daemon"), target);
+
+        assertThatThrownBy(() -> DaemonProtocol.createPrivateParentDirectory(parent.resolve("daemon.sock")))
+                .isInstanceOf(IOException.class)
+                .hasMessageContaining("not a directory");
+    }
+}
@@ -0,0 +1,71 @@
+/*
+ * Copyright 2026 DiffPlug
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.diffplug.spotless.cli.daemon;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.util.List;
+
+import org.junit.jupiter.api.Test;
+
+import com.diffplug.spotless.ResourceHarness;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class SpotlessDaemonTest extends ResourceHarness {
+
+    @Test
+    void itDoesNotReuseWarmEngineAfterReferencedFileChanged() {
+        setFile("header.txt").toContent("/* License A */");
+        setFile("TestFile.java").toContent("public class TestFile {}");
+        try (WarmFormattingEngines engines = new WarmFormattingEngines(2)) {
+            assertThat(run(engines, "--target=TestFile.java", "license-header", "--header-file=header.txt"))
+                    .isZero();
+            assertFile("TestFile.java").hasContent("/* License A */\npublic class TestFile {}");
+
+            setFile("header.txt").toContent("/* License B */");
+            setFile("TestFile.java").toContent("public class TestFile {}");
+            assertThat(run(engines, "--target=TestFile.java", "license-header", "--header-file=header.txt"))
+                    .isZero();
+
+            assertFile("TestFile.java").hasContent("/* License B */\npublic class TestFile {}");
+        }
+    }
+
+    @Test
+    void itResolvesRelativePathsAgainstTheWorkingDirectoryOfTheClient() {
+        setFile("config/header.txt").toContent("/* License */");
+        setFile("src/TestFile.java").toContent("public class TestFile {}");
+        try (WarmFormattingEngines engines = new WarmFormattingEngines(2)) {
+            assertThat(run(
+                            engines,
+                            "--target=src/TestFile.java",
+                            "--report=build/report.txt",
+                            "license-header",
+                            "--header-file=config/header.txt"))
+                    .isZero();
+        }
+
+        assertFile("src/TestFile.java").hasContent("/* License */\npublic class TestFile {}");
+        assertThat(rootFolder().toPath().resolve("build").resolve("report.txt")).isRegularFile();
+    }
+
+    private int run(WarmFormattingEngines engines, String... args) {
+        DaemonProtocol.Request request = new DaemonProtocol.Request(
+                DaemonProtocol.REQUEST_RUN, rootFolder().getAbsolutePath(), List.of(args));
+        return SpotlessDaemon.execute(request, engines, new DataOutputStream(new ByteArrayOutputStream()));
+    }
+}
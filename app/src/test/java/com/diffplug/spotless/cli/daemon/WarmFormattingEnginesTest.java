@@ -0,0 +1,87 @@
+/*
+ * Copyright 2026 DiffPlug
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.diffplug.spotless.cli.daemon;
+
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.jupiter.api.Test;
+
+import com.diffplug.spotless.Formatter;
+import com.diffplug.spotless.cli.FormatterFactory;
+import com.diffplug.spotless.cli.FormattingEngine;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class WarmFormattingEnginesTest {
+
+    private final AtomicInteger created = new AtomicInteger();
+
+    private final AtomicInteger closed = new AtomicInteger();
+
+    @Test
+    void itReusesEngineForSameConfiguration() {
+        try (WarmFormattingEngines engines = new WarmFormattingEngines(2)) {
+            FormattingEngine first = engines.obtain("a", this::newEngine);
+            first.close();
+            FormattingEngine second = engines.obtain("a", this::newEngine);
+            second.close();
+
+            assertThat(created.get()).isEqualTo(1);
+            assertThat(closed.get()).isZero();
+            assertThat(second.formatterFactory()).isSameAs(first.formatterFactory());
+            assertThat(second.executor().isShutdown()).isFalse();
+        }
+        assertThat(closed.get()).isEqualTo(1);
+    }
+
+    @Test
+    void itClosesLeastRecentlyUsedEngine() {
+        try (WarmFormattingEngines engines = new WarmFormattingEngines(2)) {
+            engines.obtain("a", this::newEngine).close();
+            engines.obtain("b", this::newEngine).close();
+            engines.obtain("a", this::newEngine).close(); // a is now more recently used than b
+            engines.obtain("c", this::newEngine).close();
+
+            assertThat(created.get()).isEqualTo(3);
+            assertThat(closed.get()).isEqualTo(1);
+            assertThat(engines.size()).isEqualTo(2);
+
+            engines.obtain("a", this::newEngine).close();
+            assertThat(created.get()).isEqualTo(3);
+        }
+    }
+
+    private FormattingEngine newEngine() {
+        created.incrementAndGet();
+        ExecutorService executor = Executors.newSingleThreadExecutor();
+        return new FormattingEngine(new CountingFormatterFactory(), executor);
+    }
+
+    private class CountingFormatterFactory implements FormatterFactory {
+
+        @Override
+        public Formatter createFormatter() {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public void close() {
+            closed.incrementAndGet();
+        }
+    }
+}
@@ -0,0 +1,74 @@
+/*
+ * Copyright 2026 DiffPlug
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.diffplug.spotless.cli.execution;
+
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.IntStream;
+
+import org.junit.jupiter.api.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class BoundedCompletionServiceTest {
+
+    @Test
+    void itReducesAllResults() {
+        try (ExecutorService executor = Executors.newFixedThreadPool(4)) {
+            BoundedCompletionService<Integer> service = new BoundedCompletionService<>(executor, 3);
+
+            int sum = service.reduce(
+                    IntStream.rangeClosed(1, 100).mapToObj(i -> (Callable<Integer>) () -> i), 0, Integer::sum);
+
+            assertThat(sum).isEqualTo(5050);
+        }
+    }
+
+    @Test
+    void itNeverHasMoreThanMaxInFlightTasksPending() {
+        AtomicInteger submitted = new AtomicInteger();
+        AtomicInteger handled = new AtomicInteger();
+        AtomicInteger maxPending = new AtomicInteger();
+        try (ExecutorService executor = Executors.newFixedThreadPool(4)) {
+            BoundedCompletionService<Integer> service = new BoundedCompletionService<>(executor, 5);
+
+            service.reduce(
+                    IntStream.range(0, 50).mapToObj(i -> {
+                        int pending = submitted.incrementAndGet() - handled.get();
+                        maxPending.accumulateAndGet(pending, Math::max);
+                        return (Callable<Integer>) () -> i;
+                    }),
+                    0,
+                    (count, result) -> {
+                        handled.incrementAndGet();
+                        return count + 1;
+                    });
+        }
+
+        assertThat(maxPending.get()).isLessThanOrEqualTo(5);
+    }
+
+    @Test
+    void itRejectsNonPositiveLimit() {
+        try (ExecutorService executor = Executors.newSingleThreadExecutor()) {
+            assertThatThrownBy(() -> new BoundedCompletionService<Integer>(executor, 0))
+                    .isInstanceOf(IllegalArgumentException.class);
+        }
+    }
+}
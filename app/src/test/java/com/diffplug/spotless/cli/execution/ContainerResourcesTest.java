@@ -0,0 +1,77 @@
+/*
+ * Copyright 2026 DiffPlug
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.diffplug.spotless.cli.execution;
+
+import java.io.IOException;
+import java.nio.file.Path;
+
+import org.junit.jupiter.api.Test;
+
+import com.diffplug.spotless.ResourceHarness;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class ContainerResourcesTest extends ResourceHarness {
+
+    @Test
+    void itUsesFractionalCgroupV2Quota() throws IOException {
+        setFile("cpu.max").toContent("150000 100000\n");
+
+        assertThat(ContainerResources.availableCpus(cgroupRoot(), 2)).isEqualTo(1.5);
+    }
+
+    @Test
+    void itIgnoresUnlimitedCgroupV2Quota() throws IOException {
+        setFile("cpu.max").toContent("max 100000\n");
+
+        assertThat(ContainerResources.availableCpus(cgroupRoot(), 8)).isEqualTo(8);
+    }
+
+    @Test
+    void itUsesCgroupV1Quota() throws IOException {
+        setFile("cpu,cpuacct/cpu.cfs_quota_us").toContent("50000\n");
+        setFile("cpu,cpuacct/cpu.cfs_period_us").toContent("100000\n");
+
+        assertThat(ContainerResources.availableCpus(cgroupRoot(), 4)).isEqualTo(0.5);
+    }
+
+    @Test
+    void itIgnoresUnlimitedCgroupV1Quota() throws IOException {
+        setFile("cpu/cpu.cfs_quota_us").toContent("-1\n");
+        setFile("cpu/cpu.cfs_period_us").toContent("100000\n");
+
+        assertThat(ContainerResources.availableCpus(cgroupRoot(), 4)).isEqualTo(4);
+    }
+
+    @Test
+    void itNeverExceedsAvailableProcessors() throws IOException {
+        setFile("cpu.max").toContent("800000 100000\n");
+
+        assertThat(ContainerResources.availableCpus(cgroupRoot(), 2)).isEqualTo(2);
+    }
+
+    @Test
+    void itSizesAdaptivePoolFromAvailableCpus() {
+        assertThat(AdaptiveThreadPool.initialSize(1.5)).isEqualTo(1);
+        assertThat(AdaptiveThreadPool.maxSize(1.5)).isEqualTo(2);
+        assertThat(AdaptiveThreadPool.initialSize(8)).isEqualTo(4);
+        assertThat(AdaptiveThreadPool.maxSize(8)).isEqualTo(8);
+    }
+
+    private Path cgroupRoot() {
+        return rootFolder().toPath();
+    }
+}
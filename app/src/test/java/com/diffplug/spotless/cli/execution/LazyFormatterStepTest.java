@@ -0,0 +1,118 @@
+/*
+ * Copyright 2026 DiffPlug
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.diffplug.spotless.cli.execution;
+
+import java.io.File;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.jupiter.api.Test;
+
+import com.diffplug.spotless.FormatterStep;
+import com.diffplug.spotless.Lint;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class LazyFormatterStepTest {
+
+    private final AtomicInteger prepared = new AtomicInteger();
+
+    private final LazyFormatterStep step =
+            new LazyFormatterStep("upper-case", LazyFormatterStep.hasExtension(Set.of("xml")), () -> {
+                prepared.incrementAndGet();
+                return List.of(new UpperCaseStep());
+            });
+
+    @Test
+    void itDoesNotPrepareStepsForOtherFiles() throws Exception {
+        assertThat(step.format("class Test {}", new File("Test.java"))).isEqualTo("class Test {}");
+        assertThat(step.lint("class Test {}", new File("Test.java"))).isEmpty();
+        assertThat(step.format("no extension", new File("README"))).isEqualTo("no extension");
+
+        assertThat(step.isPrepared()).isFalse();
+        assertThat(prepared).hasValue(0);
+    }
+
+    @Test
+    void itPreparesStepsOnceForTheFirstMatchingFile() throws Exception {
+        assertThat(step.format("<a/>", new File("a.XML"))).isEqualTo("<A/>");
+        assertThat(step.format("<b/>", new File("b.xml"))).isEqualTo("<B/>");
+
+        assertThat(step.isPrepared()).isTrue();
+        assertThat(prepared).hasValue(1);
+    }
+
+    @Test
+    void itPreparesStepsThroughThePreparationInPlaceWhenCreated() throws Exception {
+        AtomicInteger observed = new AtomicInteger();
+        LazyFormatterStep observedStep = LazyFormatterStep.preparingThrough(
+                steps -> {
+                    observed.incrementAndGet();
+                    return steps.get();
+                },
+                () -> new LazyFormatterStep("upper-case", file -> true, () -> List.of(new UpperCaseStep())));
+
+        assertThat(observed).hasValue(0);
+        assertThat(observedStep.format("<a/>", new File("a.xml"))).isEqualTo("<A/>");
+        assertThat(observedStep.format("<b/>", new File("b.xml"))).isEqualTo("<B/>");
+        assertThat(step.format("<c/>", new File("c.xml"))).isEqualTo("<C/>");
+
+        assertThat(observed).hasValue(1);
+    }
+
+    @Test
+    void itPassesUnixLineEndingsToEveryStep() throws Exception {
+        UpperCaseStep second = new UpperCaseStep();
+        LazyFormatterStep windowsThenUpperCase = new LazyFormatterStep(
+                "windows-then-upper-case", file -> true, () -> List.of(new WindowsLineEndingsStep(), second));
+
+        assertThat(windowsThenUpperCase.format("a\nb", new File("a.txt"))).isEqualTo("A\nB");
+        assertThat(second.lastInput).isEqualTo("a\nb");
+    }
+
+    private static class WindowsLineEndingsStep extends UpperCaseStep {
+
+        @Override
+        public String format(String rawUnix, File file) {
+            return rawUnix.replace("\n", "\r\n");
+        }
+    }
+
+    private static class UpperCaseStep implements FormatterStep {
+
+        @Override
+        public String getName() {
+            return "upper-case";
+        }
+
+        String lastInput;
+
+        @Override
+        public String format(String rawUnix, File file) {
+            lastInput = rawUnix;
+            return rawUnix.toUpperCase();
+        }
+
+        @Override
+        public List<Lint> lint(String content, File file) {
+            return List.of();
+        }
+
+        @Override
+        public void close() {}
+    }
+}
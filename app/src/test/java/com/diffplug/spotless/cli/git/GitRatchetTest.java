@@ -0,0 +1,102 @@
+/*
+ * Copyright 2026 DiffPlug
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.diffplug.spotless.cli.git;
+
+import java.nio.file.Path;
+
+import org.eclipse.jgit.api.Git;
+import org.eclipse.jgit.lib.PersonIdent;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import com.diffplug.spotless.ResourceHarness;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class GitRatchetTest extends ResourceHarness {
+
+    private static final PersonIdent AUTHOR = new PersonIdent("Test", "test@example.com");
+
+    private Path repo;
+
+    private Git git;
+
+    @BeforeEach
+    void createRepository() throws Exception {
+        repo = rootFolder().toPath();
+        git = Git.init().setDirectory(repo.toFile()).call();
+        setFile("unchanged.txt").toContent("unchanged");
+        setFile("dir/modified.txt").toContent("original");
+        setFile("dir/staged.txt").toContent("original");
+        git.add().addFilepattern(".").call();
+        commit("initial");
+        git.tag().setName("base").call();
+    }
+
+    @AfterEach
+    void closeRepository() {
+        git.close();
+    }
+
+    @Test
+    void itDetectsChangesInWorkingTree() throws Exception {
+        setFile("dir/modified.txt").toContent("modified");
+        setFile("dir/staged.txt").toContent("staged");
+        git.add().addFilepattern("dir/staged.txt").call();
+        setFile("dir/new.txt").toContent("new");
+
+        try (GitRatchet ratchet = GitRatchet.from(repo, "base")) {
+            assertThat(ratchet.isChanged(repo.resolve("unchanged.txt"))).isFalse();
+            assertThat(ratchet.isChanged(repo.resolve("dir/modified.txt"))).isTrue();
+            assertThat(ratchet.isChanged(repo.resolve("dir/staged.txt"))).isTrue();
+            assertThat(ratchet.isChanged(repo.resolve("dir/new.txt"))).isTrue();
+        }
+    }
+
+    @Test
+    void itResolvesRevisionsFromPackedObjects() throws Exception {
+        setFile("dir/modified.txt").toContent("modified");
+        git.add().addFilepattern("dir/modified.txt").call();
+        commit("second");
+        git.gc().call();
+
+        try (GitRatchet ratchet = GitRatchet.from(repo, "HEAD~1")) {
+            assertThat(ratchet.isChanged(repo.resolve("dir/modified.txt"))).isTrue();
+            assertThat(ratchet.isChanged(repo.resolve("dir/staged.txt"))).isFalse();
+        }
+        try (GitRatchet ratchet = GitRatchet.from(repo, "HEAD")) {
+            assertThat(ratchet.isChanged(repo.resolve("dir/modified.txt"))).isFalse();
+        }
+    }
+
+    @Test
+    void itRejectsUnknownRevision() {
+        assertThatThrownBy(() -> GitRatchet.from(repo, "does-not-exist"))
+                .isInstanceOf(IllegalArgumentException.class)
+                .hasMessageContaining("does-not-exist");
+    }
+
+    private void commit(String message) throws Exception {
+        git.commit()
+                .setMessage(message)
+                .setAuthor(AUTHOR)
+                .setCommitter(AUTHOR)
+                .setSign(false)
+                .call();
+    }
+}
@@ -0,0 +1,104 @@
+/*
+ * Copyright 2026 DiffPlug
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.diffplug.spotless.cli.profile;
+
+import java.io.File;
+import java.nio.file.Path;
+import java.util.List;
+
+import org.junit.jupiter.api.Test;
+
+import com.diffplug.spotless.FormatterStep;
+import com.diffplug.spotless.Lint;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class ProfilerTest {
+
+    @Test
+    void itCalculatesNearestRankPercentiles() {
+        long[] sorted = {1, 2, 3, 4, 5, 6, 7, 8, 9, 10};
+
+        assertThat(Profiler.percentile(sorted, 50)).isEqualTo(5);
+        assertThat(Profiler.percentile(sorted, 90)).isEqualTo(9);
+        assertThat(Profiler.percentile(sorted, 99)).isEqualTo(10);
+        assertThat(Profiler.percentile(new long[0], 50)).isZero();
+    }
+
+    @Test
+    void itReportsPhasesStepsAndSlowestFiles() throws Exception {
+        Profiler profiler = Profiler.start();
+        List<FormatterStep> steps =
+                profiler.profiled(() -> List.of(new UpperCaseStep())).getFormatterSteps();
+        assertThat(profiler.time(Profiler.PHASE_TARGET_RESOLUTION, List.of("a", "b").stream()))
+                .containsExactly("a", "b");
+
+        try (Profiler.FileTimer timer = profiler.startFile(Path.of("Slow.java"))) {
+            steps.getFirst().format("class Slow {}", new File("Slow.java"));
+        }
+
+        String report = profiler.report();
+        assertThat(report)
+                .contains(Profiler.PHASE_TARGET_RESOLUTION, Profiler.PHASE_FORMATTER_CREATION)
+                .contains("upper-case")
+                .contains("Slow.java")
+                .contains("1 files formatted");
+    }
+
+    @Test
+    void itReportsCpuTimeOfFilesFormattedOnVirtualThreadsAsNotAvailable() throws Exception {
+        Profiler profiler = Profiler.start();
+
+        Thread.ofVirtual()
+                .start(() -> profiler.startFile(Path.of("Virtual.java")).close())
+                .join();
+
+        assertThat(profiler.report())
+                .contains("cpu time n/a for 1 files")
+                .containsPattern("\\s+n/a\\s+Virtual\\.java");
+    }
+
+    @Test
+    void itDoesNotWrapStepsWhenDisabled() {
+        Profiler profiler = Profiler.disabled();
+        FormatterStep step = new UpperCaseStep();
+
+        List<FormatterStep> steps = profiler.profiled(() -> List.of(step)).getFormatterSteps();
+
+        assertThat(steps).containsExactly(step);
+    }
+
+    private static class UpperCaseStep implements FormatterStep {
+
+        @Override
+        public String getName() {
+            return "upper-case";
+        }
+
+        @Override
+        public String format(String rawUnix, File file) {
+            return rawUnix.toUpperCase();
+        }
+
+        @Override
+        public List<Lint> lint(String content, File file) {
+            return List.of();
+        }
+
+        @Override
+        public void close() {}
+    }
+}
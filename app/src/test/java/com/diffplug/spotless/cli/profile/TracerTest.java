@@ -0,0 +1,64 @@
+/*
+ * Copyright 2026 DiffPlug
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.diffplug.spotless.cli.profile;
+
+import java.io.StringWriter;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.stream.Stream;
+
+import org.junit.jupiter.api.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class TracerTest {
+
+    @Test
+    void itWritesSpansAndThreadNames() throws Exception {
+        Tracer tracer = Tracer.start();
+        try (Tracer.Span span = tracer.span("format file", Tracer.CATEGORY_FORMAT, Path.of("Test.java"))) {
+            tracer.traced(List::of).getFormatterSteps();
+        }
+
+        StringWriter trace = new StringWriter();
+        tracer.write(trace);
+
+        assertThat(trace.toString())
+                .startsWith("{\"displayTimeUnit\":\"ms\",\"traceEvents\":[")
+                .contains("\"name\":\"thread_name\",\"ph\":\"M\"")
+                .contains(Tracer.quote(Thread.currentThread().getName()))
+                .contains("\"name\":\"format file\",\"cat\":\"format\",\"ph\":\"X\"")
+                .contains("\"args\":{\"file\":\"Test.java\"}")
+                .contains("\"name\":\"create formatter\",\"cat\":\"setup\"")
+                .endsWith("]}\n");
+    }
+
+    @Test
+    void itRecordsNothingWhenDisabled() throws Exception {
+        Tracer tracer = Tracer.disabled();
+        Stream<String> targets = Stream.of("a", "b");
+
+        try (Tracer.Span span = tracer.span("format file", Tracer.CATEGORY_FORMAT)) {
+            assertThat(span).isSameAs(Tracer.Span.NOOP);
+        }
+        assertThat(tracer.traceSlowPulls("target discovery", targets)).isSameAs(targets);
+    }
+
+    @Test
+    void itEscapesJsonStrings() {
+        assertThat(Tracer.quote("C:\\src\\\"a\"\n\u0001")).isEqualTo("\"C:\\\\src\\\\\\\"a\\\"\\n\\u0001\"");
+    }
+}
@@ -0,0 +1,91 @@
+/*
+ * Copyright 2026 DiffPlug
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.diffplug.spotless.cli.report;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.List;
+
+import org.junit.jupiter.api.Test;
+
+import com.diffplug.spotless.ResourceHarness;
+import com.diffplug.spotless.cli.core.Shard;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class RunReportTest extends ResourceHarness {
+
+    @Test
+    void itReadsWhatItWrote() throws IOException {
+        RunReport report = report(new Shard(2, 3), 1);
+        report.recordUpToDate();
+        report.recordClean();
+        report.recordDirty("src/A.java");
+        Path reportFile = rootFolder().toPath().resolve("reports").resolve("shard-2");
+        report.write(reportFile);
+
+        RunReport read = RunReport.read(reportFile);
+
+        assertThat(read.shard()).isEqualTo(new Shard(2, 3));
+        assertThat(read.exitCode()).isEqualTo(1);
+        assertThat(read.upToDate()).isEqualTo(1);
+        assertThat(read.clean()).isEqualTo(1);
+        assertThat(read.dirtyFiles()).containsExactly("src/A.java");
+        assertThat(read.didNotConvergeFiles()).isEmpty();
+    }
+
+    @Test
+    void itMergesTheReportsOfAllShards() {
+        RunReport shard1 = report(new Shard(1, 3), 0);
+        shard1.recordClean();
+        RunReport shard2 = report(new Shard(2, 3), 1);
+        shard2.recordDirty("src/B.java");
+        RunReport shard3 = report(new Shard(3, 3), 1);
+        shard3.recordDirty("src/A.java");
+        shard3.recordUpToDate();
+
+        RunReport merged = RunReport.merge(List.of(shard3, shard1, shard2));
+
+        assertThat(merged.exitCode()).isEqualTo(1);
+        assertThat(merged.files()).isEqualTo(4);
+        assertThat(merged.dirtyFiles()).containsExactly("src/A.java", "src/B.java");
+        assertThat(merged.summary()).isEqualTo("4 files: 1 clean, 1 up-to-date, 2 dirty, 0 did not converge");
+    }
+
+    @Test
+    void itLetsNotConvergingRunsOutweighDirtyRuns() {
+        RunReport merged = RunReport.merge(List.of(report(null, 1), report(null, -1), report(null, 0)));
+
+        assertThat(merged.exitCode()).isEqualTo(-1);
+    }
+
+    @Test
+    void itRejectsIncompleteShards() {
+        assertThatThrownBy(() -> RunReport.merge(List.of(report(new Shard(1, 3), 0), report(new Shard(3, 3), 0))))
+                .hasMessageContaining("Missing the reports of shards 2/3");
+        assertThatThrownBy(() -> RunReport.merge(List.of(report(new Shard(1, 2), 0), report(new Shard(1, 2), 0))))
+                .hasMessageContaining("more than once");
+        assertThatThrownBy(() -> RunReport.merge(List.of(report(new Shard(1, 1), 0), report(null, 0))))
+                .hasMessageContaining("unsharded");
+    }
+
+    private static RunReport report(Shard shard, int exitCode) {
+        RunReport report = new RunReport(shard);
+        report.exitCode(exitCode);
+        return report;
+    }
+}
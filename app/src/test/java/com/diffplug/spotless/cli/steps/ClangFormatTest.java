@@ -16,6 +16,8 @@
 package com.diffplug.spotless.cli.steps;
 
 import java.io.File;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
 import java.util.List;
 import java.util.stream.Stream;
 
@@ -31,6 +33,8 @@ import com.diffplug.spotless.cpp.ClangFormatStep;
 import com.diffplug.spotless.tag.CliNativeTest;
 import com.diffplug.spotless.tag.CliProcessTest;
 
+import static org.assertj.core.api.Assertions.assertThat;
+
 @CliProcessTest
 @CliNativeTest
 class ClangFormatTest extends CLIIntegrationHarness {
@@ -94,4 +98,62 @@ class ClangFormatTest extends CLIIntegrationHarness {
         assertFile(testFile).notSameSasResource("clang/example.java.dirty");
         selfie().expectFile(testFile).toMatchDisk();
     }
+
+    @Test
+    void itFormatsBatchWithSingleInvocation() throws Exception {
+        ForeignExeMock mock = ForeignExeMock.builder("clang-format", ClangFormatStep.defaultVersion())
+                .withStringConsumingOption("--style", List.of("LLVM", "Google", "Mozilla"))
+                .withStringConsumingOption("--assume-filename")
+                .withReadFromStdin()
+                .withWriteToStdout()
+                .withInPlaceOption("-i")
+                .withInvocationLog("clang-format.log")
+                .build();
+        // in its own folder, so it does not clash with the mock of the other tests
+        File inPlaceExec = setFile("in-place/" + mock.getFileName())
+                .toContent(mock.getContent())
+                .makeExecutable()
+                .getFile();
+        List<File> testFiles = List.of(
+                setFile("Test1.java").toResource("clang/example.java.dirty").getFile(),
+                setFile("Test2.java").toResource("clang/example.java.dirty").getFile(),
+                setFile("Test3.java").toResource("clang/example.java.dirty").getFile());
+
+        cliRunner()
+                .withTargets("*.java")
+                .withStep(ClangFormat.class)
+                .withOption("--clang-version", ClangFormatStep.defaultVersion())
+                .withOption("--clang-format-exec", inPlaceExec.getAbsolutePath())
+                .withOption("--batch-size", "3")
+                .run();
+
+        for (File testFile : testFiles) {
+            assertFile(testFile).hasLines("output written by clang-format");
+        }
+        // one invocation formats the batch, another one checks that the results converge
+        List<String> invocations = Files.readAllLines(
+                inPlaceExec.toPath().resolveSibling("clang-format.log"), StandardCharsets.UTF_8);
+        assertThat(invocations)
+                .hasSize(2)
+                .allSatisfy(invocation -> assertThat(invocation)
+                        .contains("-i", "Test1.java", "Test2.java", "Test3.java"));
+    }
+
+    @Test
+    void itFormatsFilesOneByOneIfBatchCannotBeFormatted() throws Exception {
+        File testFile1 = setFile("Test1.java").toResource("clang/example.java.dirty").getFile();
+        File testFile2 = setFile("Test2.java").toResource("clang/example.java.dirty").getFile();
+
+        cliRunner()
+                .withTargets("*.java")
+                .withStep(ClangFormat.class)
+                .withOption("--clang-version", ClangFormatStep.defaultVersion())
+                .withOption("--clang-format-exec", clangFormatExec.getAbsolutePath())
+                .withOption("--batch-size", "2")
+                .run();
+
+        // the mock does not support formatting files in place, so the batch fails
+        assertFile(testFile1).notSameSasResource("clang/example.java.dirty");
+        assertFile(testFile2).notSameSasResource("clang/example.java.dirty");
+    }
 }
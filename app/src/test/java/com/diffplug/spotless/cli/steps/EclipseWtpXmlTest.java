@@ -39,4 +39,20 @@ public class EclipseWtpXmlTest extends EclipseWtpTestBase {
         String fileName = runEclipseWtpWithTypeInferred("xml", "<a><b>   c</b></a>");
         selfie().expectResource(fileName).toMatchDisk();
     }
+
+    @Test
+    void itFormatsRoutedFilesWithOtherExtensions() {
+        setFile("test.fxml").toContent("<a><b>   c</b></a>");
+        setFile("test.html").toContent("<a><b>   c</b></a>");
+
+        cliRunner()
+                .withTargets("test.fxml", "test.html")
+                .withOption("--route", "*.fxml=eclipse-wtp")
+                .withStep(EclipseWtp.class)
+                .withOption("--type", EclipseWtp.Type.XML.name())
+                .run();
+
+        assertFile("test.fxml").hasContent("<a>\n\t<b> c</b>\n</a>");
+        assertFile("test.html").hasContent("<a><b>   c</b></a>");
+    }
 }
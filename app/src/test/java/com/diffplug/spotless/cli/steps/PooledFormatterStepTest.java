@@ -0,0 +1,193 @@
+/*
+ * Copyright 2026 DiffPlug
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.diffplug.spotless.cli.steps;
+
+import java.io.File;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+
+import org.junit.jupiter.api.Test;
+
+import com.diffplug.spotless.FormatterStep;
+import com.diffplug.spotless.Lint;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class PooledFormatterStepTest {
+
+    @Test
+    void itSharesDelegatesBetweenInstancesWithSameKey() throws Exception {
+        AtomicInteger created = new AtomicInteger();
+        FormatterStep first = PooledFormatterStep.create("test", "same-key", 2, () -> new CountingStep(created));
+        FormatterStep second = PooledFormatterStep.create("test", "same-key", 2, () -> new CountingStep(created));
+
+        first.format("a", new File("a"));
+        second.format("b", new File("b"));
+        first.format("c", new File("c"));
+
+        assertThat(created).hasValue(1); // calls were sequential, so one delegate was enough
+        first.close();
+        second.close();
+    }
+
+    @Test
+    void itNeverCreatesMoreDelegatesThanPoolSize() throws Exception {
+        AtomicInteger created = new AtomicInteger();
+        CountDownLatch allStarted = new CountDownLatch(1);
+        ExecutorService executor = Executors.newFixedThreadPool(4);
+        try {
+            List<FormatterStep> steps = List.of(
+                    PooledFormatterStep.create("test", "bounded-key", 2, () -> new BlockingStep(created, allStarted)),
+                    PooledFormatterStep.create("test", "bounded-key", 2, () -> new BlockingStep(created, allStarted)),
+                    PooledFormatterStep.create("test", "bounded-key", 2, () -> new BlockingStep(created, allStarted)),
+                    PooledFormatterStep.create("test", "bounded-key", 2, () -> new BlockingStep(created, allStarted)));
+            List<Future<String>> results = steps.stream()
+                    .map(step -> executor.submit(() -> step.format("x", new File("x"))))
+                    .toList();
+            Thread.sleep(100); // give all threads the chance to borrow a delegate
+            allStarted.countDown();
+            for (Future<String> result : results) {
+                assertThat(result.get(5, TimeUnit.SECONDS)).isEqualTo("x");
+            }
+
+            assertThat(created).hasValue(2);
+            for (FormatterStep step : steps) {
+                step.close();
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    @Test
+    void itWakesWaitingThreadsWhenCreatingDelegateFails() throws Exception {
+        AtomicInteger attempts = new AtomicInteger();
+        AtomicInteger created = new AtomicInteger();
+        CountDownLatch creating = new CountDownLatch(1);
+        CountDownLatch failCreation = new CountDownLatch(1);
+        Supplier<FormatterStep> factory = () -> {
+            if (attempts.incrementAndGet() == 1) {
+                creating.countDown();
+                try {
+                    failCreation.await();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+                throw new IllegalStateException("cannot start delegate");
+            }
+            return new CountingStep(created);
+        };
+        ExecutorService executor = Executors.newFixedThreadPool(3);
+        try {
+            List<FormatterStep> steps = List.of(
+                    PooledFormatterStep.create("test", "failing-key", 1, factory),
+                    PooledFormatterStep.create("test", "failing-key", 1, factory),
+                    PooledFormatterStep.create("test", "failing-key", 1, factory));
+            Future<String> failing = executor.submit(() -> steps.get(0).format("x", new File("x")));
+            assertThat(creating.await(5, TimeUnit.SECONDS)).isTrue();
+            List<Future<String>> waiting = steps.subList(1, 3).stream()
+                    .map(step -> executor.submit(() -> step.format("x", new File("x"))))
+                    .toList();
+            Thread.sleep(100); // give the other threads the chance to wait for the delegate
+            failCreation.countDown();
+
+            assertThatThrownBy(() -> failing.get(5, TimeUnit.SECONDS))
+                    .hasRootCauseInstanceOf(IllegalStateException.class)
+                    .hasRootCauseMessage("cannot start delegate");
+            for (Future<String> result : waiting) {
+                assertThat(result.get(5, TimeUnit.SECONDS)).isEqualTo("x");
+            }
+            assertThat(created).hasValue(1);
+            for (FormatterStep step : steps) {
+                step.close();
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    @Test
+    void itClosesDelegatesWhenLastInstanceIsClosed() throws Exception {
+        AtomicInteger created = new AtomicInteger();
+        CountingStep delegate = new CountingStep(created);
+        FormatterStep first = PooledFormatterStep.create("test", "closing-key", 1, () -> delegate);
+        FormatterStep second = PooledFormatterStep.create("test", "closing-key", 1, () -> delegate);
+        first.format("a", new File("a"));
+
+        first.close();
+        assertThat(delegate.closed).isFalse();
+        second.close();
+
+        assertThat(delegate.closed).isTrue();
+        assertThatThrownBy(() -> first.format("a", new File("a"))).isInstanceOf(IllegalStateException.class);
+    }
+
+    private static class CountingStep implements FormatterStep {
+
+        volatile boolean closed;
+
+        CountingStep(AtomicInteger created) {
+            created.incrementAndGet();
+        }
+
+        @Override
+        public String getName() {
+            return "counting";
+        }
+
+        @Override
+        public String format(String rawUnix, File file) {
+            return rawUnix;
+        }
+
+        @Override
+        public List<Lint> lint(String content, File file) {
+            return List.of();
+        }
+
+        @Override
+        public void close() {
+            closed = true;
+        }
+    }
+
+    private static class BlockingStep extends CountingStep {
+
+        private final CountDownLatch latch;
+
+        BlockingStep(AtomicInteger created, CountDownLatch latch) {
+            super(created);
+            this.latch = latch;
+        }
+
+        @Override
+        public String format(String rawUnix, File file) {
+            try {
+                latch.await();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            return rawUnix;
+        }
+    }
+}
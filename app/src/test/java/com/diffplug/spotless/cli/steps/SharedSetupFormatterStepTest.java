@@ -0,0 +1,125 @@
+/*
+ * Copyright 2026 DiffPlug
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.diffplug.spotless.cli.steps;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.IntStream;
+
+import org.junit.jupiter.api.Test;
+
+import com.diffplug.spotless.FormatterStep;
+import com.diffplug.spotless.Lint;
+import com.diffplug.spotless.ResourceHarness;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class SharedSetupFormatterStepTest extends ResourceHarness {
+
+    @Test
+    void itSetsUpSharedDirectoryOnceWhenUsedConcurrently() throws Exception {
+        File sharedDir = newFolder("shared");
+        AtomicInteger setups = new AtomicInteger();
+        CountDownLatch start = new CountDownLatch(1);
+        ExecutorService executor = Executors.newFixedThreadPool(4);
+        try {
+            List<FormatterStep> steps = IntStream.range(0, 4)
+                    .mapToObj(i -> SharedSetupFormatterStep.wrap(new SettingUpStep(sharedDir, setups), sharedDir))
+                    .toList();
+            List<Future<String>> results = steps.stream()
+                    .map(step -> executor.submit(() -> {
+                        start.await();
+                        return step.format("x", new File("x"));
+                    }))
+                    .toList();
+            start.countDown();
+            for (Future<String> result : results) {
+                assertThat(result.get(5, TimeUnit.SECONDS)).isEqualTo("x");
+            }
+
+            assertThat(setups).hasValue(1);
+            assertThat(sharedDir.toPath().resolve(".spotless-cli-setup-done")).exists();
+            for (FormatterStep step : steps) {
+                step.close();
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    @Test
+    void itDoesNotSetUpSharedDirectoryAgainInLaterRuns() throws Exception {
+        File sharedDir = newFolder("shared");
+        AtomicInteger setups = new AtomicInteger();
+        try (FormatterStep first = SharedSetupFormatterStep.wrap(new SettingUpStep(sharedDir, setups), sharedDir)) {
+            first.format("x", new File("x"));
+        }
+
+        try (FormatterStep second = SharedSetupFormatterStep.wrap(new SettingUpStep(sharedDir, setups), sharedDir)) {
+            assertThat(second.format("y", new File("y"))).isEqualTo("y");
+        }
+
+        assertThat(setups).hasValue(1);
+    }
+
+    /**
+     * Sets up the shared directory on first use unless it already is, like {@code npm install} would. The setup takes
+     * a while, so unguarded concurrent first uses would all see the directory as not set up.
+     */
+    private static class SettingUpStep implements FormatterStep {
+
+        private final Path installDir;
+
+        private final AtomicInteger setups;
+
+        SettingUpStep(File sharedDir, AtomicInteger setups) {
+            this.installDir = sharedDir.toPath().resolve("node_modules");
+            this.setups = setups;
+        }
+
+        @Override
+        public String getName() {
+            return "setting-up";
+        }
+
+        @Override
+        public String format(String rawUnix, File file) throws IOException, InterruptedException {
+            if (!Files.isDirectory(installDir)) {
+                setups.incrementAndGet();
+                Thread.sleep(50);
+                Files.createDirectories(installDir);
+            }
+            return rawUnix;
+        }
+
+        @Override
+        public List<Lint> lint(String content, File file) {
+            return List.of();
+        }
+
+        @Override
+        public void close() {}
+    }
+}
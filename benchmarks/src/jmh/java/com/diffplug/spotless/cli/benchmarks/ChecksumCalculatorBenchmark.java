@@ -0,0 +1,62 @@
+/*
+ * Copyright 2026 DiffPlug
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.diffplug.spotless.cli.benchmarks;
+
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import com.diffplug.spotless.cli.core.ChecksumCalculator;
+
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class ChecksumCalculatorBenchmark {
+
+    /** number of methods in the source, 10 are about 1KB */
+    @Param({"10", "1000"})
+    public int methods;
+
+    private final ChecksumCalculator checksumCalculator = new ChecksumCalculator();
+
+    private byte[] bytes;
+
+    private String text;
+
+    @Setup
+    public void setUp() {
+        text = SyntheticCorpus.javaSource("Checksum", methods);
+        bytes = text.getBytes(StandardCharsets.UTF_8);
+    }
+
+    @Benchmark
+    public String calculateChecksumOfBytes() {
+        return checksumCalculator.calculateChecksum(bytes);
+    }
+
+    @Benchmark
+    public String calculateChecksumOfText() {
+        return checksumCalculator.calculateChecksum(text);
+    }
+}
@@ -0,0 +1,71 @@
+/*
+ * Copyright 2026 DiffPlug
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.diffplug.spotless.cli.benchmarks;
+
+import java.nio.file.Path;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import com.diffplug.spotless.cli.core.Diff;
+
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class DiffBenchmark {
+
+    @Param({"10", "1000"})
+    public int methods;
+
+    private final Path file = Path.of("src/main/java/com/example/Dirty.java");
+
+    private String clean;
+
+    private String dirty;
+
+    @Setup
+    public void setUp() {
+        clean = SyntheticCorpus.javaSource("Dirty", methods);
+        // every 10th line is indented with a tab instead of spaces
+        StringBuilder dirtyBuilder = new StringBuilder();
+        String[] lines = clean.split("\n", -1);
+        for (int i = 0; i < lines.length; i++) {
+            String line = i % 10 == 0 ? lines[i].replace("    ", "\t") : lines[i];
+            dirtyBuilder.append(line);
+            if (i < lines.length - 1) {
+                dirtyBuilder.append('\n');
+            }
+        }
+        dirty = dirtyBuilder.toString();
+    }
+
+    @Benchmark
+    public int countLineDifferences() {
+        return Diff.countLineDifferences(dirty, clean);
+    }
+
+    @Benchmark
+    public String createDiffString() {
+        return Diff.createDiffString(dirty, clean, file);
+    }
+}
@@ -0,0 +1,75 @@
+/*
+ * Copyright 2026 DiffPlug
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.diffplug.spotless.cli.benchmarks;
+
+import java.util.concurrent.TimeUnit;
+import java.util.logging.Level;
+import java.util.logging.LogRecord;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import com.diffplug.spotless.cli.logging.output.LogfmtFormatter;
+
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+public class LogfmtFormatterBenchmark {
+
+    private final LogfmtFormatter plainFormatter = new LogfmtFormatter();
+
+    private final LogfmtFormatter coloredFormatter = new LogfmtFormatter(LogfmtFormatter.KeyDecorator.MULTI_COLOR);
+
+    private LogRecord record;
+
+    private LogRecord recordWithException;
+
+    @Setup
+    public void setUp() {
+        record = logRecord();
+        recordWithException = logRecord();
+        recordWithException.setThrown(new IllegalStateException("something went wrong"));
+    }
+
+    private static LogRecord logRecord() {
+        LogRecord record = new LogRecord(Level.INFO, "Formatting file: {0}");
+        record.setParameters(new Object[] {"src/main/java/com/example/Example.java"});
+        record.setLoggerName("com.diffplug.spotless.cli.SpotlessCLI");
+        record.setSourceClassName("com.diffplug.spotless.cli.SpotlessCLI");
+        record.setSourceMethodName("format");
+        return record;
+    }
+
+    @Benchmark
+    public String format() {
+        return plainFormatter.format(record);
+    }
+
+    @Benchmark
+    public String formatColored() {
+        return coloredFormatter.format(record);
+    }
+
+    @Benchmark
+    public String formatWithException() {
+        return plainFormatter.format(recordWithException);
+    }
+}
@@ -0,0 +1,85 @@
+/*
+ * Copyright 2026 DiffPlug
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.diffplug.spotless.cli.benchmarks;
+
+import java.io.PrintWriter;
+import java.io.Writer;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+
+import com.diffplug.spotless.cli.FormattingEngineProvider;
+import com.diffplug.spotless.cli.SpotlessCLI;
+
+import picocli.CommandLine;
+
+/**
+ * Runs the whole cli (target resolution, formatting with the cheap license-header step, reporting) on a synthetic
+ * corpus. The files are never changed, so every invocation does the same work.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+public class SpotlessCLIBenchmark {
+
+    @Param({"1", "4"})
+    public int parallelity;
+
+    private SyntheticCorpus corpus;
+
+    private final PrintWriter nullWriter = new PrintWriter(Writer.nullWriter());
+
+    @Setup
+    public void setUp() {
+        corpus = SyntheticCorpus.create(4, 10, 25);
+    }
+
+    @TearDown
+    public void tearDown() {
+        corpus.close();
+    }
+
+    @Benchmark
+    public int checkDirtyFiles() {
+        CommandLine commandLine =
+                SpotlessCLI.createCommandLine(SpotlessCLI.createInstance(FormattingEngineProvider.NEW_PER_RUN));
+        commandLine.setOut(nullWriter);
+        commandLine.setErr(nullWriter);
+        return commandLine.execute(
+                "--quiet",
+                "--basedir",
+                corpus.root().toString(),
+                "--mode",
+                "CHECK",
+                "--parallelity",
+                String.valueOf(parallelity),
+                "--target",
+                "**/*.java",
+                "--exclude",
+                "**/node_modules/**",
+                "license-header",
+                "--header",
+                "/* Licensed under the Apache License, Version 2.0 */");
+    }
+}
@@ -0,0 +1,85 @@
+/*
+ * Copyright 2026 DiffPlug
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.diffplug.spotless.cli.benchmarks;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Comparator;
+import java.util.stream.Stream;
+
+/**
+ * A generated source tree for the benchmarks: {@code modules} modules with java sources in a maven like layout,
+ * plus some non-java files and a {@code node_modules} directory which should never be looked at.
+ */
+final class SyntheticCorpus implements AutoCloseable {
+
+    private final Path root;
+
+    private SyntheticCorpus(Path root) {
+        this.root = root;
+    }
+
+    static SyntheticCorpus create(int modules, int packagesPerModule, int filesPerPackage) {
+        try {
+            Path root = Files.createTempDirectory("spotless-cli-benchmark-");
+            for (int module = 0; module < modules; module++) {
+                Path moduleDir = root.resolve("module" + module);
+                for (int pkg = 0; pkg < packagesPerModule; pkg++) {
+                    Path packageDir = Files.createDirectories(
+                            moduleDir.resolve("src/main/java/com/example/module" + module + "/pkg" + pkg));
+                    for (int file = 0; file < filesPerPackage; file++) {
+                        String className = "Class" + file;
+                        Files.writeString(packageDir.resolve(className + ".java"), javaSource(className, 20));
+                        Files.writeString(packageDir.resolve(className + ".txt"), "not a java file\n");
+                    }
+                }
+                Path nodeModules = Files.createDirectories(moduleDir.resolve("node_modules/some-package"));
+                Files.writeString(nodeModules.resolve("index.js"), "module.exports = {};\n");
+            }
+            return new SyntheticCorpus(root);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    Path root() {
+        return root;
+    }
+
+    static String javaSource(String className, int methods) {
+        StringBuilder source = new StringBuilder();
+        source.append("package com.example;\n\npublic class ").append(className).append(" {\n");
+        for (int method = 0; method < methods; method++) {
+            source.append("\n    public int method")
+                    .append(method)
+                    .append("(int value) {\n        return value * ")
+                    .append(method)
+                    .append(";\n    }\n");
+        }
+        return source.append("}\n").toString();
+    }
+
+    @Override
+    public void close() {
+        try (Stream<Path> paths = Files.walk(root)) {
+            paths.sorted(Comparator.reverseOrder()).forEach(path -> path.toFile().delete());
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+}
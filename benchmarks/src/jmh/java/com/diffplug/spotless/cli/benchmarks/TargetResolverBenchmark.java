@@ -0,0 +1,69 @@
+/*
+ * Copyright 2026 DiffPlug
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.diffplug.spotless.cli.benchmarks;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+
+import com.diffplug.spotless.cli.core.TargetExclusions;
+import com.diffplug.spotless.cli.core.TargetResolver;
+
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+public class TargetResolverBenchmark {
+
+    @Param({"**/*.java", "module1/src/main/java/**/*.java", "module1/src/main/java/com/example/module1/pkg1"})
+    public String target;
+
+    private SyntheticCorpus corpus;
+
+    private TargetExclusions exclusions;
+
+    @Setup
+    public void setUp() {
+        corpus = SyntheticCorpus.create(10, 20, 20);
+        exclusions = TargetExclusions.of(corpus.root(), List.of("**/node_modules/**"), false);
+    }
+
+    @TearDown
+    public void tearDown() {
+        corpus.close();
+    }
+
+    @Benchmark
+    public long resolveTargets() {
+        // a new resolver each time, as the resolver caches the resolved targets
+        return new TargetResolver(corpus.root(), List.of(target)).resolveTargets().count();
+    }
+
+    @Benchmark
+    public long resolveTargetsWithExclusions() {
+        return new TargetResolver(corpus.root(), List.of(target), exclusions)
+                .resolveTargets()
+                .count();
+    }
+}
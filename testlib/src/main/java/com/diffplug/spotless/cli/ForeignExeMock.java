@@ -25,6 +25,7 @@ import java.util.Objects;
 import java.util.stream.Collectors;
 
 import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
 
 public class ForeignExeMock {
 
@@ -108,6 +109,10 @@ public class ForeignExeMock {
 
         private boolean writeToStdout = false;
 
+        @Nullable private String inPlaceOption;
+
+        @Nullable private String invocationLog;
+
         private Builder(@NotNull String name, @NotNull String version) {
             this.name = Objects.requireNonNull(name);
             this.version = Objects.requireNonNull(version);
@@ -143,6 +148,24 @@ public class ForeignExeMock {
             return this;
         }
 
+        /**
+         * With the given option, all files passed as arguments are "formatted" in place (their content is replaced by
+         * the text otherwise written to stdout).
+         */
+        @NotNull public Builder withInPlaceOption(@NotNull String optionName) {
+            this.inPlaceOption = Objects.requireNonNull(optionName);
+            return this;
+        }
+
+        /**
+         * Appends the arguments of each invocation (except for {@code --version} and other string returning options)
+         * as a line to the given file, which is resolved against the directory of the mock.
+         */
+        @NotNull public Builder withInvocationLog(@NotNull String logFileName) {
+            this.invocationLog = Objects.requireNonNull(logFileName);
+            return this;
+        }
+
         private Map<String, String> optionDefaults() {
             Map<String, String> defaults = new LinkedHashMap<>();
             stringConsumingOptions.forEach((k, v) -> defaults.put(k, ""));
@@ -168,11 +191,21 @@ public class ForeignExeMock {
                     }
                 }
 
-                writer = writer.writeOptionParserOutro();
+                if (inPlaceOption != null) {
+                    writer = writer.writeInPlaceOption(inPlaceOption);
+                }
+
+                writer = writer.writeOptionParserOutro(inPlaceOption != null);
 
+                if (invocationLog != null) {
+                    writer = writer.writeInvocationLog(invocationLog);
+                }
                 if (readFromStdin) {
                     writer = writer.writeReadFromStdin();
                 }
+                if (inPlaceOption != null) {
+                    writer = writer.writeFormatInPlace(exitCode);
+                }
                 if (writeToStdout) {
                     writer = writer.writeWriteToStdout();
                 }
@@ -209,7 +242,13 @@ public class ForeignExeMock {
 
         ForeignExeMockWriter writeOptionParserIntro();
 
-        ForeignExeMockWriter writeOptionParserOutro();
+        ForeignExeMockWriter writeInPlaceOption(String optionName);
+
+        ForeignExeMockWriter writeOptionParserOutro(boolean acceptFiles);
+
+        ForeignExeMockWriter writeInvocationLog(String logFileName);
+
+        ForeignExeMockWriter writeFormatInPlace(int exitCode);
     }
 
     private static class UnixForeignExeMockWriter implements ForeignExeMockWriter {
@@ -233,6 +272,9 @@ public class ForeignExeMock {
             output.println("#!/usr/bin/env bash");
             output.println("set -euo pipefail");
             output.println();
+            output.println("invocation_args=\"$*\"");
+            output.println("in_place=\"\"");
+            output.println("files=()");
             optionDefaults.forEach((k, v) -> output.printf("%s=\"%s\"%n", asVarName(k), v));
             output.println();
             return this;
@@ -297,17 +339,56 @@ public class ForeignExeMock {
         }
 
         @Override
-        public ForeignExeMockWriter writeOptionParserOutro() {
-            output.println("    *)");
-            output.println("      echo \"Unknown parameter: $1\"");
-            output.println("      exit 1");
+        public ForeignExeMockWriter writeInPlaceOption(String optionName) {
+            output.printf("    %s)\n", optionName);
+            output.println("      in_place=\"1\"");
+            output.println("      shift");
             output.println("      ;;");
+            return this;
+        }
+
+        @Override
+        public ForeignExeMockWriter writeOptionParserOutro(boolean acceptFiles) {
+            if (acceptFiles) {
+                output.println("    -*)");
+                output.println("      echo \"Unknown parameter: $1\"");
+                output.println("      exit 1");
+                output.println("      ;;");
+                output.println("    *)");
+                output.println("      files+=(\"$1\")");
+                output.println("      shift");
+                output.println("      ;;");
+            } else {
+                output.println("    *)");
+                output.println("      echo \"Unknown parameter: $1\"");
+                output.println("      exit 1");
+                output.println("      ;;");
+            }
             output.println("  esac");
             output.println("done");
             output.println();
             return this;
         }
 
+        @Override
+        public ForeignExeMockWriter writeInvocationLog(String logFileName) {
+            output.printf("echo \"$invocation_args\" >> \"$(dirname \"$0\")/%s\"%n", logFileName);
+            output.println();
+            return this;
+        }
+
+        @Override
+        public ForeignExeMockWriter writeFormatInPlace(int exitCode) {
+            output.println("if [[ -n \"$in_place\" ]]; then");
+            output.println("  for file in ${files[@]+\"${files[@]}\"}; do");
+            output.printf("    echo %s > \"$file\"%n", shQuote(constantOut));
+            output.println("  done");
+            output.printf("  exit %d%n", exitCode);
+            output.println("fi");
+            output.println();
+            return this;
+        }
+
         /* ─────────────────── stdin → /dev/null (drain) ─────────────────── */
         @Override
         public ForeignExeMockWriter writeReadFromStdin() {
@@ -358,6 +439,9 @@ public class ForeignExeMock {
             output.println("@echo off");
             output.println("rem --------------- AUTO‑GENERATED MOCK ---------------");
             output.println("setlocal EnableDelayedExpansion");
+            output.println("set \"INVOCATION_ARGS=%*\"");
+            output.println("set \"IN_PLACE=\"");
+            output.println("set \"FILES=\"");
             output.println();
 
             optionDefaults.forEach((k, v) -> output.printf("set \"%s=%s\"%n", asVarName(k), v));
@@ -436,7 +520,26 @@ public class ForeignExeMock {
 
         // ───────────────────── parser outro ─────────────────────
         @Override
-        public ForeignExeMockWriter writeOptionParserOutro() {
+        public ForeignExeMockWriter writeInPlaceOption(String optionName) {
+            output.printf("if /i \"!arg!\"==\"%s\" (%n", optionName);
+            output.println("    set \"IN_PLACE=1\"");
+            output.println("    shift");
+            output.println("    goto parse_args");
+            output.println(")");
+            output.println();
+            return this;
+        }
+
+        @Override
+        public ForeignExeMockWriter writeOptionParserOutro(boolean acceptFiles) {
+            if (acceptFiles) {
+                output.println("if not \"!arg:~0,1!\"==\"-\" (");
+                output.println("    set FILES=!FILES! \"%~1\"");
+                output.println("    shift");
+                output.println("    goto parse_args");
+                output.println(")");
+                output.println();
+            }
             output.println("echo Unknown parameter: !arg!");
             output.println("exit /b 1");
             output.println();
@@ -445,6 +548,23 @@ public class ForeignExeMock {
             return this;
         }
 
+        @Override
+        public ForeignExeMockWriter writeInvocationLog(String logFileName) {
+            output.printf("echo !INVOCATION_ARGS!>> \"%%~dp0%s\"%n", logFileName);
+            output.println();
+            return this;
+        }
+
+        @Override
+        public ForeignExeMockWriter writeFormatInPlace(int exitCode) {
+            output.println("if \"!IN_PLACE!\"==\"1\" (");
+            output.printf("    for %%%%f in (!FILES!) do echo %s> \"%%%%~f\"%n", constantOut.replace("\"", "\"\""));
+            output.printf("    exit /b %d%n", exitCode);
+            output.println(")");
+            output.println();
+            return this;
+        }
+
         // ───────────────────── stdin → file ─────────────────────
         @Override
         public ForeignExeMockWriter writeReadFromStdin() {
@@ -16,6 +16,7 @@
 package com.diffplug.spotless.cli;
 
 import java.io.File;
+import java.nio.charset.StandardCharsets;
 import java.util.ArrayList;
 import java.util.List;
 import java.util.Objects;
@@ -33,6 +34,8 @@ public abstract class SpotlessCLIRunner {
 
     private final List<String> args = new ArrayList<>();
 
+    private @Nullable byte[] stdin;
+
     public static SpotlessCLIRunner create() {
         return new SpotlessCLIRunnerInSameThread();
     }
@@ -54,6 +57,19 @@ public abstract class SpotlessCLIRunner {
         return workingDir;
     }
 
+    public SpotlessCLIRunner withStdin(@NotNull String stdin) {
+        return withStdin(Objects.requireNonNull(stdin).getBytes(StandardCharsets.UTF_8));
+    }
+
+    public SpotlessCLIRunner withStdin(byte @NotNull [] stdin) {
+        this.stdin = Objects.requireNonNull(stdin);
+        return this;
+    }
+
+    protected @Nullable byte[] stdin() {
+        return stdin;
+    }
+
     public SpotlessCLIRunner withOption(@NotNull String option) {
         args.add(Objects.requireNonNull(option));
         return this;
@@ -148,14 +164,14 @@ public abstract class SpotlessCLIRunner {
     public static class Result {
 
         private final Integer exitCode;
-        private final String stdOut;
+        private final byte[] stdOut;
         private final String stdErr;
         private final Exception executionException;
 
         protected Result(
                 @Nullable Integer exitCode,
                 @Nullable Exception executionException,
-                @NotNull String stdOut,
+                byte @NotNull [] stdOut,
                 @NotNull String stdErr) {
             this.exitCode = exitCode;
             this.executionException = executionException;
@@ -168,7 +184,11 @@ public abstract class SpotlessCLIRunner {
         }
 
         public String stdOut() {
-            return stdOut;
+            return new String(stdOut, StandardCharsets.UTF_8);
+        }
+
+        public byte[] stdOutBytes() {
+            return stdOut.clone();
         }
 
         public String stdErr() {
@@ -37,9 +37,9 @@ public class SpotlessCLIRunnerInExternalJavaProcess extends SpotlessCLIRunner {
         try (ProcessRunner runner = new ProcessRunner()) {
 
             ProcessRunner.Result pResult =
-                    ThrowingEx.get(() -> runner.exec(workingDir(), System.getenv(), null, processArgs(args)));
+                    ThrowingEx.get(() -> runner.exec(workingDir(), System.getenv(), stdin(), processArgs(args)));
 
-            return new Result(pResult.exitCode(), null, pResult.stdOutUtf8(), pResult.stdErrUtf8());
+            return new Result(pResult.exitCode(), null, pResult.stdOut(), pResult.stdErrUtf8());
         }
     }
 
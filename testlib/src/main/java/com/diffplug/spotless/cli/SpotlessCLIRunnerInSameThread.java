@@ -15,8 +15,14 @@
  */
 package com.diffplug.spotless.cli;
 
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
 import java.io.PrintWriter;
 import java.io.StringWriter;
+import java.nio.charset.StandardCharsets;
 import java.util.List;
 
 import com.diffplug.spotless.ThrowingEx;
@@ -28,12 +34,13 @@ public class SpotlessCLIRunnerInSameThread extends SpotlessCLIRunner {
     static final String SPOTLESS_CLI_IN_SAME_THREAD = "spotless.cli.inSameThread";
 
     protected Result executeCommand(List<String> args) {
-        CommandLine commandLine = createCommandLine();
-
-        StringWriter out = new StringWriter();
+        // text and raw bytes end up in the same stdout, as they would in a process
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
         StringWriter err = new StringWriter();
+        InputStream in = new ByteArrayInputStream(stdin() != null ? stdin() : new byte[0]);
+        CommandLine commandLine = createCommandLine(in, out);
 
-        try (PrintWriter outWriter = new PrintWriter(out);
+        try (PrintWriter outWriter = new PrintWriter(new OutputStreamWriter(out, StandardCharsets.UTF_8));
                 PrintWriter errWriter = new PrintWriter(err)) {
             commandLine.setOut(outWriter);
             commandLine.setErr(errWriter);
@@ -48,14 +55,15 @@ public class SpotlessCLIRunnerInSameThread extends SpotlessCLIRunner {
             // finalize
             outWriter.flush();
             errWriter.flush();
-            return new Result(exitCode, executionException, out.toString(), err.toString());
+            return new Result(exitCode, executionException, out.toByteArray(), err.toString());
         }
     }
 
-    private static CommandLine createCommandLine() {
+    private static CommandLine createCommandLine(InputStream stdin, OutputStream stdout) {
         return ThrowingEx.get(() -> {
             Class<?> cliClass = Class.forName("com.diffplug.spotless.cli.SpotlessCLI");
-            Object cliInstance = cliClass.getDeclaredMethod("createInstance").invoke(null);
+            Object cliInstance = cliClass.getDeclaredMethod("createInstance", InputStream.class, OutputStream.class)
+                    .invoke(null, stdin, stdout);
             return (CommandLine)
                     cliClass.getDeclaredMethod("createCommandLine", cliClass).invoke(null, cliClass.cast(cliInstance));
         });